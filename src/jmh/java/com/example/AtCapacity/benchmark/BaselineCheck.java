@@ -0,0 +1,109 @@
+package com.example.AtCapacity.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Compares a JMH JSON result file with a stored baseline and exits non-zero if any
+ * benchmark got slower by more than the tolerance. Benchmarks missing from the
+ * baseline are reported as new and do not fail the check.
+ * <p>
+ * Scores only compare on the same machine and JDK, so the baseline is meant to be
+ * refreshed ({@code -Djmh.updateBaseline=true}) whenever either changes. Without a
+ * baseline file the results become the baseline.
+ * <p>
+ * Usage: {@code BaselineCheck <result.json> <baseline.json> <tolerance> <update>}
+ */
+public final class BaselineCheck {
+
+    private BaselineCheck() {
+    }
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3) {
+            System.err.println("Usage: BaselineCheck <result.json> <baseline.json> <tolerance> [update]");
+            System.exit(2);
+        }
+        Path results = Path.of(args[0]);
+        Path baseline = Path.of(args[1]);
+        double tolerance = Double.parseDouble(args[2]);
+        boolean update = args.length > 3 && Boolean.parseBoolean(args[3]);
+
+        if (!Files.exists(results)) {
+            System.err.println("No benchmark results at " + results);
+            System.exit(2);
+        }
+        if (update || !Files.exists(baseline)) {
+            Files.createDirectories(baseline.toAbsolutePath().getParent());
+            Files.copy(results, baseline, StandardCopyOption.REPLACE_EXISTING);
+            System.out.println("Baseline written to " + baseline);
+            return;
+        }
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, Score> current = scores(mapper.readTree(results.toFile()));
+        Map<String, Score> expected = scores(mapper.readTree(baseline.toFile()));
+
+        int regressions = 0;
+        for (Map.Entry<String, Score> entry : current.entrySet()) {
+            Score now = entry.getValue();
+            Score before = expected.get(entry.getKey());
+            if (before == null) {
+                System.out.printf("NEW        %s: %.3f %s%n", entry.getKey(), now.value(), now.unit());
+                continue;
+            }
+            double change = now.relativeChange(before);
+            boolean regressed = change > tolerance;
+            if (regressed) {
+                regressions++;
+            }
+            // Positive change is worse whatever the mode
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n",
+                    regressed ? "REGRESSED" : "OK", entry.getKey(), before.value(), now.value(), now.unit(),
+                    change * 100);
+        }
+        if (regressions > 0) {
+            System.err.printf("%d benchmark(s) regressed by more than %.0f%%%n", regressions, tolerance * 100);
+            System.exit(1);
+        }
+    }
+
+    /**
+     * @param higherIsBetter true for throughput, false for time per operation
+     */
+    record Score(double value, String unit, boolean higherIsBetter) {
+
+        /**
+         * How much worse this score is than the other, as a fraction; negative means better.
+         */
+        double relativeChange(Score baseline) {
+            double change = (value - baseline.value) / baseline.value;
+            return higherIsBetter ? -change : change;
+        }
+    }
+
+    /**
+     * Keys results by benchmark, mode and sorted parameters, so reordering params does not matter.
+     */
+    static Map<String, Score> scores(JsonNode results) {
+        Map<String, Score> scores = new LinkedHashMap<>();
+        for (JsonNode result : results) {
+            Map<String, String> params = new TreeMap<>();
+            result.path("params").fields().forEachRemaining(param -> params.put(param.getKey(), param.getValue().asText()));
+            String mode = result.path("mode").asText();
+            String key = result.path("benchmark").asText() + " [" + mode + "]" + (params.isEmpty() ? "" : " " + params);
+            JsonNode metric = result.path("primaryMetric");
+            scores.put(key, new Score(metric.path("score").asDouble(), metric.path("scoreUnit").asText(),
+                    mode.equals("thrpt")));
+        }
+        return scores;
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.AtCapacity.benchmark;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Deterministic facility data, so every run measures the same inputs.
+ */
+final class BenchmarkData {
+
+    static final long SEED = 42;
+
+    /** A city-sized area, where nearest queries have many close candidates */
+    static final double MIN_LATITUDE = 43.60;
+    static final double MAX_LATITUDE = 43.85;
+    static final double MIN_LONGITUDE = -79.60;
+    static final double MAX_LONGITUDE = -79.20;
+
+    private static final String[] HOURS = {
+            "06:30-22:00",
+            "Mon-Fri 06:00-22:00; Sat,Sun 08:00-20:00",
+            "22:00-02:00",
+            "24/7",
+    };
+
+    private BenchmarkData() {
+    }
+
+    static List<Facility> facilities(int count) {
+        Random random = new Random(SEED);
+        FacilityType[] types = FacilityType.values();
+        List<Facility> facilities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Location location = new Location("Street " + i, "Toronto", "M5V",
+                    latitude(random), longitude(random));
+            Facility facility = new Facility("Facility " + i, 50 + random.nextInt(200), location,
+                    "owner" + (i % 100), HOURS[i % HOURS.length], "https://example.com/" + i, types[i % types.length]);
+            facility.setId(String.format("%024x", i));
+            facility.setCurrentOccupancy(random.nextInt(facility.getTotalCapacity()));
+            facilities.add(facility);
+        }
+        return facilities;
+    }
+
+    static double latitude(Random random) {
+        return MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE);
+    }
+
+    static double longitude(Random random) {
+        return MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE);
+    }
+}
@@ -0,0 +1,61 @@
+package com.example.AtCapacity.benchmark;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.OpeningSchedule;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Per-facility model methods called on every list and nearest response.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class FacilityBenchmark {
+
+    @Param({"06:30-22:00", "Mon-Fri 06:00-22:00; Sat,Sun 08:00-20:00"})
+    public String hours;
+
+    private Facility facility;
+    private double latitude;
+    private double longitude;
+
+    @Setup
+    public void setUp() {
+        facility = BenchmarkData.facilities(1).get(0);
+        facility.setHours(hours);
+        latitude = (BenchmarkData.MIN_LATITUDE + BenchmarkData.MAX_LATITUDE) / 2;
+        longitude = (BenchmarkData.MIN_LONGITUDE + BenchmarkData.MAX_LONGITUDE) / 2;
+    }
+
+    @Benchmark
+    public double calculateDistance() {
+        return facility.calculateDistance(latitude, longitude);
+    }
+
+    /** The schedule is compiled once per instance, so this measures the lookup */
+    @Benchmark
+    public boolean isOpen() {
+        return facility.isOpen();
+    }
+
+    /** The one-off cost paid when a facility is loaded or its hours change */
+    @Benchmark
+    public OpeningSchedule parseHours() {
+        return OpeningSchedule.parse(hours);
+    }
+}
@@ -0,0 +1,116 @@
+package com.example.AtCapacity.benchmark;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.repository.FacilityRepository;
+import org.springframework.data.geo.Distance;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.geo.Metrics;
+
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Offline stand-in for {@link FacilityRepository}, backed by a map. Only the methods the
+ * benchmarked paths call are implemented; anything else throws, so a benchmark that
+ * starts depending on a new query fails loudly instead of measuring nothing.
+ * <p>
+ * Like MongoDB, every read returns fresh copies. {@code findNearest} is a scan-and-sort,
+ * so it stands in for the query shape, not for the speed of a 2dsphere index.
+ */
+final class InMemoryFacilityRepository implements InvocationHandler {
+
+    private final Map<String, Facility> facilities = new LinkedHashMap<>();
+
+    private InMemoryFacilityRepository(Collection<Facility> facilities) {
+        for (Facility facility : facilities) {
+            this.facilities.put(facility.getId(), facility);
+        }
+    }
+
+    static FacilityRepository of(Collection<Facility> facilities) {
+        return (FacilityRepository) Proxy.newProxyInstance(FacilityRepository.class.getClassLoader(),
+                new Class<?>[] {FacilityRepository.class}, new InMemoryFacilityRepository(facilities));
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+        if (method.isDefault()) {
+            return InvocationHandler.invokeDefault(proxy, method, args);
+        }
+        switch (method.getName()) {
+            case "findAll":
+                if (method.getParameterCount() == 0) {
+                    return copies(facilities.values());
+                }
+                break;
+            case "findById":
+                return Optional.ofNullable(facilities.get((String) args[0])).map(Facility::new);
+            case "findAllById": {
+                List<Facility> found = new ArrayList<>();
+                for (String id : (Iterable<String>) args[0]) {
+                    Facility facility = facilities.get(id);
+                    if (facility != null) {
+                        found.add(new Facility(facility));
+                    }
+                }
+                return found;
+            }
+            case "findNearest":
+                if (method.getParameterCount() == 5) {
+                    return findNearest((double) args[0], (double) args[1], (FacilityType) args[2], (int) args[3],
+                            (Collection<String>) args[4]);
+                }
+                break;
+            case "count":
+                return (long) facilities.size();
+            case "toString":
+                return "InMemoryFacilityRepository[" + facilities.size() + "]";
+            case "hashCode":
+                return System.identityHashCode(proxy);
+            case "equals":
+                return proxy == args[0];
+            default:
+                break;
+        }
+        throw new UnsupportedOperationException("Not available in benchmarks: " + method);
+    }
+
+    private GeoResults<Facility> findNearest(double latitude, double longitude, FacilityType type, int limit,
+                                             Collection<String> onlyIds) {
+        List<GeoResult<Facility>> results = new ArrayList<>();
+        for (Facility facility : facilities.values()) {
+            if (facility.getLocation() == null
+                    || (type != null && type != facility.getType())
+                    || (onlyIds != null && !onlyIds.contains(facility.getId()))) {
+                continue;
+            }
+            double distance = facility.calculateDistance(latitude, longitude);
+            results.add(new GeoResult<>(facility, new Distance(distance, Metrics.KILOMETERS)));
+        }
+        results.sort(Comparator.comparingDouble(result -> result.getDistance().getValue()));
+        List<GeoResult<Facility>> nearest = new ArrayList<>(Math.min(limit, results.size()));
+        for (GeoResult<Facility> result : results.subList(0, Math.min(limit, results.size()))) {
+            nearest.add(new GeoResult<>(new Facility(result.getContent()), result.getDistance()));
+        }
+        return new GeoResults<>(nearest, Metrics.KILOMETERS);
+    }
+
+    private static List<Facility> copies(Collection<Facility> facilities) {
+        List<Facility> copies = new ArrayList<>(facilities.size());
+        for (Facility facility : facilities) {
+            copies.add(new Facility(facility));
+        }
+        return copies;
+    }
+}
@@ -0,0 +1,97 @@
+package com.example.AtCapacity.benchmark;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.repository.FacilityRepository;
+import com.example.AtCapacity.service.BatchNearestSearch;
+import com.example.AtCapacity.service.FacilityCache;
+import com.example.AtCapacity.service.FacilityChangeLog;
+import com.example.AtCapacity.service.FacilityCollectionVersions;
+import com.example.AtCapacity.service.FacilityMetrics;
+import com.example.AtCapacity.service.FacilityService;
+import com.example.AtCapacity.service.FacilitySpatialIndex;
+import com.example.AtCapacity.service.OccupancyEngine;
+import com.example.AtCapacity.service.OpenNowIndex;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ConcurrentTaskScheduler;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link FacilityService#findNearestFacilities} through the k-d tree index and through
+ * the repository query it replaces, at several catalogue sizes.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class NearestBenchmark {
+
+    private static final int ORIGINS = 1024;
+
+    @Param({"1000", "10000", "100000"})
+    public int facilities;
+
+    /** True to answer from the in-memory spatial index, false to query the repository */
+    @Param({"true", "false"})
+    public boolean index;
+
+    private ScheduledExecutorService scheduler;
+    private FacilityService facilityService;
+    private double[] latitudes;
+    private double[] longitudes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        FacilityRepository repository = InMemoryFacilityRepository.of(BenchmarkData.facilities(facilities));
+        FacilitySpatialIndex spatialIndex = new FacilitySpatialIndex(repository, index);
+        spatialIndex.afterSingletonsInstantiated();
+        FacilityCache cache = new FacilityCache(10_000, 600_000, 2_000);
+        scheduler = Executors.newSingleThreadScheduledExecutor();
+        facilityService = new FacilityService(repository, new OccupancyEngine(repository, false, 30_000),
+                spatialIndex, new BatchNearestSearch(60_000), event -> { },
+                cache, new OpenNowIndex(repository, new ConcurrentTaskScheduler(scheduler)),
+                new FacilityMetrics(new SimpleMeterRegistry(), cache, 0),
+                // Delta sync and collection ETags are not benchmarked, so neither reads MongoDB
+                new FacilityChangeLog(null, 2_000),
+                new FacilityCollectionVersions(null));
+
+        Random random = new Random(BenchmarkData.SEED + 1);
+        latitudes = new double[ORIGINS];
+        longitudes = new double[ORIGINS];
+        for (int i = 0; i < ORIGINS; i++) {
+            latitudes[i] = BenchmarkData.latitude(random);
+            longitudes[i] = BenchmarkData.longitude(random);
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        scheduler.shutdownNow();
+    }
+
+    @Benchmark
+    public List<Facility> findNearestFacilities() {
+        int i = next++ & (ORIGINS - 1);
+        return facilityService.findNearestFacilities(latitudes[i], longitudes[i], 4, null);
+    }
+}
@@ -0,0 +1,100 @@
+package com.example.AtCapacity.benchmark;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Jackson serialization of facility lists, the bulk of the list endpoint's CPU time,
+ * in each encoding the API offers. The nearest benchmarks cover the small responses
+ * of the nearest endpoint, full and summary view. Payload sizes are printed at setup,
+ * since JMH only records times.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class SerializationBenchmark {
+
+    /** Facilities in a nearest response */
+    private static final int NEAREST = 4;
+
+    @Param({"100", "1000"})
+    public int facilities;
+
+    @Param({"json", "cbor", "smile"})
+    public String encoding;
+
+    private Facility[] list;
+    private Facility[] nearest;
+    private FacilitySummary[] nearestSummaries;
+    private ObjectWriter facilityWriter;
+    private ObjectWriter summaryWriter;
+
+    @Setup
+    public void setUp() throws JsonProcessingException {
+        List<Facility> data = BenchmarkData.facilities(facilities);
+        list = data.toArray(new Facility[0]);
+        nearest = data.subList(0, NEAREST).stream()
+                .map(facility -> {
+                    Facility copy = new Facility(facility);
+                    copy.setDistance(facility.calculateDistance(BenchmarkData.MIN_LATITUDE, BenchmarkData.MIN_LONGITUDE));
+                    return copy;
+                })
+                .toArray(Facility[]::new);
+        nearestSummaries = Arrays.stream(nearest).map(FacilitySummary::of).toArray(FacilitySummary[]::new);
+
+        ObjectMapper mapper = new ObjectMapper(factory(encoding));
+        facilityWriter = mapper.writerFor(Facility[].class);
+        summaryWriter = mapper.writerFor(FacilitySummary[].class);
+
+        System.out.printf("%n%s payload: list of %d = %d bytes, nearest = %d bytes, nearest summary = %d bytes%n",
+                encoding, facilities, writeFacilities().length, writeNearest().length, writeNearestSummaries().length);
+    }
+
+    @Benchmark
+    public byte[] writeFacilities() throws JsonProcessingException {
+        return facilityWriter.writeValueAsBytes(list);
+    }
+
+    @Benchmark
+    public byte[] writeNearest() throws JsonProcessingException {
+        return facilityWriter.writeValueAsBytes(nearest);
+    }
+
+    @Benchmark
+    public byte[] writeNearestSummaries() throws JsonProcessingException {
+        return summaryWriter.writeValueAsBytes(nearestSummaries);
+    }
+
+    private static JsonFactory factory(String encoding) {
+        return switch (encoding) {
+            case "json" -> new JsonFactory();
+            case "cbor" -> new CBORFactory();
+            case "smile" -> new SmileFactory();
+            default -> throw new IllegalArgumentException("Unknown encoding: " + encoding);
+        };
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.AtCapacity.loadtest;
+
+import java.util.Arrays;
+
+/**
+ * Latency samples in nanoseconds. Each client records into its own instance, so
+ * recording is an array store without contention; instances are merged once the
+ * run is over.
+ */
+final class Latencies {
+
+    private long[] samples = new long[1024];
+    private int size;
+
+    void record(long nanos) {
+        if (size == samples.length) {
+            samples = Arrays.copyOf(samples, size * 2);
+        }
+        samples[size++] = nanos;
+    }
+
+    int count() {
+        return size;
+    }
+
+    static Latencies merge(Iterable<Latencies> parts) {
+        Latencies merged = new Latencies();
+        int total = 0;
+        for (Latencies part : parts) {
+            total += part.size;
+        }
+        merged.samples = new long[Math.max(total, 1)];
+        for (Latencies part : parts) {
+            System.arraycopy(part.samples, 0, merged.samples, merged.size, part.size);
+            merged.size += part.size;
+        }
+        Arrays.sort(merged.samples, 0, merged.size);
+        return merged;
+    }
+
+    /**
+     * Nearest-rank percentile in milliseconds; only valid on a merged instance.
+     */
+    double percentileMillis(double percentile) {
+        if (size == 0) {
+            return 0;
+        }
+        int rank = (int) Math.ceil(percentile / 100 * size);
+        return samples[Math.max(0, Math.min(size, rank) - 1)] / 1e6;
+    }
+
+    double maxMillis() {
+        return size == 0 ? 0 : samples[size - 1] / 1e6;
+    }
+}
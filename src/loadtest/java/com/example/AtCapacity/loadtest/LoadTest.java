@@ -0,0 +1,320 @@
+package com.example.AtCapacity.loadtest;
+
+import com.example.AtCapacity.AtCapacityBackendApplication;
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import com.example.AtCapacity.repository.FacilityRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.testcontainers.containers.MongoDBContainer;
+import org.testcontainers.utility.DockerImageName;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Drives peak-hour traffic at the REST API of an in-process server and checks that no
+ * occupancy update was lost:
+ * <ul>
+ *   <li>increments and decrements concentrated on a few hot facilities, the contention
+ *       path through {@code FacilityService}'s conditional updates or the occupancy engine</li>
+ *   <li>nearest queries from random points in the seeded area</li>
+ *   <li>polling of the full facility list (summary view)</li>
+ * </ul>
+ * Clients are closed-loop virtual threads: each sends its next request when the last one
+ * returns, so a slow server lowers the offered load and latencies understate what an
+ * open-loop arrival rate would see.
+ * <p>
+ * Every successful increment and decrement is counted, including during warm-up; at the
+ * end the expected occupancy of each hot facility is compared with what the API reports.
+ * Exits with status 1 on any lost update or when a configured latency or throughput gate
+ * fails, so it can run in CI. See {@link LoadTestOptions} for the settings.
+ */
+public final class LoadTest {
+
+    private static final String DATABASE = "atcapacity_loadtest";
+
+    /** Occupancy of the hot facilities at the start; far from both bounds */
+    private static final int HOT_CAPACITY = 1_000_000;
+    private static final int HOT_INITIAL_OCCUPANCY = HOT_CAPACITY / 2;
+
+    private static final double MIN_LATITUDE = 43.60;
+    private static final double MAX_LATITUDE = 43.85;
+    private static final double MIN_LONGITUDE = -79.60;
+    private static final double MAX_LONGITUDE = -79.20;
+
+    enum Operation {
+        INCREMENT, DECREMENT, NEAREST, LIST
+    }
+
+    private LoadTest() {
+    }
+
+    public static void main(String[] args) throws Exception {
+        LoadTestOptions options = LoadTestOptions.parse(args);
+        boolean passed;
+        try (MongoDBContainer container = options.mongoUri() == null ? startMongo() : null) {
+            String mongoUri = container != null ? container.getReplicaSetUrl(DATABASE) : options.mongoUri();
+            passed = run(options, mongoUri, container == null);
+        }
+        System.exit(passed ? 0 : 1);
+    }
+
+    private static MongoDBContainer startMongo() {
+        System.out.println("MONGO_URI is not set; starting a MongoDB container");
+        MongoDBContainer container = new MongoDBContainer(DockerImageName.parse("mongo:7.0"));
+        container.start();
+        return container;
+    }
+
+    /**
+     * @param dropDatabase true to drop the load test database afterwards, when it lives on a shared server
+     */
+    private static boolean run(LoadTestOptions options, String mongoUri, boolean dropDatabase) throws Exception {
+        String database = dropDatabase ? DATABASE + "_" + System.currentTimeMillis() : DATABASE;
+        List<String> properties = new ArrayList<>(List.of(
+                "server.port=0",
+                "spring.data.mongodb.uri=" + mongoUri,
+                "spring.data.mongodb.database=" + database,
+                "atcapacity.auth.enabled=false"));
+        properties.addAll(options.appProperties());
+
+        try (ConfigurableApplicationContext context = new SpringApplicationBuilder(AtCapacityBackendApplication.class)
+                .properties(properties.toArray(new String[0]))
+                .run()) {
+            try {
+                int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+                List<Facility> hot = seed(context.getBean(FacilityRepository.class), options);
+                return new Run(options, URI.create("http://localhost:" + port + "/api/facilities"), hot)
+                        .execute();
+            } finally {
+                if (dropDatabase) {
+                    context.getBean(MongoTemplate.class).getDb().drop();
+                }
+            }
+        }
+    }
+
+    /**
+     * Inserts the facilities and returns the hot ones.
+     */
+    private static List<Facility> seed(FacilityRepository facilityRepository, LoadTestOptions options) {
+        Random random = new Random(42);
+        FacilityType[] types = FacilityType.values();
+        List<Facility> facilities = new ArrayList<>(options.facilities());
+        for (int i = 0; i < options.facilities(); i++) {
+            boolean hot = i < options.hotFacilities();
+            Location location = new Location(i + " Load St", "Toronto", "M5V",
+                    MIN_LATITUDE + random.nextDouble() * (MAX_LATITUDE - MIN_LATITUDE),
+                    MIN_LONGITUDE + random.nextDouble() * (MAX_LONGITUDE - MIN_LONGITUDE));
+            Facility facility = new Facility("loadtest-" + i, hot ? HOT_CAPACITY : 100, location,
+                    "loadtest", "24/7", null, types[i % types.length]);
+            facility.setCurrentOccupancy(hot ? HOT_INITIAL_OCCUPANCY : random.nextInt(100));
+            facilities.add(facility);
+        }
+        List<Facility> saved = facilityRepository.saveAll(facilities);
+        return saved.subList(0, options.hotFacilities());
+    }
+
+    /**
+     * One load test run against a started server.
+     */
+    private static final class Run {
+
+        private final LoadTestOptions options;
+        private final URI baseUri;
+        private final List<Facility> hot;
+        private final HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(Duration.ofSeconds(5))
+                .build();
+        private final Operation[] mix;
+
+        /** Net successful increments minus decrements per hot facility */
+        private final AtomicLongArray netChanges;
+        private final Map<Operation, LongAdder> rejected = new EnumMap<>(Operation.class);
+        private final Map<Operation, LongAdder> errors = new EnumMap<>(Operation.class);
+        private final List<Map<Operation, Latencies>> latenciesPerClient = new ArrayList<>();
+
+        Run(LoadTestOptions options, URI baseUri, List<Facility> hot) {
+            this.options = options;
+            this.baseUri = baseUri;
+            this.hot = hot;
+            this.netChanges = new AtomicLongArray(hot.size());
+            this.mix = mix(options);
+            for (Operation operation : Operation.values()) {
+                rejected.put(operation, new LongAdder());
+                errors.put(operation, new LongAdder());
+            }
+        }
+
+        private static Operation[] mix(LoadTestOptions options) {
+            List<Operation> mix = new ArrayList<>();
+            addCopies(mix, Operation.INCREMENT, options.incrementWeight());
+            addCopies(mix, Operation.DECREMENT, options.decrementWeight());
+            addCopies(mix, Operation.NEAREST, options.nearestWeight());
+            addCopies(mix, Operation.LIST, options.listWeight());
+            return mix.toArray(new Operation[0]);
+        }
+
+        private static void addCopies(List<Operation> mix, Operation operation, int weight) {
+            for (int i = 0; i < weight; i++) {
+                mix.add(operation);
+            }
+        }
+
+        boolean execute() throws Exception {
+            System.out.printf("Running %d clients for %s after %s warm-up; %d facilities, %d hot%n",
+                    options.clients(), options.duration(), options.warmup(), options.facilities(), hot.size());
+            long measureFrom = System.nanoTime() + options.warmup().toNanos();
+            long deadline = measureFrom + options.duration().toNanos();
+
+            try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+                for (int i = 0; i < options.clients(); i++) {
+                    Map<Operation, Latencies> latencies = new EnumMap<>(Operation.class);
+                    for (Operation operation : Operation.values()) {
+                        latencies.put(operation, new Latencies());
+                    }
+                    latenciesPerClient.add(latencies);
+                    clients.submit(() -> drive(latencies, measureFrom, deadline));
+                }
+            } // close() waits for every client to pass the deadline
+            double seconds = options.duration().toNanos() / 1e9;
+            return report(seconds) & checkLostUpdates();
+        }
+
+        private Void drive(Map<Operation, Latencies> latencies, long measureFrom, long deadline) {
+            ThreadLocalRandom random = ThreadLocalRandom.current();
+            long now;
+            while ((now = System.nanoTime()) < deadline) {
+                Operation operation = mix[random.nextInt(mix.length)];
+                int hotIndex = random.nextInt(hot.size());
+                HttpRequest request = request(operation, hotIndex, random);
+                try {
+                    int status = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+                    long elapsed = System.nanoTime() - now;
+                    if (status == 200) {
+                        if (operation == Operation.INCREMENT) {
+                            netChanges.incrementAndGet(hotIndex);
+                        } else if (operation == Operation.DECREMENT) {
+                            netChanges.decrementAndGet(hotIndex);
+                        }
+                    } else if (status == 400 && (operation == Operation.INCREMENT || operation == Operation.DECREMENT)) {
+                        rejected.get(operation).increment();
+                    } else {
+                        errors.get(operation).increment();
+                    }
+                    if (now >= measureFrom) {
+                        latencies.get(operation).record(elapsed);
+                    }
+                } catch (IOException e) {
+                    errors.get(operation).increment();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return null;
+                }
+            }
+            return null;
+        }
+
+        private HttpRequest request(Operation operation, int hotIndex, ThreadLocalRandom random) {
+            String id = hot.get(hotIndex).getId();
+            return switch (operation) {
+                case INCREMENT -> post("/" + id + "/increment");
+                case DECREMENT -> post("/" + id + "/decrement");
+                case NEAREST -> get(String.format("/nearest?latitude=%f&longitude=%f",
+                        random.nextDouble(MIN_LATITUDE, MAX_LATITUDE),
+                        random.nextDouble(MIN_LONGITUDE, MAX_LONGITUDE)));
+                case LIST -> get("?view=summary");
+            };
+        }
+
+        private HttpRequest post(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUri + path))
+                    .POST(HttpRequest.BodyPublishers.noBody())
+                    .build();
+        }
+
+        private HttpRequest get(String path) {
+            return HttpRequest.newBuilder(URI.create(baseUri + path)).GET().build();
+        }
+
+        private boolean report(double seconds) {
+            System.out.printf("%n%-10s %10s %10s %9s %9s %9s %9s %9s %9s %9s%n", "operation", "requests", "req/s",
+                    "p50 ms", "p95 ms", "p99 ms", "p99.9 ms", "max ms", "rejected", "errors");
+            long total = 0;
+            List<Latencies> occupancy = new ArrayList<>();
+            for (Operation operation : Operation.values()) {
+                List<Latencies> parts = latenciesPerClient.stream().map(latencies -> latencies.get(operation)).toList();
+                Latencies merged = Latencies.merge(parts);
+                if (operation == Operation.INCREMENT || operation == Operation.DECREMENT) {
+                    occupancy.addAll(parts);
+                }
+                total += merged.count();
+                System.out.printf("%-10s %10d %10.1f %9.2f %9.2f %9.2f %9.2f %9.2f %9d %9d%n",
+                        operation.name().toLowerCase(Locale.ROOT), merged.count(), merged.count() / seconds,
+                        merged.percentileMillis(50), merged.percentileMillis(95), merged.percentileMillis(99),
+                        merged.percentileMillis(99.9), merged.maxMillis(),
+                        rejected.get(operation).sum(), errors.get(operation).sum());
+            }
+            double throughput = total / seconds;
+            double occupancyP99 = Latencies.merge(occupancy).percentileMillis(99);
+            System.out.printf("%-10s %10d %10.1f   (occupancy p99 %.2f ms)%n", "total", total, throughput, occupancyP99);
+
+            boolean passed = true;
+            if (options.maxP99Millis() != null && occupancyP99 > options.maxP99Millis()) {
+                System.out.printf("FAIL: occupancy p99 %.2f ms exceeds %.2f ms%n", occupancyP99, options.maxP99Millis());
+                passed = false;
+            }
+            if (options.minThroughput() != null && throughput < options.minThroughput()) {
+                System.out.printf("FAIL: %.1f req/s is below %.1f req/s%n", throughput, options.minThroughput());
+                passed = false;
+            }
+            return passed;
+        }
+
+        /**
+         * Compares each hot facility's reported occupancy with its initial value plus the
+         * successful changes the clients saw.
+         */
+        private boolean checkLostUpdates() throws IOException, InterruptedException {
+            ObjectMapper mapper = new ObjectMapper();
+            long lost = 0;
+            System.out.println();
+            for (int i = 0; i < hot.size(); i++) {
+                Facility facility = hot.get(i);
+                HttpResponse<String> response = client.send(get("/" + facility.getId()),
+                        HttpResponse.BodyHandlers.ofString());
+                long actual = mapper.readTree(response.body()).path("currentOccupancy").asLong();
+                long expected = HOT_INITIAL_OCCUPANCY + netChanges.get(i);
+                lost += Math.abs(expected - actual);
+                System.out.printf("%s: expected occupancy %d, actual %d%n", facility.getName(), expected, actual);
+            }
+            if (lost > 0) {
+                System.out.printf("FAIL: %d lost or phantom occupancy updates%n", lost);
+                return false;
+            }
+            System.out.println("No lost updates");
+            return true;
+        }
+    }
+}
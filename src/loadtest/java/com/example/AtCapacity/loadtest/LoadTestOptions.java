@@ -0,0 +1,101 @@
+package com.example.AtCapacity.loadtest;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Load test settings, given as {@code key=value} arguments. Keys containing a dot are
+ * passed to the application as properties instead, e.g.
+ * {@code atcapacity.occupancy.engine.enabled=true}.
+ *
+ * @param duration measured run time after warm-up
+ * @param warmup run time before measuring, so the JIT and caches settle
+ * @param clients concurrent virtual-thread clients, each sending one request at a time
+ * @param facilities facilities seeded for nearest and list traffic
+ * @param hotFacilities facilities that all increments and decrements contend on
+ * @param incrementWeight relative share of increment requests
+ * @param decrementWeight relative share of decrement requests
+ * @param nearestWeight relative share of nearest queries
+ * @param listWeight relative share of full list polls
+ * @param mongoUri MongoDB to run against; null for MONGO_URI, or a throwaway container if that is unset too
+ * @param maxP99Millis fail if the occupancy p99 exceeds this; null to not check
+ * @param minThroughput fail if total requests per second fall below this; null to not check
+ * @param appProperties extra application properties, as {@code key=value}
+ */
+record LoadTestOptions(Duration duration, Duration warmup, int clients, int facilities, int hotFacilities,
+                       int incrementWeight, int decrementWeight, int nearestWeight, int listWeight,
+                       String mongoUri, Double maxP99Millis, Double minThroughput, List<String> appProperties) {
+
+    static LoadTestOptions parse(String[] args) {
+        Duration duration = Duration.ofSeconds(60);
+        Duration warmup = Duration.ofSeconds(10);
+        int clients = 200;
+        int facilities = 1_000;
+        int hotFacilities = 4;
+        int incrementWeight = 40;
+        int decrementWeight = 40;
+        int nearestWeight = 15;
+        int listWeight = 5;
+        String mongoUri = System.getenv("MONGO_URI");
+        Double maxP99Millis = null;
+        Double minThroughput = null;
+        List<String> appProperties = new ArrayList<>();
+
+        for (String arg : args) {
+            int equals = arg.indexOf('=');
+            if (equals <= 0) {
+                throw new IllegalArgumentException("Expected key=value: " + arg);
+            }
+            String key = arg.substring(0, equals);
+            String value = arg.substring(equals + 1);
+            if (key.contains(".")) {
+                appProperties.add(arg);
+                continue;
+            }
+            switch (key) {
+                case "duration" -> duration = parseDuration(value);
+                case "warmup" -> warmup = parseDuration(value);
+                case "clients" -> clients = Integer.parseInt(value);
+                case "facilities" -> facilities = Integer.parseInt(value);
+                case "hot-facilities" -> hotFacilities = Integer.parseInt(value);
+                case "increment-weight" -> incrementWeight = Integer.parseInt(value);
+                case "decrement-weight" -> decrementWeight = Integer.parseInt(value);
+                case "nearest-weight" -> nearestWeight = Integer.parseInt(value);
+                case "list-weight" -> listWeight = Integer.parseInt(value);
+                case "mongo-uri" -> mongoUri = value.isEmpty() ? null : value;
+                case "max-p99-ms" -> maxP99Millis = Double.parseDouble(value);
+                case "min-throughput" -> minThroughput = Double.parseDouble(value);
+                default -> throw new IllegalArgumentException("Unknown option: " + key);
+            }
+        }
+        if (clients < 1 || hotFacilities < 1 || facilities < hotFacilities) {
+            throw new IllegalArgumentException("Need clients >= 1 and facilities >= hot-facilities >= 1");
+        }
+        if (incrementWeight + decrementWeight + nearestWeight + listWeight <= 0) {
+            throw new IllegalArgumentException("At least one weight must be positive");
+        }
+        return new LoadTestOptions(duration, warmup, clients, facilities, hotFacilities,
+                incrementWeight, decrementWeight, nearestWeight, listWeight,
+                mongoUri == null || mongoUri.isBlank() ? null : mongoUri, maxP99Millis, minThroughput,
+                List.copyOf(appProperties));
+    }
+
+    /**
+     * Accepts {@code 500ms}, {@code 30s}, {@code 5m} or ISO-8601 such as {@code PT1M}.
+     */
+    static Duration parseDuration(String value) {
+        String lower = value.trim().toLowerCase(Locale.ROOT);
+        if (lower.endsWith("ms")) {
+            return Duration.ofMillis(Long.parseLong(lower.substring(0, lower.length() - 2)));
+        }
+        if (lower.endsWith("s")) {
+            return Duration.ofSeconds(Long.parseLong(lower.substring(0, lower.length() - 1)));
+        }
+        if (lower.endsWith("m")) {
+            return Duration.ofMinutes(Long.parseLong(lower.substring(0, lower.length() - 1)));
+        }
+        return Duration.parse(value.trim());
+    }
+}
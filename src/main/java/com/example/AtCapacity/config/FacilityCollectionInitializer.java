@@ -0,0 +1,73 @@
+package com.example.AtCapacity.config;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.repository.FacilityChangeSequence;
+import com.example.AtCapacity.repository.FacilityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.GeoSpatialIndexType;
+import org.springframework.data.mongodb.core.index.GeospatialIndex;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.data.mongodb.core.index.IndexDefinition;
+import org.springframework.data.mongodb.core.index.IndexOperations;
+import org.springframework.stereotype.Component;
+
+/**
+ * Prepares the facilities collection before the app starts serving requests:
+ * creates the indexes facility queries rely on and migrates older documents.
+ */
+@Component
+public class FacilityCollectionInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(FacilityCollectionInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final FacilityRepository facilityRepository;
+
+    public FacilityCollectionInitializer(MongoTemplate mongoTemplate, FacilityRepository facilityRepository) {
+        this.mongoTemplate = mongoTemplate;
+        this.facilityRepository = facilityRepository;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try {
+            long backfilled = facilityRepository.backfillLocationPoints();
+            if (backfilled > 0) {
+                log.info("Added GeoJSON location.point to {} facilities", backfilled);
+            }
+            long versioned = facilityRepository.backfillVersions();
+            if (versioned > 0) {
+                log.info("Set initial version on {} facilities", versioned);
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not migrate older facility documents; nearest queries and updates may miss them until they are", e);
+        }
+
+        // Each index on its own, so one that cannot be built (e.g. duplicate names) does not hold back the rest
+        IndexOperations indexOps = mongoTemplate.indexOps(Facility.class);
+        ensureIndex(indexOps, "2dsphere location.point",
+                new GeospatialIndex("location.point").typed(GeoSpatialIndexType.GEO_2DSPHERE));
+        ensureIndex(indexOps, "unique name", new Index("name", Sort.Direction.ASC).unique());
+        // Serves owner lookups and the newest change among an owner's facilities for list ETags
+        ensureIndex(indexOps, "owner changeSeq",
+                new Index("owner", Sort.Direction.ASC).on("changeSeq", Sort.Direction.DESC));
+        ensureIndex(indexOps, "type", new Index("type", Sort.Direction.ASC));
+        ensureIndex(indexOps, "changeSeq", new Index("changeSeq", Sort.Direction.ASC));
+        ensureIndex(mongoTemplate.indexOps(FacilityChangeSequence.TOMBSTONES_COLLECTION), "tombstone changeSeq",
+                new Index("changeSeq", Sort.Direction.ASC));
+    }
+
+    private static void ensureIndex(IndexOperations indexOps, String description, IndexDefinition index) {
+        try {
+            indexOps.ensureIndex(index);
+        } catch (DataAccessException e) {
+            log.warn("Could not create the {} index; queries using it may be slow or fail until it is",
+                    description, e);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.AtCapacity.config;
+
+import com.example.AtCapacity.model.HistoryResolution;
+import com.example.AtCapacity.model.OccupancyRollup;
+import com.example.AtCapacity.model.OccupancySample;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.index.Index;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Creates the occupancy_samples time-series collection (it cannot be created
+ * implicitly by the first insert), the unique key of the rollups and the TTL index
+ * that expires minute and hour rollups. Rollups written before they carried an
+ * {@code expireAt} are given one here.
+ */
+@Component
+public class OccupancyHistoryCollectionInitializer implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyHistoryCollectionInitializer.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+
+    public OccupancyHistoryCollectionInitializer(MongoTemplate mongoTemplate,
+                                                 @Value("${atcapacity.history.enabled:true}") boolean enabled) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            if (!mongoTemplate.collectionExists(OccupancySample.class)) {
+                mongoTemplate.createCollection(OccupancySample.class);
+                log.info("Created time-series collection {}", mongoTemplate.getCollectionName(OccupancySample.class));
+            }
+            mongoTemplate.indexOps(OccupancyRollup.class).ensureIndex(new Index()
+                    .on("facilityId", Sort.Direction.ASC)
+                    .on("resolution", Sort.Direction.ASC)
+                    .on("bucket", Sort.Direction.ASC)
+                    .unique());
+            mongoTemplate.indexOps(OccupancyRollup.class).ensureIndex(new Index()
+                    .on("expireAt", Sort.Direction.ASC)
+                    .expire(Duration.ZERO));
+            for (HistoryResolution resolution : HistoryResolution.values()) {
+                resolution.getRetention().ifPresent(retention -> stampExpiry(resolution, retention));
+            }
+        } catch (DataAccessException e) {
+            log.warn("Could not prepare the occupancy history collections; history may be missing", e);
+        }
+    }
+
+    private void stampExpiry(HistoryResolution resolution, Duration retention) {
+        long keepMillis = resolution.getBucketSize().plus(retention).toMillis();
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(OccupancyRollup.class)).updateMany(
+                new Document("resolution", resolution.name()).append("expireAt", new Document("$exists", false)),
+                List.of(new Document("$set", new Document("expireAt",
+                        new Document("$add", List.of("$bucket", keepMillis))))));
+    }
+}
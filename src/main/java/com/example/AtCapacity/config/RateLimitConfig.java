@@ -0,0 +1,26 @@
+package com.example.AtCapacity.config;
+
+import com.example.AtCapacity.security.WriteRateLimitInterceptor;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+
+@Configuration
+@Profile("!reactive")
+public class RateLimitConfig {
+
+    @Bean
+    public WebMvcConfigurer rateLimitConfigurer(WriteRateLimitInterceptor interceptor) {
+        return new WebMvcConfigurer() {
+            @Override
+            public void addInterceptors(InterceptorRegistry registry) {
+                registry.addInterceptor(interceptor)
+                        .addPathPatterns("/api/facilities/**")
+                        // A POST, but only a read
+                        .excludePathPatterns("/api/facilities/nearest/batch");
+            }
+        };
+    }
+}
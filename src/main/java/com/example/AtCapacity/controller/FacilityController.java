@@ -1,90 +1,278 @@
 package com.example.AtCapacity.controller;
 
 import com.example.AtCapacity.model.Facility;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.example.AtCapacity.model.FacilitySummary;
 import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.HistoryResolution;
+import com.example.AtCapacity.security.WriteRateLimits;
+import com.example.AtCapacity.service.FacilityCacheStats;
+import com.example.AtCapacity.service.FacilityChanges;
 import com.example.AtCapacity.service.FacilityService;
+import com.example.AtCapacity.service.FacilityUpdateStream;
+import com.example.AtCapacity.service.NearestQuery;
+import com.example.AtCapacity.service.OccupancyEvent;
+import com.example.AtCapacity.service.OccupancyHistoryService;
+import com.example.AtCapacity.service.PopularTimes;
+import com.example.AtCapacity.service.PopularTimesService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 /**
  * REST controller for managing facilities.
  * Provides endpoints for CRUD operations and specialized facility queries.
  */
 @RestController
+@Profile("!reactive")
 @RequestMapping("/api/facilities")
 public class FacilityController {
 
     private final FacilityService facilityService;
+    private final FacilityUpdateStream facilityUpdateStream;
+    private final OccupancyHistoryService occupancyHistoryService;
+    private final PopularTimesService popularTimesService;
+    private final WriteRateLimits writeRateLimits;
+    /** Writers for streamed arrays; flushing after every element would defeat output buffering */
+    private final Map<FacilityEncoding, ObjectWriter> streamWriters = new EnumMap<>(FacilityEncoding.class);
+    /** Occupancy not yet flushed carries no change sequence, so lists may be reused only this long unchecked */
+    private final CacheControl listCacheControl;
 
     @Autowired
-    public FacilityController(FacilityService facilityService) {
+    public FacilityController(FacilityService facilityService, FacilityUpdateStream facilityUpdateStream,
+                              OccupancyHistoryService occupancyHistoryService,
+                              PopularTimesService popularTimesService, WriteRateLimits writeRateLimits,
+                              ObjectMapper objectMapper,
+                              @Value("${atcapacity.cache.occupancy-max-staleness-ms:2000}") long maxStalenessMs) {
         this.facilityService = facilityService;
+        this.facilityUpdateStream = facilityUpdateStream;
+        this.occupancyHistoryService = occupancyHistoryService;
+        this.popularTimesService = popularTimesService;
+        this.writeRateLimits = writeRateLimits;
+        for (FacilityEncoding encoding : FacilityEncoding.values()) {
+            streamWriters.put(encoding, encoding.mapper(objectMapper).writer()
+                    .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE));
+        }
+        this.listCacheControl = CacheControl.maxAge(Duration.ofMillis(maxStalenessMs));
     }
 
     /**
      * Retrieves all facilities.
+     * The array is written element by element straight from a database cursor,
+     * so memory use stays flat however many facilities exist. JSON by default;
+     * CBOR or Smile if the Accept header asks for application/cbor or
+     * application/x-jackson-smile; 406 if it accepts none of the three.
+     * Unless {@code openNow} is set, the response carries a collection ETag and
+     * If-None-Match is answered with 304 before any facility is read; the ETag moves
+     * with persisted writes on any instance, and Cache-Control max-age bounds how long
+     * occupancy not yet written may go unchecked.
+     * @param view optional "summary" to return only id, name and occupancy fields
+     * @param openNow true to return only facilities open right now
      * @return list of all facilities in the system
      */
     @GetMapping
-    public ResponseEntity<List<Facility>> getAllFacilities() {
-        return ResponseEntity.ok(facilityService.getAllFacilities());
+    public ResponseEntity<StreamingResponseBody> getAllFacilities(
+            @RequestParam(required = false) String view,
+            @RequestParam(defaultValue = "false") boolean openNow,
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            WebRequest request) {
+        boolean summary = isSummary(view);
+        FacilityEncoding encoding = FacilityEncoding.negotiate(accept);
+        // Which facilities are open changes with the clock, not with writes
+        String eTag = openNow ? null
+                : encoding.eTag(FacilityETags.of(facilityService.getCollectionVersion(null), summary));
+        if (eTag != null && request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(listCacheControl)
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        ObjectWriter writer = streamWriters.get(encoding);
+        StreamingResponseBody body = out -> {
+            try (Stream<?> facilities = summary
+                         ? facilityService.streamAllFacilitySummaries(openNow)
+                         : facilityService.streamAllFacilities(openNow);
+                 JsonGenerator generator = writer.createGenerator(out)) {
+                generator.writeStartArray();
+                Iterator<?> iterator = facilities.iterator();
+                while (iterator.hasNext()) {
+                    writer.writeValue(generator, iterator.next());
+                }
+                generator.writeEndArray();
+            }
+        };
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+                .contentType(encoding.mediaType())
+                .varyBy(HttpHeaders.ACCEPT);
+        if (eTag != null) {
+            response.eTag(eTag).cacheControl(listCacheControl);
+        }
+        return response.body(body);
+    }
+
+    /**
+     * Returns only what changed since the client's last poll, instead of the whole list.
+     * Start without {@code since} to learn the current sequence, fetch the list, then
+     * poll with the sequence of each response, on any instance. When {@code resync} is
+     * true the sequence is unknown (e.g. from before the counter was reset) and the
+     * client must fetch the list again.
+     * @param since sequence from the previous response
+     * @param view optional "summary" to return only id, name and occupancy fields
+     * @return changed facilities and tombstones of deleted ones, with the sequence to poll from next
+     */
+    @GetMapping("/changes")
+    public ResponseEntity<FacilityChanges> getChanges(@RequestParam(required = false) Long since,
+                                                      @RequestParam(required = false) String view) {
+        return ResponseEntity.ok(facilityService.getChangesSince(since, isSummary(view)));
+    }
+
+    /**
+     * Retrieves facilities one page at a time, ordered by ID.
+     * @param after cursor from the previous page's nextCursor; omit for the first page
+     * @param limit page size (default 50, at most 500)
+     * @return the page and the cursor for the next one, or 400 if the limit is out of range
+     */
+    @GetMapping("/page")
+    public ResponseEntity<?> getFacilitiesPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        try {
+            return ResponseEntity.ok(facilityService.getFacilitiesPage(after, limit));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Streams facility changes as Server-Sent Events, at most one per facility per tick.
+     * Event names are created, updated, deleted and occupancy; data is the facility.
+     * @param id optional facility IDs to watch (repeatable)
+     * @param owner optional owner filter
+     * @param type optional facility type filter
+     * @return an open event stream
+     */
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamFacilityUpdates(
+            @RequestParam(required = false) List<String> id,
+            @RequestParam(required = false) String owner,
+            @RequestParam(required = false) FacilityType type) {
+        return facilityUpdateStream.subscribe(id == null ? new HashSet<>() : new HashSet<>(id), owner, type);
     }
 
     /**
      * Retrieves a facility by its unique identifier.
      * @param id the facility's MongoDB ID
-     * @return the facility if found, or 404 if not found
+     * @param view optional "summary" to return only id, name and occupancy fields
+     * @return the facility with its ETag, 304 if it matches If-None-Match, or 404 if not found
      */
     @GetMapping("/{id}")
-    public ResponseEntity<Facility> getFacilityById(@PathVariable String id) {
-        Optional<Facility> facility = facilityService.getFacilityById(id);
-        return facility.map(ResponseEntity::ok)
-                .orElseGet(() -> ResponseEntity.notFound().build());
+    public ResponseEntity<?> getFacilityById(@PathVariable String id, @RequestParam(required = false) String view,
+                                             @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return withETag(facilityService.getFacilityById(id), isSummary(view), FacilityEncoding.negotiate(accept));
+    }
+
+    /**
+     * Retrieves a facility's occupancy history from pre-aggregated rollups.
+     * @param id facility ID
+     * @param from start of the range (ISO-8601); defaults to 24 hours before {@code to}
+     * @param to end of the range (ISO-8601, exclusive); defaults to now
+     * @param resolution MINUTE, HOUR or DAY; defaults to the finest that fits the range
+     * @return min, max and average occupancy per bucket, or 400 if the range is invalid or too fine
+     */
+    @GetMapping("/{id}/history")
+    public ResponseEntity<?> getOccupancyHistory(
+            @PathVariable String id,
+            @RequestParam(required = false) Instant from,
+            @RequestParam(required = false) Instant to,
+            @RequestParam(required = false) HistoryResolution resolution) {
+        try {
+            return ResponseEntity.ok(occupancyHistoryService.getHistory(id, from, to, resolution));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    /**
+     * Reports how busy a facility usually is at each hour of the week, from an
+     * in-memory histogram that favours recent weeks.
+     * @param id facility ID
+     * @return typical occupancy percentage per day and hour, or 404 if the facility does not exist
+     */
+    @GetMapping("/{id}/popular-times")
+    public ResponseEntity<PopularTimes> getPopularTimes(@PathVariable String id) {
+        if (facilityService.getFacilityById(id).isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        return ResponseEntity.ok(popularTimesService.getPopularTimes(id));
     }
 
     /**
      * Retrieves a facility by its name.
      * @param name unique name of the facility
-     * @return the facility if found, or 404 if not found
+     * @return the facility with its ETag, 304 if it matches If-None-Match, or 404 if not found
      */
-    @GetMapping
-    public ResponseEntity<Facility> getFacilityByName(@RequestParam String name) {
-        Optional<Facility> facility = facilityService.getFacilityByName(name);
-    return facility.map(ResponseEntity::ok)
-            .orElseGet(() -> ResponseEntity.notFound().build());
+    @GetMapping(params = "name")
+    public ResponseEntity<?> getFacilityByName(@RequestParam String name,
+                                               @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
+        return withETag(facilityService.getFacilityByName(name), false, FacilityEncoding.negotiate(accept));
     }
 
 
     /**
      * Creates a new facility.
      * @param facility facility details in request body
-     * @return created facility with generated ID
+     * @return created facility with generated ID, or 400 if the hours cannot be parsed
      */
     @PostMapping
-    public ResponseEntity<Facility> createFacility(@RequestBody Facility facility) {
-        Facility savedFacility = facilityService.createFacility(facility);
-        return ResponseEntity.status(HttpStatus.CREATED).body(savedFacility);
+    public ResponseEntity<?> createFacility(@RequestBody Facility facility) {
+        try {
+            Facility savedFacility = facilityService.createFacility(facility);
+            return ResponseEntity.status(HttpStatus.CREATED).body(savedFacility);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
     }
 
     /**
      * Updates an existing facility by ID.
      * @param id facility ID to update
      * @param facility updated facility details
-     * @return updated facility or 404 if not found
+     * @param ifMatch optional ETag from a previous read; the update applies only if the facility was not
+     *                edited since (occupancy changes do not count)
+     * @return updated facility with its new ETag, 404 if not found, 400 if the hours cannot be parsed,
+     *         or 412 if the facility was edited since the If-Match ETag was issued
      */
     @PutMapping("/{id}")
-    public ResponseEntity<Facility> updateFacility(@PathVariable String id, @RequestBody Facility facility) {
+    public ResponseEntity<?> updateFacility(@PathVariable String id, @RequestBody Facility facility,
+                                            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         Optional<Facility> existingFacility = facilityService.getFacilityById(id);
         
         if (existingFacility.isPresent()) {
             facility.setId(id);
-            facilityService.updateFacility(facility);
-            return ResponseEntity.ok(facility);
+            return conditionalUpdate(facility, ifMatch, FacilityEncoding.negotiate(accept));
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -94,16 +282,20 @@ public class FacilityController {
      * Updates an existing facility by name.
      * @param name facility name to update
      * @param facility updated facility details
-     * @return updated facility or 404 if not found
+     * @param ifMatch optional ETag from a previous read; the update applies only if the facility was not
+     *                edited since (occupancy changes do not count)
+     * @return updated facility with its new ETag, 404 if not found, 400 if the hours cannot be parsed,
+     *         or 412 if the facility was edited since the If-Match ETag was issued
      */
     @PutMapping("/by-name/{name}")
-    public ResponseEntity<Facility> updateFacilityByName(@PathVariable String name, @RequestBody Facility facility) {
+    public ResponseEntity<?> updateFacilityByName(@PathVariable String name, @RequestBody Facility facility,
+                                                  @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+                                                  @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept) {
         Optional<Facility> existingFacility = facilityService.getFacilityByName(name);
         
         if (existingFacility.isPresent()) {
             facility.setId(existingFacility.get().getId()); // Preserve the original ID
-            facilityService.updateFacility(facility);
-            return ResponseEntity.ok(facility);
+            return conditionalUpdate(facility, ifMatch, FacilityEncoding.negotiate(accept));
         } else {
             return ResponseEntity.notFound().build();
         }
@@ -112,64 +304,77 @@ public class FacilityController {
     /**
      * Increments facility occupancy by ID.
      * @param id facility ID
-     * @return success message or error if at capacity/not found
+     * @return message with the new occupancy, or error if at capacity/not found
      */
     @PostMapping("/{id}/increment")
     public ResponseEntity<String> incrementOccupancy(@PathVariable String id) {
-        boolean incremented = facilityService.incrementOccupancy(id);
-        
-        if (incremented) {
-            return ResponseEntity.ok("Occupancy incremented successfully");
-        } else {
-            return ResponseEntity.badRequest().body("Could not increment occupancy. Facility may be at capacity or not found.");
-        }
+        return facilityService.incrementOccupancy(id)
+                .map(occupancy -> ResponseEntity.ok("Occupancy incremented successfully. Current occupancy: " + occupancy))
+                .orElseGet(() -> ResponseEntity.badRequest().body("Could not increment occupancy. Facility may be at capacity or not found."));
     }
 
     /**
      * Increments facility occupancy by name.
      * @param name facility name
-     * @return success message or error if at capacity/not found
+     * @return message with the new occupancy, or error if at capacity/not found
      */
-    @PostMapping("/{name}/increment")
+    @PostMapping("/by-name/{name}/increment")
     public ResponseEntity<String> incrementOccupancyByName(@PathVariable String name) {
-        boolean incremented = facilityService.incrementOccupancyByName(name);
-        
-        if (incremented) {
-            return ResponseEntity.ok("Occupancy incremented successfully");
-        } else {
-            return ResponseEntity.badRequest().body("Could not increment occupancy. Facility may be at capacity or not found.");
-        }
+        return facilityService.incrementOccupancyByName(name)
+                .map(occupancy -> ResponseEntity.ok("Occupancy incremented successfully. Current occupancy: " + occupancy))
+                .orElseGet(() -> ResponseEntity.badRequest().body("Could not increment occupancy. Facility may be at capacity or not found."));
     }
 
     /**
      * Decrements facility occupancy by ID.
      * @param id facility ID
-     * @return success message or error if empty/not found
+     * @return message with the new occupancy, or error if empty/not found
      */
     @PostMapping("/{id}/decrement")
     public ResponseEntity<String> decrementOccupancy(@PathVariable String id) {
-        boolean decremented = facilityService.decrementOccupancy(id);
-        
-        if (decremented) {
-            return ResponseEntity.ok("Occupancy decremented successfully");
-        } else {
-            return ResponseEntity.badRequest().body("Could not decrement occupancy. Facility may be empty or not found.");
-        }
+        return facilityService.decrementOccupancy(id)
+                .map(occupancy -> ResponseEntity.ok("Occupancy decremented successfully. Current occupancy: " + occupancy))
+                .orElseGet(() -> ResponseEntity.badRequest().body("Could not decrement occupancy. Facility may be empty or not found."));
     }
 
     /**
      * Decrements facility occupancy by name.
      * @param name facility name
-     * @return success message or error if empty/not found
+     * @return message with the new occupancy, or error if empty/not found
      */
-    @PostMapping("/{name}/decrement")
+    @PostMapping("/by-name/{name}/decrement")
     public ResponseEntity<String> decrementOccupancyByName(@PathVariable String name) {
-        boolean decremented = facilityService.decrementOccupancyByName(name);
-        
-        if (decremented) {
-            return ResponseEntity.ok("Occupancy decremented successfully");
-        } else {
-            return ResponseEntity.badRequest().body("Could not decrement occupancy. Facility may be empty or not found.");
+        return facilityService.decrementOccupancyByName(name)
+                .map(occupancy -> ResponseEntity.ok("Occupancy decremented successfully. Current occupancy: " + occupancy))
+                .orElseGet(() -> ResponseEntity.badRequest().body("Could not decrement occupancy. Facility may be empty or not found."));
+    }
+
+    /**
+     * Applies a batch of turnstile entry/exit events in one round trip.
+     * Events are summed per facility and each net change is clamped to [0, capacity].
+     * With rate limiting on, the batch costs one write permit of each facility it names.
+     * @param events events, each with a facilityId or name and a delta
+     * @return one result per facility, 400 if the batch is too large, an event names no
+     *         facility or its delta is out of range, or 429 if a facility it names is over
+     *         its write limit
+     */
+    @PostMapping("/occupancy/events")
+    public ResponseEntity<?> applyOccupancyEvents(@RequestBody List<OccupancyEvent> events, WebRequest request) {
+        // Set only when rate limiting admitted the request
+        Object clientKey = request.getAttribute(WriteRateLimits.CLIENT_KEY_ATTRIBUTE, RequestAttributes.SCOPE_REQUEST);
+        if (clientKey != null && events.size() <= FacilityService.MAX_OCCUPANCY_EVENTS) {
+            long wait = writeRateLimits.tryAcquireFacilities((String) clientKey,
+                    facilityService.getFacilityIds(events));
+            if (wait > 0) {
+                return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS)
+                        .header(HttpHeaders.RETRY_AFTER, Long.toString(WriteRateLimits.retryAfterSeconds(wait)))
+                        .body("Too many writes; retry later");
+            }
+        }
+        try {
+            return ResponseEntity.ok(facilityService.applyOccupancyEvents(events));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
         }
     }
 
@@ -189,7 +394,7 @@ public class FacilityController {
      * @param name facility name to delete
      * @return no content on success
      */
-    @DeleteMapping("/{name}")
+    @DeleteMapping("/by-name/{name}")
     public ResponseEntity<Void> deleteFacilityByName(@PathVariable String name) {
         facilityService.deleteFacilityByName(name);
         return ResponseEntity.noContent().build();
@@ -198,27 +403,132 @@ public class FacilityController {
     /**
      * Retrieves all facilities owned by a specific owner.
      * @param owner owner's identifier
-     * @return list of facilities owned by the specified owner
+     * @param view optional "summary" to return only id, name and occupancy fields
+     * @return list of facilities owned by the specified owner with a collection ETag and
+     *         Cache-Control max-age, or 304 if it matches If-None-Match
      */
     @GetMapping("/owner/{owner}")
-    public ResponseEntity<List<Facility>> getFacilitiesByOwner(@PathVariable String owner) {
-        List<Facility> facilities = facilityService.getFacilitiesByOwner(owner);
-        return ResponseEntity.ok(facilities);
+    public ResponseEntity<List<?>> getFacilitiesByOwner(@PathVariable String owner,
+                                                        @RequestParam(required = false) String view,
+                                                        @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+                                                        WebRequest request) {
+        boolean summary = isSummary(view);
+        FacilityEncoding encoding = FacilityEncoding.negotiate(accept);
+        String eTag = encoding.eTag(FacilityETags.of(facilityService.getCollectionVersion(owner), summary));
+        if (request.checkNotModified(eTag)) {
+            return ResponseEntity.status(HttpStatus.NOT_MODIFIED).eTag(eTag).cacheControl(listCacheControl)
+                    .varyBy(HttpHeaders.ACCEPT).build();
+        }
+        List<?> facilities = summary
+                ? facilityService.getFacilitySummariesByOwner(owner)
+                : facilityService.getFacilitiesByOwner(owner);
+        return ResponseEntity.ok()
+                .contentType(encoding.mediaType())
+                .eTag(eTag)
+                .cacheControl(listCacheControl)
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(facilities);
+    }
+
+    /**
+     * Reports hit, miss and eviction statistics of the facility lookup cache.
+     * @return cache statistics since startup
+     */
+    @GetMapping("/cache/stats")
+    public ResponseEntity<FacilityCacheStats> getCacheStats() {
+        return ResponseEntity.ok(facilityService.getCacheStats());
     }
 
     /**
      * Finds the 4 nearest facilities to given coordinates.
+     * Like the other endpoints, answers in CBOR or Smile when the Accept header asks for it.
      * @param latitude location latitude
      * @param longitude location longitude
      * @param type optional facility type filter
-     * @return list of up to 4 nearest facilities, optionally filtered by type
+     * @param view optional "summary" to return only id, name, occupancy and distance fields
+     * @param openNow true to consider only facilities open right now
+     * @return list of up to 4 nearest facilities with their distance in kilometers, optionally filtered by type
      */
     @GetMapping("/nearest")
-    public ResponseEntity<List<Facility>> getNearestFacilities(
+    public ResponseEntity<List<?>> getNearestFacilities(
             @RequestParam double latitude,
             @RequestParam double longitude,
-            @RequestParam(required = false) FacilityType type) {
-        List<Facility> nearestFacilities = facilityService.findNearestFacilities(latitude, longitude, 4, type);
+            @RequestParam(required = false) FacilityType type,
+            @RequestParam(required = false) String view,
+            @RequestParam(defaultValue = "false") boolean openNow) {
+        List<?> nearestFacilities = isSummary(view)
+                ? facilityService.findNearestFacilitySummaries(latitude, longitude, 4, type, openNow)
+                : facilityService.findNearestFacilities(latitude, longitude, 4, type, openNow);
         return ResponseEntity.ok(nearestFacilities);
     }
-}
\ No newline at end of file
+
+    /**
+     * Finds the nearest facilities for many origins in one call.
+     * @param request origins, each with coordinates, optional type and k (default 4)
+     * @return one list of facilities with distances per origin, in request order,
+     *         or 400 if the batch is too large or a k is out of range
+     */
+    @PostMapping("/nearest/batch")
+    public ResponseEntity<?> getNearestFacilitiesBatch(@RequestBody NearestBatchRequest request) {
+        List<NearestQuery> origins = request.getOrigins() == null ? List.of() : request.getOrigins();
+        try {
+            return ResponseEntity.ok(facilityService.findNearestFacilities(origins));
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+    }
+
+    private static boolean isSummary(String view) {
+        return "summary".equalsIgnoreCase(view);
+    }
+
+    /**
+     * 200 with the facility's ETag, or 404. An If-None-Match hit is turned into a
+     * 304 by Spring from the ETag header, so the body is never serialized. The
+     * content type is set explicitly so the converter Spring picks matches the tag.
+     */
+    private static ResponseEntity<?> withETag(Optional<Facility> facility, boolean summary,
+                                              FacilityEncoding encoding) {
+        return facility.<ResponseEntity<?>>map(f -> ResponseEntity.ok()
+                        .contentType(encoding.mediaType())
+                        .eTag(encoding.eTag(FacilityETags.of(f, summary)))
+                        .varyBy(HttpHeaders.ACCEPT)
+                        .body(summary ? FacilitySummary.of(f) : f))
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    /**
+     * Applies an update and answers with the new representation, in the negotiated
+     * encoding and with the matching ETag, like the GET handlers.
+     */
+    private ResponseEntity<?> conditionalUpdate(Facility facility, String ifMatch, FacilityEncoding encoding) {
+        Long expectedVersion;
+        try {
+            expectedVersion = FacilityETags.expectedVersion(ifMatch);
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).body(e.getMessage());
+        }
+        try {
+            facilityService.updateFacility(facility, expectedVersion);
+        } catch (OptimisticLockingFailureException e) {
+            return ResponseEntity.status(HttpStatus.PRECONDITION_FAILED).build();
+        } catch (IllegalArgumentException e) {
+            return ResponseEntity.badRequest().body(e.getMessage());
+        }
+        return ResponseEntity.ok()
+                .contentType(encoding.mediaType())
+                .eTag(encoding.eTag(FacilityETags.of(facility, false)))
+                .varyBy(HttpHeaders.ACCEPT)
+                .body(facility);
+    }
+}
+
+/**
+ * Data transfer object for batch nearest-facility requests.
+ */
+class NearestBatchRequest {
+    private List<NearestQuery> origins;
+
+    public List<NearestQuery> getOrigins() { return origins; }
+    public void setOrigins(List<NearestQuery> origins) { this.origins = origins; }
+}
@@ -0,0 +1,65 @@
+package com.example.AtCapacity.controller;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityCollectionVersion;
+
+/**
+ * Strong ETags for facility representations.
+ * <p>
+ * A facility's tag combines its metadata version and version with the occupancy being
+ * served, because the occupancy engine and the lookup cache can serve an occupancy
+ * newer than the stored version. Summaries get their own prefix, since a strong tag
+ * must differ between representations. If-Match is checked against the metadata
+ * version only, so occupancy changes never make an edit fail.
+ */
+final class FacilityETags {
+
+    private static final String SUMMARY_PREFIX = "s";
+    private static final String COLLECTION_PREFIX = "c";
+
+    private FacilityETags() {
+    }
+
+    static String of(Facility facility, boolean summary) {
+        long metadataVersion = facility.getMetadataVersion() == null ? 0 : facility.getMetadataVersion();
+        long version = facility.getVersion() == null ? 0 : facility.getVersion();
+        return quote((summary ? SUMMARY_PREFIX : "") + metadataVersion + "-" + version + "-"
+                + facility.getCurrentOccupancy());
+    }
+
+    static String of(FacilityCollectionVersion collection, boolean summary) {
+        return quote((summary ? SUMMARY_PREFIX : "") + COLLECTION_PREFIX + collection.sequence() + "-"
+                + collection.count());
+    }
+
+    /**
+     * Extracts the metadata version a client expects from an If-Match header.
+     * @return the metadata version, or null if the header is absent or {@code *}
+     * @throws IllegalArgumentException if the header names a weak, collection or malformed tag,
+     *                                  or more than one tag; none of these can match
+     */
+    static Long expectedVersion(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String tag = ifMatch.trim();
+        if (tag.startsWith("W/") || tag.contains(",") || tag.length() < 2
+                || tag.charAt(0) != '"' || tag.charAt(tag.length() - 1) != '"') {
+            throw new IllegalArgumentException("If-Match must be a single strong ETag");
+        }
+        String value = tag.substring(1, tag.length() - 1);
+        if (value.startsWith(SUMMARY_PREFIX)) {
+            value = value.substring(SUMMARY_PREFIX.length());
+        }
+        int dash = value.indexOf('-');
+        try {
+            return Long.parseLong(dash < 0 ? value : value.substring(0, dash));
+        } catch (NumberFormatException e) {
+            throw new IllegalArgumentException("Not a facility ETag: " + ifMatch, e);
+        }
+    }
+
+    private static String quote(String value) {
+        return '"' + value + '"';
+    }
+}
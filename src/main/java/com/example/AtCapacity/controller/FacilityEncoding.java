@@ -0,0 +1,92 @@
+package com.example.AtCapacity.controller;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import com.fasterxml.jackson.dataformat.smile.SmileFactory;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.util.MimeTypeUtils;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Encodings the facility endpoints can produce, chosen from the Accept header.
+ * JSON is the default; CBOR and Smile are the same Jackson data model in binary,
+ * which is smaller and cheaper to write for clients that poll the list often.
+ */
+enum FacilityEncoding {
+
+    JSON(MediaType.APPLICATION_JSON, "", null),
+    CBOR(MediaType.APPLICATION_CBOR, "cbor", CBORFactory::new),
+    SMILE(new MediaType("application", "x-jackson-smile"), "smile", SmileFactory::new);
+
+    private final MediaType mediaType;
+    private final String eTagSuffix;
+    private final Supplier<JsonFactory> factory;
+
+    FacilityEncoding(MediaType mediaType, String eTagSuffix, Supplier<JsonFactory> factory) {
+        this.mediaType = mediaType;
+        this.eTagSuffix = eTagSuffix;
+        this.factory = factory;
+    }
+
+    MediaType mediaType() {
+        return mediaType;
+    }
+
+    /**
+     * The JSON mapper's configuration over this encoding's factory.
+     */
+    ObjectMapper mapper(ObjectMapper json) {
+        return factory == null ? json : json.copyWith(factory.get());
+    }
+
+    /**
+     * A strong ETag has to differ between representations, so binary encodings extend the tag.
+     */
+    String eTag(String tag) {
+        return eTagSuffix.isEmpty() ? tag : tag.substring(0, tag.length() - 1) + "-" + eTagSuffix + '"';
+    }
+
+    /**
+     * Picks the encoding for the client's most preferred acceptable media type.
+     * Wildcards match JSON first, so an absent header or {@code *}{@code /*} gets JSON.
+     * @throws ResponseStatusException 406 if the header is malformed or accepts none of the encodings
+     */
+    static FacilityEncoding negotiate(String accept) {
+        if (accept == null || accept.isBlank()) {
+            return JSON;
+        }
+        List<MediaType> accepted;
+        try {
+            accepted = new ArrayList<>(MediaType.parseMediaTypes(accept));
+        } catch (InvalidMediaTypeException e) {
+            throw notAcceptable();
+        }
+        MimeTypeUtils.sortBySpecificity(accepted);
+        for (MediaType type : accepted) {
+            if (type.getQualityValue() == 0) {
+                continue;
+            }
+            for (FacilityEncoding encoding : values()) {
+                if (type.isCompatibleWith(encoding.mediaType)) {
+                    return encoding;
+                }
+            }
+        }
+        throw notAcceptable();
+    }
+
+    private static ResponseStatusException notAcceptable() {
+        return new ResponseStatusException(HttpStatus.NOT_ACCEPTABLE, "Acceptable types: "
+                + Arrays.stream(values()).map(encoding -> encoding.mediaType.toString())
+                        .collect(Collectors.joining(", ")));
+    }
+}
@@ -0,0 +1,186 @@
+package com.example.AtCapacity.controller;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.service.ReactiveFacilityService;
+import com.example.AtCapacity.service.ReactiveFacilityUpdateStream;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.HashSet;
+import java.util.List;
+
+/**
+ * WebFlux version of {@link FacilityController}, active with the "reactive" profile.
+ * Same paths and responses, served on a small fixed set of event-loop threads;
+ * list responses are Flux streams whose demand reaches the MongoDB cursor.
+ * The batch nearest and cache statistics endpoints exist only on the blocking stack.
+ */
+@RestController
+@Profile("reactive")
+@RequestMapping("/api/facilities")
+public class ReactiveFacilityController {
+
+    private final ReactiveFacilityService facilityService;
+    private final ReactiveFacilityUpdateStream facilityUpdateStream;
+
+    public ReactiveFacilityController(ReactiveFacilityService facilityService,
+                                      ReactiveFacilityUpdateStream facilityUpdateStream) {
+        this.facilityService = facilityService;
+        this.facilityUpdateStream = facilityUpdateStream;
+    }
+
+    /**
+     * Retrieves all facilities. With Accept: application/x-ndjson each facility is
+     * written as it arrives from the cursor, one JSON document per line.
+     * @param view optional "summary" to return only id, name and occupancy fields
+     */
+    @GetMapping(produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    public Flux<?> getAllFacilities(@RequestParam(required = false) String view) {
+        return isSummary(view)
+                ? facilityService.streamAllFacilitySummaries()
+                : facilityService.streamAllFacilities();
+    }
+
+    /**
+     * Retrieves facilities one page at a time, ordered by ID.
+     * @return the page and the cursor for the next one, or 400 if the limit is out of range
+     */
+    @GetMapping("/page")
+    public Mono<ResponseEntity<?>> getFacilitiesPage(
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int limit) {
+        return facilityService.getFacilitiesPage(after, limit)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    /**
+     * Streams facility changes as Server-Sent Events, at most one per facility per tick.
+     */
+    @GetMapping(path = "/live", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public Flux<ServerSentEvent<Facility>> streamFacilityUpdates(
+            @RequestParam(required = false) List<String> id,
+            @RequestParam(required = false) String owner,
+            @RequestParam(required = false) FacilityType type) {
+        return facilityUpdateStream.subscribe(id == null ? new HashSet<>() : new HashSet<>(id), owner, type);
+    }
+
+    @GetMapping("/{id}")
+    public Mono<ResponseEntity<?>> getFacilityById(@PathVariable String id,
+                                                   @RequestParam(required = false) String view) {
+        Mono<?> facility = isSummary(view)
+                ? facilityService.getFacilitySummaryById(id)
+                : facilityService.getFacilityById(id);
+        return facility.<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @GetMapping(params = "name")
+    public Mono<ResponseEntity<Facility>> getFacilityByName(@RequestParam String name) {
+        return facilityService.getFacilityByName(name)
+                .map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build());
+    }
+
+    @PostMapping
+    public Mono<ResponseEntity<?>> createFacility(@RequestBody Facility facility) {
+        return badRequestOnInvalid(facilityService.createFacility(facility)
+                .map(saved -> ResponseEntity.status(HttpStatus.CREATED).body(saved)));
+    }
+
+    @PutMapping("/{id}")
+    public Mono<ResponseEntity<?>> updateFacility(@PathVariable String id, @RequestBody Facility facility) {
+        return badRequestOnInvalid(facilityService.updateFacility(id, facility)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build()));
+    }
+
+    @PutMapping("/by-name/{name}")
+    public Mono<ResponseEntity<?>> updateFacilityByName(@PathVariable String name,
+                                                        @RequestBody Facility facility) {
+        return badRequestOnInvalid(facilityService.updateFacilityByName(name, facility)
+                .<ResponseEntity<?>>map(ResponseEntity::ok)
+                .defaultIfEmpty(ResponseEntity.notFound().build()));
+    }
+
+    private static Mono<ResponseEntity<?>> badRequestOnInvalid(Mono<? extends ResponseEntity<?>> response) {
+        return response.<ResponseEntity<?>>map(entity -> entity)
+                .onErrorResume(IllegalArgumentException.class,
+                        e -> Mono.just(ResponseEntity.badRequest().body(e.getMessage())));
+    }
+
+    @PostMapping("/{id}/increment")
+    public Mono<ResponseEntity<String>> incrementOccupancy(@PathVariable String id) {
+        return incremented(facilityService.incrementOccupancy(id));
+    }
+
+    @PostMapping("/by-name/{name}/increment")
+    public Mono<ResponseEntity<String>> incrementOccupancyByName(@PathVariable String name) {
+        return incremented(facilityService.incrementOccupancyByName(name));
+    }
+
+    @PostMapping("/{id}/decrement")
+    public Mono<ResponseEntity<String>> decrementOccupancy(@PathVariable String id) {
+        return decremented(facilityService.decrementOccupancy(id));
+    }
+
+    @PostMapping("/by-name/{name}/decrement")
+    public Mono<ResponseEntity<String>> decrementOccupancyByName(@PathVariable String name) {
+        return decremented(facilityService.decrementOccupancyByName(name));
+    }
+
+    @DeleteMapping("/{id}")
+    public Mono<ResponseEntity<Void>> deleteFacility(@PathVariable String id) {
+        return facilityService.deleteFacility(id).thenReturn(ResponseEntity.noContent().<Void>build());
+    }
+
+    @DeleteMapping("/by-name/{name}")
+    public Mono<ResponseEntity<Void>> deleteFacilityByName(@PathVariable String name) {
+        return facilityService.deleteFacilityByName(name).thenReturn(ResponseEntity.noContent().<Void>build());
+    }
+
+    @GetMapping("/owner/{owner}")
+    public Flux<?> getFacilitiesByOwner(@PathVariable String owner, @RequestParam(required = false) String view) {
+        return isSummary(view)
+                ? facilityService.getFacilitySummariesByOwner(owner)
+                : facilityService.getFacilitiesByOwner(owner);
+    }
+
+    /**
+     * Finds the 4 nearest facilities to given coordinates, each with its distance in kilometers.
+     */
+    @GetMapping("/nearest")
+    public Flux<?> getNearestFacilities(
+            @RequestParam double latitude,
+            @RequestParam double longitude,
+            @RequestParam(required = false) FacilityType type,
+            @RequestParam(required = false) String view) {
+        return isSummary(view)
+                ? facilityService.findNearestFacilitySummaries(latitude, longitude, 4, type)
+                : facilityService.findNearestFacilities(latitude, longitude, 4, type);
+    }
+
+    private static Mono<ResponseEntity<String>> incremented(Mono<Integer> occupancy) {
+        return occupancy
+                .map(value -> ResponseEntity.ok("Occupancy incremented successfully. Current occupancy: " + value))
+                .defaultIfEmpty(ResponseEntity.badRequest().body("Could not increment occupancy. Facility may be at capacity or not found."));
+    }
+
+    private static Mono<ResponseEntity<String>> decremented(Mono<Integer> occupancy) {
+        return occupancy
+                .map(value -> ResponseEntity.ok("Occupancy decremented successfully. Current occupancy: " + value))
+                .defaultIfEmpty(ResponseEntity.badRequest().body("Could not decrement occupancy. Facility may be empty or not found."));
+    }
+
+    private static boolean isSummary(String view) {
+        return "summary".equalsIgnoreCase(view);
+    }
+}
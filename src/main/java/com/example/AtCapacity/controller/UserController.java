@@ -1,11 +1,18 @@
 package com.example.AtCapacity.controller;
 
-import com.example.AtCapacity.model.User;
+import com.example.AtCapacity.security.TokenService;
+import com.example.AtCapacity.service.HashingOverloadedException;
 import com.example.AtCapacity.service.UserService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import java.time.Instant;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
 /**
  * REST controller for managing user authentication.
  * Provides endpoints for user registration and login.
@@ -14,44 +21,71 @@ import org.springframework.web.bind.annotation.*;
 @RequestMapping("/api/users")
 public class UserController {
     private final UserService userService;
+    private final TokenService tokenService;
 
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, TokenService tokenService) {
         this.userService = userService;
+        this.tokenService = tokenService;
     }
 
     /**
      * Registers a new user in the system.
+     * Hashing runs off the servlet thread; the response is written when it completes.
      * @param request registration details containing username and password
-     * @return 200 OK if successful, 400 Bad Request if username exists
+     * @return 200 OK if successful, 400 Bad Request if username exists,
+     *         503 if too many passwords are being hashed
      */
     @PostMapping("/register")
-    public ResponseEntity<?> registerUser(@RequestBody RegisterRequest request) {
-        try {
-            User user = userService.registerUser(request.getUsername(), request.getPassword());
-            return ResponseEntity.ok().build();
-        } catch (RuntimeException e) {
-            return ResponseEntity.badRequest().body(e.getMessage());
-        }
+    public CompletableFuture<ResponseEntity<?>> registerUser(@RequestBody RegisterRequest request) {
+        return userService.registerUser(request.getUsername(), request.getPassword())
+            .<ResponseEntity<?>>thenApply(user -> ResponseEntity.ok().build())
+            .exceptionally(error -> {
+                Throwable cause = unwrap(error);
+                if (cause instanceof HashingOverloadedException) {
+                    return overloaded(cause);
+                }
+                return ResponseEntity.badRequest().body(cause.getMessage());
+            });
     }
 
     /**
-     * Authenticates a user's credentials.
+     * Authenticates a user's credentials and issues a session token.
+     * The token is sent as "Authorization: Bearer ..." on facility write requests,
+     * so the password is only checked here.
      * @param request login credentials containing username and password
-     * @return 200 OK if authenticated, 400 Bad Request if invalid credentials
+     * @return 200 OK with the token if authenticated, 400 Bad Request if invalid credentials,
+     *         503 if too many passwords are being checked
      */
     @PostMapping("/login")
-    public ResponseEntity<?> login(@RequestBody LoginRequest request) {
-        boolean isAuthenticated = userService.authenticateUser(
+    public CompletableFuture<ResponseEntity<?>> login(@RequestBody LoginRequest request) {
+        return userService.authenticate(
             request.getUsername(), 
             request.getPassword()
-        );
-        
-        if (isAuthenticated) {
-            return ResponseEntity.ok().build();
-        } else {
-            return ResponseEntity.badRequest().body("Invalid credentials");
-        }
+        ).<ResponseEntity<?>>thenApply(user -> {
+            if (user.isPresent()) {
+                TokenService.IssuedToken token = tokenService.issue(user.get().getUsername(), user.get().getRole());
+                return ResponseEntity.ok(new LoginResponse(token.token(), token.expiresAt()));
+            } else {
+                return ResponseEntity.badRequest().body("Invalid credentials");
+            }
+        }).exceptionally(error -> {
+            Throwable cause = unwrap(error);
+            if (cause instanceof HashingOverloadedException) {
+                return overloaded(cause);
+            }
+            throw new CompletionException(cause);
+        });
+    }
+
+    private static Throwable unwrap(Throwable error) {
+        return error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+    }
+
+    private static ResponseEntity<?> overloaded(Throwable cause) {
+        return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE)
+            .header(HttpHeaders.RETRY_AFTER, "1")
+            .body(cause.getMessage());
     }
 }
 
@@ -79,4 +113,22 @@ class LoginRequest {
     public void setUsername(String username) { this.username = username; }
     public String getPassword() { return password; }
     public void setPassword(String password) { this.password = password; }
-}
\ No newline at end of file
+}
+
+/**
+ * Data transfer object for successful login responses.
+ */
+class LoginResponse {
+    private final String token;
+    private final String tokenType = "Bearer";
+    private final Instant expiresAt;
+
+    LoginResponse(String token, Instant expiresAt) {
+        this.token = token;
+        this.expiresAt = expiresAt;
+    }
+
+    public String getToken() { return token; }
+    public String getTokenType() { return tokenType; }
+    public Instant getExpiresAt() { return expiresAt; }
+}
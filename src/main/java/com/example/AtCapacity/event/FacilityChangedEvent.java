@@ -0,0 +1,59 @@
+package com.example.AtCapacity.event;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+
+import java.time.Instant;
+import java.util.Set;
+
+/**
+ * Published by FacilityService after every successful facility write, and by the
+ * change-stream listener for writes made by other instances.
+ * @param kind what kind of write happened
+ * @param facilityId ID of the affected facility
+ * @param facility state after the write; for OCCUPANCY changes only id, name, owner, type,
+ *                 currentOccupancy and totalCapacity are guaranteed, for DELETED it is the last known state
+ * @param delta occupancy change for OCCUPANCY events, 0 otherwise
+ * @param timestamp when the write was applied
+ * @param remote true if another instance made the write; such events update local views,
+ *               but side effects the writing instance already performed must not be repeated
+ */
+public record FacilityChangedEvent(Kind kind, String facilityId, Facility facility, int delta, Instant timestamp,
+                                   boolean remote) {
+
+    public enum Kind {
+        CREATED, UPDATED, DELETED, OCCUPANCY
+    }
+
+    public static FacilityChangedEvent of(Kind kind, Facility facility) {
+        return new FacilityChangedEvent(kind, facility.getId(), facility, 0, Instant.now(), false);
+    }
+
+    public static FacilityChangedEvent occupancy(Facility facility, int delta) {
+        return new FacilityChangedEvent(Kind.OCCUPANCY, facility.getId(), facility, delta, Instant.now(), false);
+    }
+
+    /**
+     * A write another instance made, as seen in the change stream. The delta of a
+     * remote occupancy change is not known, so it is 0.
+     */
+    public static FacilityChangedEvent remote(Kind kind, Facility facility, Instant timestamp) {
+        return new FacilityChangedEvent(kind, facility.getId(), facility, 0, timestamp, true);
+    }
+
+    /**
+     * Applies the filters of a live-update subscription.
+     * @param ids facility IDs to accept; empty for all
+     * @param owner owner to accept; null for all
+     * @param type facility type to accept; null for all
+     */
+    public boolean matches(Set<String> ids, String owner, FacilityType type) {
+        if (!ids.isEmpty() && !ids.contains(facilityId)) {
+            return false;
+        }
+        if (owner != null && (facility == null || !owner.equals(facility.getOwner()))) {
+            return false;
+        }
+        return type == null || (facility != null && type == facility.getType());
+    }
+}
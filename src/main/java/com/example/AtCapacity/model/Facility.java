@@ -1,9 +1,13 @@
 package com.example.AtCapacity.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonInclude;
 import org.springframework.data.annotation.Id;
+import org.springframework.data.annotation.Transient;
+import org.springframework.data.annotation.Version;
 import org.springframework.data.mongodb.core.mapping.Document;
 
-import java.time.LocalTime;
+import java.time.ZonedDateTime;
 
 @Document(collection = "facilities")
 public class Facility {
@@ -27,7 +31,7 @@ public class Facility {
     /** Owner/operator of the facility */
     private String owner;
     
-    /** Operating hours in "HH:mm-HH:mm" format (e.g., "06:30-22:00") */
+    /** Operating hours, e.g. "06:30-22:00" or "Mon-Fri 06:00-22:00; Sat,Sun 08:00-20:00"; see {@link OpeningSchedule} */
     private String hours;
     
     /** URL to facility's website or additional information */
@@ -36,6 +40,26 @@ public class Facility {
     /** Type of facility (e.g., GYM, LIBRARY, etc.) */
     private FacilityType type;
 
+    /** Incremented by every write, including occupancy changes; orders writes and guards each save */
+    @Version
+    private Long version;
+
+    /** Incremented by every write except occupancy changes; what an If-Match names */
+    private Long metadataVersion;
+
+    /** Change sequence of the last write, from the counter all instances share; what delta sync compares */
+    private Long changeSeq;
+
+    /** Distance in kilometers from the query point; only set by nearest-facility queries */
+    @Transient
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Double distance;
+
+    /** Compiled form of {@link #hours}, built on first use */
+    @Transient
+    @JsonIgnore
+    private OpeningSchedule schedule;
+
     // Constructors
     public Facility() {
     }
@@ -51,6 +75,27 @@ public class Facility {
         this.type = type;
     }
 
+    /**
+     * Creates a shallow copy, e.g. to attach a different query distance to the same facility.
+     * @param other facility to copy
+     */
+    public Facility(Facility other) {
+        this.id = other.id;
+        this.name = other.name;
+        this.currentOccupancy = other.currentOccupancy;
+        this.totalCapacity = other.totalCapacity;
+        this.location = other.location;
+        this.owner = other.owner;
+        this.hours = other.hours;
+        this.link = other.link;
+        this.type = other.type;
+        this.distance = other.distance;
+        this.version = other.version;
+        this.metadataVersion = other.metadataVersion;
+        this.changeSeq = other.changeSeq;
+        this.schedule = other.schedule;
+    }
+
     // Getters and Setters
     public String getId() {
         return id;
@@ -106,6 +151,20 @@ public class Facility {
 
     public void setHours(String hours) {
         this.hours = hours;
+        this.schedule = null;
+    }
+
+    /**
+     * Returns the opening hours compiled once per instance; invalid or missing hours mean always closed.
+     */
+    @JsonIgnore
+    public OpeningSchedule getSchedule() {
+        OpeningSchedule compiled = schedule;
+        if (compiled == null) {
+            compiled = OpeningSchedule.parseOrClosed(hours);
+            schedule = compiled;
+        }
+        return compiled;
     }
 
     public String getLink() {
@@ -124,6 +183,38 @@ public class Facility {
         this.type = type;
     }
 
+    public Long getVersion() {
+        return version;
+    }
+
+    public void setVersion(Long version) {
+        this.version = version;
+    }
+
+    public Long getMetadataVersion() {
+        return metadataVersion;
+    }
+
+    public void setMetadataVersion(Long metadataVersion) {
+        this.metadataVersion = metadataVersion;
+    }
+
+    public Long getChangeSeq() {
+        return changeSeq;
+    }
+
+    public void setChangeSeq(Long changeSeq) {
+        this.changeSeq = changeSeq;
+    }
+
+    public Double getDistance() {
+        return distance;
+    }
+
+    public void setDistance(Double distance) {
+        this.distance = distance;
+    }
+
     /**
      * Increments the current occupancy if below capacity.
      * @return true if successfully incremented, false if at capacity
@@ -157,31 +248,11 @@ public class Facility {
     }
 
     /**
-     * Checks if the facility is currently open based on operating hours.
-     * Hours must be in "HH:mm-HH:mm" format (e.g., "06:30-22:00")
-     * @return true if current time is within operating hours
+     * Checks if the facility is currently open based on operating hours, in the server's time zone.
+     * @return true if current time is within operating hours; false if hours are missing or invalid
      */
     public boolean isOpen() {
-        if (hours == null || hours.isEmpty()) {
-            return false; // No hours specified
-        }
-
-        // Split the hours into opening and closing times
-        String[] times = hours.split("-");
-        if (times.length != 2) {
-            return false; // Invalid format
-        }
-
-        try {
-            LocalTime openingTime = LocalTime.parse(times[0]); // Parse opening time
-            LocalTime closingTime = LocalTime.parse(times[1]); // Parse closing time
-            LocalTime now = LocalTime.now(); // Get the current time
-
-            // Check if the current time is within the range
-            return !now.isBefore(openingTime) && !now.isAfter(closingTime);
-        } catch (Exception e) {
-            return false; // Return false if there's any parsing error
-        }
+        return getSchedule().isOpenAt(ZonedDateTime.now());
     }
 
     /**
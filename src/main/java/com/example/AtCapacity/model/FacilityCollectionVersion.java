@@ -0,0 +1,10 @@
+package com.example.AtCapacity.model;
+
+/**
+ * Fingerprint of a set of facilities that changes whenever any of them is written,
+ * created or deleted, used to build collection ETags without reading the documents.
+ * @param sequence highest change sequence that touched the set
+ * @param count facilities in the set
+ */
+public record FacilityCollectionVersion(long sequence, long count) {
+}
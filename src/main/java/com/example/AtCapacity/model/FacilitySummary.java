@@ -0,0 +1,33 @@
+package com.example.AtCapacity.model;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import org.springframework.data.annotation.Id;
+
+/**
+ * Lightweight read view of a facility with only what most clients display.
+ * Used as a repository projection, so only these fields are read from MongoDB.
+ * @param id facility ID
+ * @param name facility name
+ * @param currentOccupancy current number of people in the facility
+ * @param totalCapacity maximum capacity of the facility
+ * @param distance distance in kilometers from the query point; only set by nearest-facility queries
+ */
+public record FacilitySummary(
+        @Id String id,
+        String name,
+        int currentOccupancy,
+        int totalCapacity,
+        @JsonInclude(JsonInclude.Include.NON_NULL) Double distance) {
+
+    /** Document fields a summary is built from */
+    public static final String[] FIELDS = {"name", "currentOccupancy", "totalCapacity"};
+
+    public static FacilitySummary of(Facility facility) {
+        return new FacilitySummary(facility.getId(), facility.getName(), facility.getCurrentOccupancy(),
+                facility.getTotalCapacity(), facility.getDistance());
+    }
+
+    public FacilitySummary withOccupancy(int occupancy) {
+        return new FacilitySummary(id, name, occupancy, totalCapacity, distance);
+    }
+}
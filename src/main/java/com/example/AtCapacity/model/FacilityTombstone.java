@@ -0,0 +1,9 @@
+package com.example.AtCapacity.model;
+
+/**
+ * Marks a facility deleted in a delta-sync response.
+ * @param id ID of the deleted facility
+ * @param sequence change sequence of the delete
+ */
+public record FacilityTombstone(String id, long sequence) {
+}
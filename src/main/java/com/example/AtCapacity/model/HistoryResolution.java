@@ -0,0 +1,49 @@
+package com.example.AtCapacity.model;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.Optional;
+
+/**
+ * Bucket sizes of the occupancy rollups. Minute and hour rollups expire after
+ * their retention; day rollups are kept for good.
+ */
+public enum HistoryResolution {
+    MINUTE(ChronoUnit.MINUTES, Duration.ofDays(7)),
+    HOUR(ChronoUnit.HOURS, Duration.ofDays(400)),
+    DAY(ChronoUnit.DAYS, null);
+
+    private final ChronoUnit unit;
+    private final Duration retention;
+
+    HistoryResolution(ChronoUnit unit, Duration retention) {
+        this.unit = unit;
+        this.retention = retention;
+    }
+
+    /**
+     * Start of the bucket containing the given instant (UTC).
+     */
+    public Instant bucketOf(Instant instant) {
+        return instant.truncatedTo(unit);
+    }
+
+    public Duration getBucketSize() {
+        return unit.getDuration();
+    }
+
+    /**
+     * How long a rollup is kept after its bucket ends, or empty if it is kept for good.
+     */
+    public Optional<Duration> getRetention() {
+        return Optional.ofNullable(retention);
+    }
+
+    /**
+     * When the rollup of the given bucket expires, or empty if it never does.
+     */
+    public Optional<Instant> expiryOf(Instant bucket) {
+        return getRetention().map(kept -> bucket.plus(getBucketSize()).plus(kept));
+    }
+}
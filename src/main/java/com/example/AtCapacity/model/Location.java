@@ -1,5 +1,8 @@
 package com.example.AtCapacity.model;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+
 public class Location {
     private String street;
     private String city;
@@ -7,6 +10,10 @@ public class Location {
     private double latitude;
     private double longitude;
 
+    /** GeoJSON copy of latitude/longitude backing the 2dsphere index; kept in sync by the setters */
+    @JsonIgnore
+    private GeoJsonPoint point;
+
     // Constructors
     public Location() {
     }
@@ -17,6 +24,7 @@ public class Location {
         this.postal = postal;
         this.latitude = latitude;
         this.longitude = longitude;
+        this.point = new GeoJsonPoint(longitude, latitude);
     }
 
     // Getters and Setters
@@ -50,6 +58,7 @@ public class Location {
 
     public void setLatitude(double latitude) {
         this.latitude = latitude;
+        this.point = new GeoJsonPoint(longitude, latitude);
     }
 
     public double getLongitude() {
@@ -58,5 +67,11 @@ public class Location {
 
     public void setLongitude(double longitude) {
         this.longitude = longitude;
+        this.point = new GeoJsonPoint(longitude, latitude);
+    }
+
+    @JsonIgnore
+    public GeoJsonPoint getPoint() {
+        return point;
     }
 }
\ No newline at end of file
@@ -0,0 +1,10 @@
+package com.example.AtCapacity.model;
+
+/**
+ * A net occupancy change as it was stored.
+ * @param facility the facility after the change
+ * @param applied how far the stored occupancy moved; less than asked for when clamped
+ *                to [0, totalCapacity]
+ */
+public record OccupancyChange(Facility facility, int applied) {
+}
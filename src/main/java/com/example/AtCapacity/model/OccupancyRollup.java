@@ -0,0 +1,69 @@
+package com.example.AtCapacity.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+import java.time.Instant;
+
+/**
+ * Pre-aggregated occupancy of one facility over one bucket, stored in the
+ * 'occupancy_rollups' collection and updated incrementally as samples arrive.
+ * Unique per (facilityId, resolution, bucket). Minute and hour rollups carry an
+ * {@code expireAt} and are removed by a TTL index once it passes.
+ */
+@Document(collection = "occupancy_rollups")
+public class OccupancyRollup {
+    @Id
+    private String id;
+
+    private String facilityId;
+    private HistoryResolution resolution;
+
+    /** Start of the bucket (UTC) */
+    private Instant bucket;
+
+    /** Lowest and highest occupancy recorded in the bucket */
+    private int min;
+    private int max;
+
+    /** Sum and number of recorded values, for the average */
+    private long sum;
+    private long count;
+
+    /** When the rollup expires; null for resolutions kept for good */
+    private Instant expireAt;
+
+    /** Default constructor required by MongoDB */
+    public OccupancyRollup() {}
+
+    public double getAverage() {
+        return count == 0 ? 0 : (double) sum / count;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFacilityId() { return facilityId; }
+    public void setFacilityId(String facilityId) { this.facilityId = facilityId; }
+
+    public HistoryResolution getResolution() { return resolution; }
+    public void setResolution(HistoryResolution resolution) { this.resolution = resolution; }
+
+    public Instant getBucket() { return bucket; }
+    public void setBucket(Instant bucket) { this.bucket = bucket; }
+
+    public int getMin() { return min; }
+    public void setMin(int min) { this.min = min; }
+
+    public int getMax() { return max; }
+    public void setMax(int max) { this.max = max; }
+
+    public long getSum() { return sum; }
+    public void setSum(long sum) { this.sum = sum; }
+
+    public long getCount() { return count; }
+    public void setCount(long count) { this.count = count; }
+
+    public Instant getExpireAt() { return expireAt; }
+    public void setExpireAt(Instant expireAt) { this.expireAt = expireAt; }
+}
@@ -0,0 +1,49 @@
+package com.example.AtCapacity.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+import org.springframework.data.mongodb.core.mapping.TimeSeries;
+import org.springframework.data.mongodb.core.timeseries.Granularity;
+
+import java.time.Instant;
+
+/**
+ * One recorded occupancy value, stored in the 'occupancy_samples' time-series collection.
+ * Samples expire after 30 days; the rollups keep the long-term history.
+ */
+@Document(collection = "occupancy_samples")
+@TimeSeries(timeField = "timestamp", metaField = "facilityId", granularity = Granularity.SECONDS, expireAfter = "30d")
+public class OccupancySample {
+    @Id
+    private String id;
+
+    /** Facility the value belongs to; the time-series meta field */
+    private String facilityId;
+
+    /** Occupancy right after the change */
+    private int occupancy;
+
+    /** When the change was applied */
+    private Instant timestamp;
+
+    /** Default constructor required by MongoDB */
+    public OccupancySample() {}
+
+    public OccupancySample(String facilityId, int occupancy, Instant timestamp) {
+        this.facilityId = facilityId;
+        this.occupancy = occupancy;
+        this.timestamp = timestamp;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public String getFacilityId() { return facilityId; }
+    public void setFacilityId(String facilityId) { this.facilityId = facilityId; }
+
+    public int getOccupancy() { return occupancy; }
+    public void setOccupancy(int occupancy) { this.occupancy = occupancy; }
+
+    public Instant getTimestamp() { return timestamp; }
+    public void setTimestamp(Instant timestamp) { this.timestamp = timestamp; }
+}
@@ -0,0 +1,242 @@
+package com.example.AtCapacity.model;
+
+import java.time.DayOfWeek;
+import java.time.LocalTime;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Opening hours compiled from a facility's {@code hours} string into sorted,
+ * non-overlapping [open, close) intervals of minute-of-week (0 = Monday 00:00),
+ * so checking whether a facility is open is a binary search without parsing.
+ * <p>
+ * Accepted formats, combined with ';' (later parts override the days they name):
+ * <ul>
+ *   <li>{@code 06:30-22:00} every day; {@code 22:00-02:00} runs past midnight</li>
+ *   <li>{@code Mon-Fri 06:00-22:00}, {@code Sat,Sun 08:00-12:00,14:00-20:00}</li>
+ *   <li>{@code Sun closed}, {@code 24/7}, {@code 00:00-24:00}</li>
+ * </ul>
+ */
+public final class OpeningSchedule {
+
+    public static final int MINUTES_PER_DAY = 24 * 60;
+    public static final int MINUTES_PER_WEEK = 7 * MINUTES_PER_DAY;
+
+    /** Schedule of a facility without (valid) hours */
+    public static final OpeningSchedule CLOSED = new OpeningSchedule(new int[0]);
+
+    /** Flattened [start, end) pairs */
+    private final int[] intervals;
+
+    private OpeningSchedule(int[] intervals) {
+        this.intervals = intervals;
+    }
+
+    /**
+     * Compiles an hours string.
+     * @throws IllegalArgumentException if the string is not in one of the accepted formats
+     */
+    public static OpeningSchedule parse(String hours) {
+        if (hours == null || hours.isBlank()) {
+            throw new IllegalArgumentException("Hours are required");
+        }
+        String trimmed = hours.trim();
+        if (trimmed.equalsIgnoreCase("24/7")) {
+            return new OpeningSchedule(new int[] {0, MINUTES_PER_WEEK});
+        }
+
+        List<List<int[]>> rangesByDay = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            rangesByDay.add(List.of());
+        }
+        for (String part : trimmed.split(";")) {
+            String spec = part.trim();
+            if (spec.isEmpty()) {
+                continue;
+            }
+            String[] tokens = spec.split("\\s+", 2);
+            boolean[] days;
+            String ranges;
+            if (Character.isLetter(tokens[0].charAt(0)) && tokens.length == 2) {
+                days = parseDays(tokens[0]);
+                ranges = tokens[1];
+            } else {
+                days = new boolean[7];
+                Arrays.fill(days, true);
+                ranges = spec;
+            }
+            List<int[]> parsed = parseRanges(ranges);
+            for (int day = 0; day < 7; day++) {
+                if (days[day]) {
+                    rangesByDay.set(day, parsed);
+                }
+            }
+        }
+        return compile(rangesByDay);
+    }
+
+    /**
+     * Like {@link #parse}, but returns {@link #CLOSED} instead of throwing.
+     */
+    public static OpeningSchedule parseOrClosed(String hours) {
+        try {
+            return parse(hours);
+        } catch (IllegalArgumentException e) {
+            return CLOSED;
+        }
+    }
+
+    public static int minuteOfWeek(ZonedDateTime time) {
+        return (time.getDayOfWeek().getValue() - 1) * MINUTES_PER_DAY + time.getHour() * 60 + time.getMinute();
+    }
+
+    public boolean isOpenAt(int minuteOfWeek) {
+        // Index of the last interval starting at or before the minute
+        int lo = 0;
+        int hi = intervals.length / 2 - 1;
+        int found = -1;
+        while (lo <= hi) {
+            int mid = (lo + hi) >>> 1;
+            if (intervals[2 * mid] <= minuteOfWeek) {
+                found = mid;
+                lo = mid + 1;
+            } else {
+                hi = mid - 1;
+            }
+        }
+        return found >= 0 && minuteOfWeek < intervals[2 * found + 1];
+    }
+
+    public boolean isOpenAt(ZonedDateTime time) {
+        return isOpenAt(minuteOfWeek(time));
+    }
+
+    /**
+     * Minutes from the given minute-of-week until the schedule next opens or closes.
+     * @return a value in 1..{@link #MINUTES_PER_WEEK}, or -1 if the state never changes
+     */
+    public int minutesUntilNextChange(int minuteOfWeek) {
+        int best = -1;
+        for (int boundary : intervals) {
+            if (boundary == 0 || boundary == MINUTES_PER_WEEK) {
+                // Week wrap; only a boundary if the state actually changes there
+                if (isOpenAt(0) == isOpenAt(MINUTES_PER_WEEK - 1)) {
+                    continue;
+                }
+                boundary = 0;
+            }
+            int ahead = Math.floorMod(boundary - minuteOfWeek - 1, MINUTES_PER_WEEK) + 1;
+            if (best < 0 || ahead < best) {
+                best = ahead;
+            }
+        }
+        return best;
+    }
+
+    public boolean isAlwaysClosed() {
+        return intervals.length == 0;
+    }
+
+    private static boolean[] parseDays(String spec) {
+        boolean[] days = new boolean[7];
+        for (String item : spec.split(",")) {
+            String[] bounds = item.split("-");
+            if (bounds.length > 2) {
+                throw new IllegalArgumentException("Invalid day range: " + item);
+            }
+            int from = parseDay(bounds[0]);
+            int to = bounds.length == 2 ? parseDay(bounds[1]) : from;
+            for (int day = from; ; day = (day + 1) % 7) {
+                days[day] = true;
+                if (day == to) {
+                    break;
+                }
+            }
+        }
+        return days;
+    }
+
+    private static int parseDay(String name) {
+        String prefix = name.trim().toUpperCase(Locale.ROOT);
+        if (prefix.length() >= 2) {
+            for (DayOfWeek day : DayOfWeek.values()) {
+                if (day.name().startsWith(prefix)) {
+                    return day.getValue() - 1;
+                }
+            }
+        }
+        throw new IllegalArgumentException("Invalid day: " + name);
+    }
+
+    private static List<int[]> parseRanges(String spec) {
+        if (spec.trim().equalsIgnoreCase("closed")) {
+            return List.of();
+        }
+        List<int[]> ranges = new ArrayList<>();
+        for (String range : spec.split(",")) {
+            String[] times = range.trim().split("-");
+            if (times.length != 2) {
+                throw new IllegalArgumentException("Invalid time range: " + range);
+            }
+            int open = parseTime(times[0]);
+            int close = parseTime(times[1]);
+            if (open == MINUTES_PER_DAY) {
+                throw new IllegalArgumentException("Invalid opening time: " + times[0]);
+            }
+            // Closing at or before opening runs past midnight; equal times mean 24 hours
+            ranges.add(new int[] {open, close > open ? close : close + MINUTES_PER_DAY});
+        }
+        return ranges;
+    }
+
+    private static int parseTime(String time) {
+        String trimmed = time.trim();
+        if (trimmed.equals("24:00")) {
+            return MINUTES_PER_DAY;
+        }
+        try {
+            LocalTime parsed = LocalTime.parse(trimmed);
+            return parsed.getHour() * 60 + parsed.getMinute();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid time: " + time, e);
+        }
+    }
+
+    private static OpeningSchedule compile(List<List<int[]>> rangesByDay) {
+        List<int[]> absolute = new ArrayList<>();
+        for (int day = 0; day < 7; day++) {
+            for (int[] range : rangesByDay.get(day)) {
+                int start = day * MINUTES_PER_DAY + range[0];
+                int end = day * MINUTES_PER_DAY + range[1];
+                if (end > MINUTES_PER_WEEK) {
+                    // Sunday night into Monday morning
+                    absolute.add(new int[] {start, MINUTES_PER_WEEK});
+                    absolute.add(new int[] {0, end - MINUTES_PER_WEEK});
+                } else {
+                    absolute.add(new int[] {start, end});
+                }
+            }
+        }
+        absolute.sort((a, b) -> Integer.compare(a[0], b[0]));
+
+        List<int[]> merged = new ArrayList<>();
+        for (int[] interval : absolute) {
+            int[] last = merged.isEmpty() ? null : merged.get(merged.size() - 1);
+            if (last != null && interval[0] <= last[1]) {
+                last[1] = Math.max(last[1], interval[1]);
+            } else {
+                merged.add(interval.clone());
+            }
+        }
+        int[] flat = new int[merged.size() * 2];
+        for (int i = 0; i < merged.size(); i++) {
+            flat[2 * i] = merged.get(i)[0];
+            flat[2 * i + 1] = merged.get(i)[1];
+        }
+        return new OpeningSchedule(flat);
+    }
+}
@@ -0,0 +1,47 @@
+package com.example.AtCapacity.model;
+
+import org.springframework.data.annotation.Id;
+import org.springframework.data.mongodb.core.mapping.Document;
+
+/**
+ * Persisted state of a facility's popular-times histogram, stored in the
+ * 'popular_times' collection. Each array has one slot per hour of the week,
+ * Monday 00:00 first.
+ */
+@Document(collection = "popular_times")
+public class PopularTimesHistogram {
+    /** Same as the facility ID */
+    @Id
+    private String id;
+
+    /** Decayed sums of recorded occupancy ratios (0..1) */
+    private double[] sums;
+
+    /** Decayed number of recorded values */
+    private double[] weights;
+
+    /** When each slot was last decayed, in epoch milliseconds */
+    private long[] updatedAt;
+
+    /** Default constructor required by MongoDB */
+    public PopularTimesHistogram() {}
+
+    public PopularTimesHistogram(String id, double[] sums, double[] weights, long[] updatedAt) {
+        this.id = id;
+        this.sums = sums;
+        this.weights = weights;
+        this.updatedAt = updatedAt;
+    }
+
+    public String getId() { return id; }
+    public void setId(String id) { this.id = id; }
+
+    public double[] getSums() { return sums; }
+    public void setSums(double[] sums) { this.sums = sums; }
+
+    public double[] getWeights() { return weights; }
+    public void setWeights(double[] weights) { this.weights = weights; }
+
+    public long[] getUpdatedAt() { return updatedAt; }
+    public void setUpdatedAt(long[] updatedAt) { this.updatedAt = updatedAt; }
+}
@@ -3,7 +3,6 @@ package com.example.AtCapacity.model;
 import org.springframework.data.annotation.Id;
 import org.springframework.data.mongodb.core.mapping.Document;
 import org.springframework.data.mongodb.core.index.Indexed;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 
 /**
  * Represents a user in the system with authentication and role information.
@@ -29,14 +28,14 @@ public class User {
     public User() {}
 
     /**
-     * Creates a new user with encrypted password.
+     * Creates a new user.
      * @param username unique identifier for the user
-     * @param password plain text password to be encrypted
+     * @param passwordHash password already hashed by PasswordHashingService
      * @param role authorization role for the user
      */
-    public User(String username, String password, String role) {
+    public User(String username, String passwordHash, String role) {
         this.username = username;
-        this.password = new BCryptPasswordEncoder().encode(password);
+        this.password = passwordHash;
         this.role = role;
     }
 
@@ -54,11 +53,11 @@ public class User {
     public String getPassword() { return password; }
 
     /**
-     * Encrypts and sets the password using BCrypt.
-     * @param password plain text password to be encrypted
+     * Sets the encrypted password.
+     * @param passwordHash password already hashed by PasswordHashingService
      */
-    public void setPassword(String password) { 
-        this.password = new BCryptPasswordEncoder().encode(password);
+    public void setPassword(String passwordHash) { 
+        this.password = passwordHash;
     }
     
     public String getRole() { return role; }
@@ -0,0 +1,57 @@
+package com.example.AtCapacity.repository;
+
+import org.bson.Document;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Mono;
+
+/**
+ * The change sequence every facility write is stamped with: a counter document in
+ * MongoDB shared by all instances, taken just before the write. A write stores its
+ * number on the facility document ({@code changeSeq}) or, for a delete, on a
+ * tombstone, so any instance can tell which facilities changed after a sequence.
+ */
+public final class FacilityChangeSequence {
+
+    public static final String COUNTERS_COLLECTION = "counters";
+    public static final String COUNTER_ID = "facilityChanges";
+    public static final String TOMBSTONES_COLLECTION = "facility_tombstones";
+
+    private FacilityChangeSequence() {
+    }
+
+    /**
+     * Takes {@code count} consecutive sequences.
+     * @return the highest one taken
+     */
+    public static long next(MongoTemplate mongoTemplate, int count) {
+        Document counter = mongoTemplate.findAndModify(counterQuery(), new Update().inc("seq", count),
+                FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, COUNTERS_COLLECTION);
+        return ((Number) counter.get("seq")).longValue();
+    }
+
+    /**
+     * Like {@link #next(MongoTemplate, int)}, without blocking.
+     */
+    public static Mono<Long> next(ReactiveMongoTemplate mongoTemplate, int count) {
+        return mongoTemplate.findAndModify(counterQuery(), new Update().inc("seq", count),
+                        FindAndModifyOptions.options().upsert(true).returnNew(true), Document.class, COUNTERS_COLLECTION)
+                .map(counter -> ((Number) counter.get("seq")).longValue());
+    }
+
+    /**
+     * The highest sequence taken so far by any instance, or 0 before the first write.
+     */
+    public static long current(MongoTemplate mongoTemplate) {
+        Document counter = mongoTemplate.findOne(counterQuery(), Document.class, COUNTERS_COLLECTION);
+        return counter == null ? 0 : ((Number) counter.get("seq")).longValue();
+    }
+
+    private static Query counterQuery() {
+        return new Query(Criteria.where("_id").is(COUNTER_ID));
+    }
+}
@@ -0,0 +1,28 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.BeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Stamps every saved facility with the next {@link FacilityChangeSequence}, so
+ * creates and full updates are numbered like the occupancy updates.
+ */
+@Component
+public class FacilityChangeSequenceCallback implements BeforeConvertCallback<Facility> {
+
+    /** Looked up on first use: the template's converter is built with this callback */
+    private final ObjectProvider<MongoTemplate> mongoTemplate;
+
+    public FacilityChangeSequenceCallback(ObjectProvider<MongoTemplate> mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Facility onBeforeConvert(Facility facility, String collection) {
+        facility.setChangeSeq(FacilityChangeSequence.next(mongoTemplate.getObject(), 1));
+        return facility;
+    }
+}
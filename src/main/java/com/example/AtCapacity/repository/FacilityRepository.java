@@ -1,17 +1,38 @@
 package com.example.AtCapacity.repository;
 
 import com.example.AtCapacity.model.Facility;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
 import org.springframework.data.mongodb.repository.MongoRepository;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional; // Add this import
+import java.util.stream.Stream;
 
 @Repository
-public interface FacilityRepository extends MongoRepository<Facility, String> {
+public interface FacilityRepository extends MongoRepository<Facility, String>, FacilityRepositoryCustom {
     Optional<Facility> findByName(String name); // Existing method
+    <T> List<T> findByNameIn(Collection<String> names, Class<T> projection);
     void deleteByName(String name);
 
     // Methods for querying by owner and address
     List<Facility> findByOwner(String owner);
+    <T> List<T> findByOwner(String owner, Class<T> projection);
+
+    // Keyset pagination ordered by ID
+    List<Facility> findAllByOrderByIdAsc(Limit limit);
+    List<Facility> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    /** Facilities written after a change sequence, for delta sync */
+    List<Facility> findByChangeSeqGreaterThan(long changeSeq);
+
+    /** Streams every facility from a server-side cursor; the caller must close the stream */
+    @Meta(cursorBatchSize = 500)
+    Stream<Facility> streamAllBy();
+
+    /** Like {@link #streamAllBy()}, reading only the fields of the projection type */
+    @Meta(cursorBatchSize = 500)
+    <T> Stream<T> streamAllBy(Class<T> projection);
 }
\ No newline at end of file
@@ -0,0 +1,144 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.example.AtCapacity.model.FacilityTombstone;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.OccupancyChange;
+import org.springframework.data.geo.GeoResults;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Facility queries that need MongoTemplate rather than derived repository methods.
+ */
+public interface FacilityRepositoryCustom {
+
+    /**
+     * Atomically increments occupancy (and the version and change sequence) of the facility with the given ID if it is below capacity.
+     * @param id facility ID
+     * @return the updated facility (occupancy fields only), or empty if not found or at capacity
+     */
+    Optional<Facility> incrementOccupancyById(String id);
+
+    /**
+     * Atomically decrements occupancy of the facility with the given ID if it is above zero.
+     * @param id facility ID
+     * @return the updated facility (occupancy fields only), or empty if not found or empty
+     */
+    Optional<Facility> decrementOccupancyById(String id);
+
+    /**
+     * Atomically increments occupancy of the facility with the given name if it is below capacity.
+     * @param name facility name
+     * @return the updated facility (occupancy fields only), or empty if not found or at capacity
+     */
+    Optional<Facility> incrementOccupancyByName(String name);
+
+    /**
+     * Atomically decrements occupancy of the facility with the given name if it is above zero.
+     * @param name facility name
+     * @return the updated facility (occupancy fields only), or empty if not found or empty
+     */
+    Optional<Facility> decrementOccupancyByName(String name);
+
+    /**
+     * Applies net occupancy changes to many facilities in one unordered bulk write.
+     * Each result is clamped to [0, totalCapacity] on the server, each version incremented
+     * and each stamped with its own change sequence.
+     * @param deltasById net occupancy change keyed by facility ID
+     */
+    void applyOccupancyDeltas(Map<String, Integer> deltasById);
+
+    /**
+     * Like {@link #applyOccupancyDeltas}, reporting how far each stored occupancy moved.
+     * The occupancies are read first and the bulk write is conditional on their versions;
+     * a facility another write changed in between gets its own findAndModify instead.
+     * @param deltasById net occupancy change keyed by facility ID; zero changes are only read
+     * @return each facility found, with its occupancy fields after the change, in no particular order
+     */
+    List<OccupancyChange> applyOccupancyChanges(Map<String, Integer> deltasById);
+
+    /**
+     * Leaves a tombstone for a deleted facility, numbered like any other write, so
+     * delta-sync clients on any instance learn of the delete.
+     * @param owner owner of the deleted facility
+     * @return the change sequence of the delete
+     */
+    long recordDeletion(String id, String owner);
+
+    /**
+     * Tombstones of facilities deleted after the given change sequence.
+     */
+    List<FacilityTombstone> findDeletionsAfter(long sequence);
+
+    /**
+     * Loads the occupancy fields (name, owner, type, currentOccupancy, totalCapacity, versions, changeSeq) of many facilities.
+     * @param ids facility IDs
+     * @return the facilities found, in no particular order
+     */
+    List<Facility> findOccupanciesByIds(Collection<String> ids);
+
+    /**
+     * Finds the facilities nearest to a point using the 2dsphere index on location.point.
+     * @param latitude latitude of the query point
+     * @param longitude longitude of the query point
+     * @param type optional facility type filter, applied by MongoDB
+     * @param limit maximum number of results
+     * @return facilities ordered by distance, with distances in kilometers
+     */
+    default GeoResults<Facility> findNearest(double latitude, double longitude, FacilityType type, int limit) {
+        return findNearest(latitude, longitude, type, limit, null);
+    }
+
+    /**
+     * Like {@link #findNearest(double, double, FacilityType, int)}, considering only the given facilities.
+     * @param onlyIds IDs of the candidate facilities; null for all
+     */
+    GeoResults<Facility> findNearest(double latitude, double longitude, FacilityType type, int limit,
+                                     Collection<String> onlyIds);
+
+    /**
+     * Like {@link #findNearest}, but projects each result to a summary inside MongoDB.
+     * @return summaries ordered by distance, with distances in kilometers
+     */
+    default List<FacilitySummary> findNearestSummaries(double latitude, double longitude, FacilityType type, int limit) {
+        return findNearestSummaries(latitude, longitude, type, limit, null);
+    }
+
+    /**
+     * Like {@link #findNearestSummaries(double, double, FacilityType, int)}, considering only the given facilities.
+     * @param onlyIds IDs of the candidate facilities; null for all
+     */
+    List<FacilitySummary> findNearestSummaries(double latitude, double longitude, FacilityType type, int limit,
+                                               Collection<String> onlyIds);
+
+    /**
+     * Explains the query {@link #findNearestSummaries} runs for these arguments, which
+     * executes it once more.
+     * @return documents MongoDB examined to answer it
+     */
+    long countNearestCandidates(double latitude, double longitude, FacilityType type, int limit,
+                                Collection<String> onlyIds);
+
+    /**
+     * Populates location.point on documents written before the GeoJSON field existed.
+     * @return number of documents updated
+     */
+    long backfillLocationPoints();
+
+    /**
+     * Sets version 0 on documents written before facilities were versioned, so saving
+     * them is treated as an update instead of an insert.
+     * @return number of documents updated
+     */
+    long backfillVersions();
+
+    /**
+     * Loads only the id, type and coordinates of every facility.
+     */
+    List<Facility> findAllCoordinates();
+}
@@ -0,0 +1,356 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.example.AtCapacity.model.FacilityTombstone;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.OccupancyChange;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.FindOneAndUpdateOptions;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.ReturnDocument;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.types.ObjectId;
+import org.springframework.data.geo.GeoResults;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * MongoTemplate-backed implementation of {@link FacilityRepositoryCustom}.
+ * Occupancy changes are single conditional findAndModify calls, so concurrent
+ * turnstiles never lose updates and the count never leaves [0, totalCapacity].
+ */
+public class FacilityRepositoryCustomImpl implements FacilityRepositoryCustom {
+
+    /** Fields returned with occupancy changes, enough for change events and their filters */
+    private static final String[] OCCUPANCY_FIELDS = {"name", "currentOccupancy", "totalCapacity", "owner", "type",
+            "version", "metadataVersion", "changeSeq"};
+
+    private final MongoTemplate mongoTemplate;
+
+    public FacilityRepositoryCustomImpl(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Optional<Facility> incrementOccupancyById(String id) {
+        return increment(Criteria.where("id").is(id));
+    }
+
+    @Override
+    public Optional<Facility> decrementOccupancyById(String id) {
+        return decrement(Criteria.where("id").is(id));
+    }
+
+    @Override
+    public Optional<Facility> incrementOccupancyByName(String name) {
+        return increment(Criteria.where("name").is(name));
+    }
+
+    @Override
+    public Optional<Facility> decrementOccupancyByName(String name) {
+        return decrement(Criteria.where("name").is(name));
+    }
+
+    @Override
+    public void applyOccupancyDeltas(Map<String, Integer> deltasById) {
+        if (deltasById.isEmpty()) {
+            return;
+        }
+        List<WriteModel<Document>> writes = new ArrayList<>(deltasById.size());
+        long sequence = FacilityChangeSequence.next(mongoTemplate, deltasById.size()) - deltasById.size();
+        for (Map.Entry<String, Integer> entry : deltasById.entrySet()) {
+            writes.add(new UpdateOneModel<>(
+                    new Document("_id", toObjectId(entry.getKey())),
+                    List.of(clampedOccupancyUpdate(entry.getValue(), ++sequence))));
+        }
+        facilities().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+    }
+
+    @Override
+    public List<OccupancyChange> applyOccupancyChanges(Map<String, Integer> deltasById) {
+        List<OccupancyChange> results = new ArrayList<>(deltasById.size());
+        Map<String, OccupancyChange> planned = new HashMap<>();
+        for (Facility facility : findOccupanciesByIds(deltasById.keySet())) {
+            int delta = deltasById.get(facility.getId());
+            if (delta == 0) {
+                results.add(new OccupancyChange(facility, 0));
+            } else {
+                planned.put(facility.getId(), new OccupancyChange(facility, delta));
+            }
+        }
+        if (planned.isEmpty()) {
+            return results;
+        }
+
+        // Each write is conditional on the version just read, so the change it makes is known exactly
+        List<WriteModel<Document>> writes = new ArrayList<>(planned.size());
+        long sequence = FacilityChangeSequence.next(mongoTemplate, planned.size()) - planned.size();
+        for (Map.Entry<String, OccupancyChange> entry : planned.entrySet()) {
+            Facility read = entry.getValue().facility();
+            Facility written = withOccupancyChange(read, entry.getValue().applied(), ++sequence);
+            writes.add(new UpdateOneModel<>(
+                    new Document("_id", toObjectId(read.getId())).append("version", read.getVersion()),
+                    new Document("$set", new Document("currentOccupancy", written.getCurrentOccupancy())
+                            .append("version", written.getVersion())
+                            .append("changeSeq", sequence))));
+            entry.setValue(new OccupancyChange(written, written.getCurrentOccupancy() - read.getCurrentOccupancy()));
+        }
+        BulkWriteResult written = facilities().bulkWrite(writes, new BulkWriteOptions().ordered(false));
+        if (written.getMatchedCount() == writes.size()) {
+            results.addAll(planned.values());
+            return results;
+        }
+
+        // Some lost a race with another write: those not stamped with their sequence are applied one by one
+        Map<String, Long> landed = new HashMap<>();
+        for (Facility facility : findOccupanciesByIds(planned.keySet())) {
+            landed.put(facility.getId(), facility.getChangeSeq());
+        }
+        planned.forEach((id, change) -> {
+            if (change.facility().getChangeSeq().equals(landed.get(id))) {
+                results.add(change);
+            } else {
+                applyOne(id, deltasById.get(id), change.facility().getChangeSeq()).ifPresent(results::add);
+            }
+        });
+        return results;
+    }
+
+    /**
+     * Applies one clamped change with findAndModify, reading the occupancy it replaced.
+     * @return the change, or empty if the facility no longer exists
+     */
+    private Optional<OccupancyChange> applyOne(String id, int delta, long changeSeq) {
+        Document projection = new Document();
+        for (String field : OCCUPANCY_FIELDS) {
+            projection.append(field, 1);
+        }
+        Document before = facilities().findOneAndUpdate(new Document("_id", toObjectId(id)),
+                List.of(clampedOccupancyUpdate(delta, changeSeq)),
+                new FindOneAndUpdateOptions().projection(projection).returnDocument(ReturnDocument.BEFORE));
+        if (before == null) {
+            return Optional.empty();
+        }
+        Facility read = mongoTemplate.getConverter().read(Facility.class, before);
+        Facility written = withOccupancyChange(read, delta, changeSeq);
+        return Optional.of(new OccupancyChange(written, written.getCurrentOccupancy() - read.getCurrentOccupancy()));
+    }
+
+    /**
+     * The facility as {@link #clampedOccupancyUpdate} leaves it.
+     */
+    private static Facility withOccupancyChange(Facility facility, int delta, long changeSeq) {
+        Facility changed = new Facility(facility);
+        changed.setCurrentOccupancy(Math.min(Math.max(facility.getCurrentOccupancy() + delta, 0),
+                facility.getTotalCapacity()));
+        changed.setVersion((facility.getVersion() == null ? 0 : facility.getVersion()) + 1);
+        changed.setChangeSeq(changeSeq);
+        return changed;
+    }
+
+    private MongoCollection<Document> facilities() {
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Facility.class));
+    }
+
+    @Override
+    public long recordDeletion(String id, String owner) {
+        long sequence = FacilityChangeSequence.next(mongoTemplate, 1);
+        mongoTemplate.getCollection(FacilityChangeSequence.TOMBSTONES_COLLECTION).replaceOne(
+                new Document("_id", id),
+                new Document("_id", id).append("changeSeq", sequence).append("owner", owner)
+                        .append("deletedAt", new Date()),
+                new ReplaceOptions().upsert(true));
+        return sequence;
+    }
+
+    @Override
+    public List<FacilityTombstone> findDeletionsAfter(long sequence) {
+        List<FacilityTombstone> tombstones = new ArrayList<>();
+        mongoTemplate.getCollection(FacilityChangeSequence.TOMBSTONES_COLLECTION)
+                .find(new Document("changeSeq", new Document("$gt", sequence)))
+                .forEach(tombstone -> tombstones.add(new FacilityTombstone(tombstone.getString("_id"),
+                        ((Number) tombstone.get("changeSeq")).longValue())));
+        return tombstones;
+    }
+
+    @Override
+    public List<Facility> findOccupanciesByIds(Collection<String> ids) {
+        Query query = new Query(Criteria.where("id").in(ids));
+        query.fields().include(OCCUPANCY_FIELDS);
+        return mongoTemplate.find(query, Facility.class);
+    }
+
+    @Override
+    public GeoResults<Facility> findNearest(double latitude, double longitude, FacilityType type, int limit,
+                                            Collection<String> onlyIds) {
+        NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .spherical(true)
+                .inKilometers()
+                .limit(limit);
+        if (type != null || onlyIds != null) {
+            Criteria criteria = new Criteria();
+            if (type != null) {
+                criteria.and("type").is(type);
+            }
+            if (onlyIds != null) {
+                criteria.and("id").in(onlyIds);
+            }
+            nearQuery.query(new Query(criteria).limit(limit));
+        }
+        return mongoTemplate.geoNear(nearQuery, Facility.class);
+    }
+
+    @Override
+    public List<FacilitySummary> findNearestSummaries(double latitude, double longitude, FacilityType type, int limit,
+                                                     Collection<String> onlyIds) {
+        Document projection = new Document("distance", 1);
+        for (String field : FacilitySummary.FIELDS) {
+            projection.append(field, 1);
+        }
+
+        List<Document> pipeline = nearestPipeline(latitude, longitude, type, limit, onlyIds, projection);
+        List<FacilitySummary> summaries = new ArrayList<>(limit);
+        mongoTemplate.getCollection(mongoTemplate.getCollectionName(Facility.class))
+                .aggregate(pipeline)
+                .forEach(document -> summaries.add(mongoTemplate.getConverter().read(FacilitySummary.class, document)));
+        return summaries;
+    }
+
+    @Override
+    public long countNearestCandidates(double latitude, double longitude, FacilityType type, int limit,
+                                       Collection<String> onlyIds) {
+        Document explain = new Document("explain", new Document("aggregate", mongoTemplate.getCollectionName(Facility.class))
+                .append("pipeline", nearestPipeline(latitude, longitude, type, limit, onlyIds, new Document("_id", 1)))
+                .append("cursor", new Document()))
+                .append("verbosity", "executionStats");
+        return totalDocsExamined(mongoTemplate.executeCommand(explain));
+    }
+
+    private static List<Document> nearestPipeline(double latitude, double longitude, FacilityType type, int limit,
+                                                  Collection<String> onlyIds, Document projection) {
+        Document filter = new Document();
+        if (type != null) {
+            filter.append("type", type.name());
+        }
+        if (onlyIds != null) {
+            filter.append("_id", new Document("$in", onlyIds.stream().map(FacilityRepositoryCustomImpl::toObjectId).toList()));
+        }
+        Document near = new Document("type", "Point").append("coordinates", List.of(longitude, latitude));
+        Document geoNear = new Document("$geoNear", new Document("near", near)
+                .append("key", "location.point")
+                .append("spherical", true)
+                .append("distanceField", "distance")
+                .append("distanceMultiplier", 0.001) // meters to kilometers
+                .append("query", filter));
+        return List.of(geoNear, new Document("$limit", limit), new Document("$project", projection));
+    }
+
+    /**
+     * Sums totalDocsExamined over an explain output, whose layout depends on how much
+     * of the pipeline ran in the query layer and on how many shards answered.
+     */
+    private static long totalDocsExamined(Object explained) {
+        long total = 0;
+        if (explained instanceof Document document) {
+            for (Map.Entry<String, Object> entry : document.entrySet()) {
+                total += "totalDocsExamined".equals(entry.getKey()) && entry.getValue() instanceof Number examined
+                        ? examined.longValue()
+                        : totalDocsExamined(entry.getValue());
+            }
+        } else if (explained instanceof List<?> list) {
+            for (Object element : list) {
+                total += totalDocsExamined(element);
+            }
+        }
+        return total;
+    }
+
+    @Override
+    public List<Facility> findAllCoordinates() {
+        Query query = new Query();
+        query.fields().include("type", "location.latitude", "location.longitude");
+        return mongoTemplate.find(query, Facility.class);
+    }
+
+    @Override
+    public long backfillLocationPoints() {
+        Document missingPoint = new Document("location.latitude", new Document("$exists", true))
+                .append("location.point", new Document("$exists", false));
+        Document setPoint = new Document("$set", new Document("location.point", new Document("type", "Point")
+                .append("coordinates", List.of("$location.longitude", "$location.latitude"))));
+        // Through execute, so driver errors arrive translated like every other repository call
+        return mongoTemplate.execute(Facility.class, collection ->
+                collection.updateMany(missingPoint, List.of(setPoint)).getModifiedCount());
+    }
+
+    @Override
+    public long backfillVersions() {
+        return mongoTemplate.execute(Facility.class, collection -> collection
+                .updateMany(new Document("version", new Document("$exists", false)),
+                        new Document("$set", new Document("version", 0L)))
+                .getModifiedCount());
+    }
+
+    /**
+     * Pipeline stage setting currentOccupancy to min(max(currentOccupancy + delta, 0), totalCapacity),
+     * incrementing the version and stamping the change sequence.
+     */
+    private static Document clampedOccupancyUpdate(int delta, long changeSeq) {
+        Document added = new Document("$add", List.of("$currentOccupancy", delta));
+        Document atLeastZero = new Document("$max", List.of(added, 0));
+        Document clamped = new Document("$min", List.of(atLeastZero, "$totalCapacity"));
+        Document nextVersion = new Document("$add", List.of(new Document("$ifNull", List.of("$version", 0L)), 1L));
+        return new Document("$set", new Document("currentOccupancy", clamped).append("version", nextVersion)
+                .append("changeSeq", changeSeq));
+    }
+
+    /**
+     * Mirrors Spring Data's id mapping: valid hex strings are stored as ObjectIds.
+     */
+    private static Object toObjectId(String id) {
+        return ObjectId.isValid(id) ? new ObjectId(id) : id;
+    }
+
+    private Optional<Facility> increment(Criteria key) {
+        Criteria belowCapacity = Criteria.expr(
+                ComparisonOperators.valueOf("currentOccupancy").lessThan("totalCapacity"));
+        return adjust(new Criteria().andOperator(key, belowCapacity), 1);
+    }
+
+    private Optional<Facility> decrement(Criteria key) {
+        Criteria aboveZero = Criteria.where("currentOccupancy").gt(0);
+        return adjust(new Criteria().andOperator(key, aboveZero), -1);
+    }
+
+    private Optional<Facility> adjust(Criteria criteria, int delta) {
+        Query query = new Query(criteria);
+        query.fields().include(OCCUPANCY_FIELDS);
+
+        Facility updated = mongoTemplate.findAndModify(
+                query,
+                new Update().inc("currentOccupancy", delta).inc("version", 1)
+                        .set("changeSeq", FacilityChangeSequence.next(mongoTemplate, 1)),
+                FindAndModifyOptions.options().returnNew(true),
+                Facility.class);
+        return Optional.ofNullable(updated);
+    }
+}
@@ -0,0 +1,17 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.HistoryResolution;
+import com.example.AtCapacity.model.OccupancyRollup;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+import java.time.Instant;
+import java.util.List;
+
+public interface OccupancyRollupRepository extends MongoRepository<OccupancyRollup, String> {
+
+    /** Rollups of one facility at one resolution whose bucket start lies in the range */
+    List<OccupancyRollup> findByFacilityIdAndResolutionAndBucketBetween(
+            String facilityId, HistoryResolution resolution, Range<Instant> buckets, Sort sort);
+}
@@ -0,0 +1,7 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.PopularTimesHistogram;
+import org.springframework.data.mongodb.repository.MongoRepository;
+
+public interface PopularTimesRepository extends MongoRepository<PopularTimesHistogram, String> {
+}
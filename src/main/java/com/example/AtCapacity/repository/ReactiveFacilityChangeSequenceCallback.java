@@ -0,0 +1,32 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import org.reactivestreams.Publisher;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.annotation.Profile;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.mapping.event.ReactiveBeforeConvertCallback;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reactive version of {@link FacilityChangeSequenceCallback}, active with the "reactive" profile.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveFacilityChangeSequenceCallback implements ReactiveBeforeConvertCallback<Facility> {
+
+    /** Looked up on first use: the template's converter is built with this callback */
+    private final ObjectProvider<ReactiveMongoTemplate> mongoTemplate;
+
+    public ReactiveFacilityChangeSequenceCallback(ObjectProvider<ReactiveMongoTemplate> mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Publisher<Facility> onBeforeConvert(Facility facility, String collection) {
+        return FacilityChangeSequence.next(mongoTemplate.getObject(), 1).map(sequence -> {
+            facility.setChangeSeq(sequence);
+            return facility;
+        });
+    }
+}
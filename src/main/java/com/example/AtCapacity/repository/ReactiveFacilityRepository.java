@@ -0,0 +1,32 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.mongodb.repository.Meta;
+import org.springframework.data.mongodb.repository.ReactiveMongoRepository;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking counterpart of {@link FacilityRepository}, used by the "reactive" profile.
+ * Flux results pull from the MongoDB cursor only as fast as the subscriber requests.
+ */
+@Repository
+public interface ReactiveFacilityRepository extends ReactiveMongoRepository<Facility, String>,
+        ReactiveFacilityRepositoryCustom {
+    Mono<Facility> findByName(String name);
+
+    Flux<Facility> findByOwner(String owner);
+    <T> Flux<T> findByOwner(String owner, Class<T> projection);
+
+    // Keyset pagination ordered by ID
+    Flux<Facility> findAllByOrderByIdAsc(Limit limit);
+    Flux<Facility> findByIdGreaterThanOrderByIdAsc(String id, Limit limit);
+
+    @Meta(cursorBatchSize = 500)
+    Flux<Facility> streamAllBy();
+
+    @Meta(cursorBatchSize = 500)
+    <T> Flux<T> streamAllBy(Class<T> projection);
+}
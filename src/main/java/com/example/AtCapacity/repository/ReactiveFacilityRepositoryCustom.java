@@ -0,0 +1,56 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.example.AtCapacity.model.FacilityType;
+import org.springframework.data.geo.GeoResult;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+/**
+ * Reactive versions of the {@link FacilityRepositoryCustom} queries.
+ */
+public interface ReactiveFacilityRepositoryCustom {
+
+    /**
+     * Atomically increments occupancy of the facility with the given ID if it is below capacity.
+     * @return the updated facility (occupancy fields only), or empty if not found or at capacity
+     */
+    Mono<Facility> incrementOccupancyById(String id);
+
+    /**
+     * Atomically decrements occupancy of the facility with the given ID if it is above zero.
+     * @return the updated facility (occupancy fields only), or empty if not found or empty
+     */
+    Mono<Facility> decrementOccupancyById(String id);
+
+    /**
+     * Atomically increments occupancy of the facility with the given name if it is below capacity.
+     * @return the updated facility (occupancy fields only), or empty if not found or at capacity
+     */
+    Mono<Facility> incrementOccupancyByName(String name);
+
+    /**
+     * Atomically decrements occupancy of the facility with the given name if it is above zero.
+     * @return the updated facility (occupancy fields only), or empty if not found or empty
+     */
+    Mono<Facility> decrementOccupancyByName(String name);
+
+    /**
+     * Finds the facilities nearest to a point using the 2dsphere index on location.point.
+     * @return facilities ordered by distance, with distances in kilometers
+     */
+    Flux<GeoResult<Facility>> findNearest(double latitude, double longitude, FacilityType type, int limit);
+
+    /**
+     * Like {@link #findNearest}, but projects each result to a summary inside MongoDB.
+     * @return summaries ordered by distance, with distances in kilometers
+     */
+    Flux<FacilitySummary> findNearestSummaries(double latitude, double longitude, FacilityType type, int limit);
+
+    /**
+     * Like {@link FacilityRepositoryCustom#recordDeletion}.
+     * @return the change sequence of the delete
+     */
+    Mono<Long> recordDeletion(String id, String owner);
+}
@@ -0,0 +1,122 @@
+package com.example.AtCapacity.repository;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.example.AtCapacity.model.FacilityType;
+import com.mongodb.client.model.ReplaceOptions;
+import org.bson.Document;
+import org.springframework.data.geo.GeoResult;
+import org.springframework.data.mongodb.core.FindAndModifyOptions;
+import org.springframework.data.mongodb.core.ReactiveMongoTemplate;
+import org.springframework.data.mongodb.core.aggregation.ComparisonOperators;
+import org.springframework.data.mongodb.core.geo.GeoJsonPoint;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.NearQuery;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+
+import java.util.Date;
+import java.util.List;
+
+/**
+ * ReactiveMongoTemplate-backed implementation of {@link ReactiveFacilityRepositoryCustom}.
+ * Uses the same conditional findAndModify as {@link FacilityRepositoryCustomImpl}, so both
+ * stacks keep occupancy within [0, totalCapacity].
+ */
+public class ReactiveFacilityRepositoryCustomImpl implements ReactiveFacilityRepositoryCustom {
+
+    private final ReactiveMongoTemplate mongoTemplate;
+
+    public ReactiveFacilityRepositoryCustomImpl(ReactiveMongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    @Override
+    public Mono<Facility> incrementOccupancyById(String id) {
+        return increment(Criteria.where("id").is(id));
+    }
+
+    @Override
+    public Mono<Facility> decrementOccupancyById(String id) {
+        return decrement(Criteria.where("id").is(id));
+    }
+
+    @Override
+    public Mono<Facility> incrementOccupancyByName(String name) {
+        return increment(Criteria.where("name").is(name));
+    }
+
+    @Override
+    public Mono<Facility> decrementOccupancyByName(String name) {
+        return decrement(Criteria.where("name").is(name));
+    }
+
+    @Override
+    public Flux<GeoResult<Facility>> findNearest(double latitude, double longitude, FacilityType type, int limit) {
+        NearQuery nearQuery = NearQuery.near(new GeoJsonPoint(longitude, latitude))
+                .spherical(true)
+                .inKilometers()
+                .limit(limit);
+        if (type != null) {
+            nearQuery.query(new Query(Criteria.where("type").is(type)).limit(limit));
+        }
+        return mongoTemplate.geoNear(nearQuery, Facility.class);
+    }
+
+    @Override
+    public Flux<FacilitySummary> findNearestSummaries(double latitude, double longitude, FacilityType type, int limit) {
+        Document near = new Document("type", "Point").append("coordinates", List.of(longitude, latitude));
+        Document geoNear = new Document("$geoNear", new Document("near", near)
+                .append("key", "location.point")
+                .append("spherical", true)
+                .append("distanceField", "distance")
+                .append("distanceMultiplier", 0.001) // meters to kilometers
+                .append("query", type == null ? new Document() : new Document("type", type.name())));
+        Document projection = new Document("distance", 1);
+        for (String field : FacilitySummary.FIELDS) {
+            projection.append(field, 1);
+        }
+
+        List<Document> pipeline = List.of(geoNear, new Document("$limit", limit), new Document("$project", projection));
+        return mongoTemplate.getCollection(mongoTemplate.getCollectionName(Facility.class))
+                .flatMapMany(collection -> Flux.from(collection.aggregate(pipeline)))
+                .map(document -> mongoTemplate.getConverter().read(FacilitySummary.class, document));
+    }
+
+    @Override
+    public Mono<Long> recordDeletion(String id, String owner) {
+        return FacilityChangeSequence.next(mongoTemplate, 1).flatMap(sequence -> mongoTemplate
+                .getCollection(FacilityChangeSequence.TOMBSTONES_COLLECTION)
+                .flatMap(collection -> Mono.from(collection.replaceOne(
+                        new Document("_id", id),
+                        new Document("_id", id).append("changeSeq", sequence).append("owner", owner)
+                                .append("deletedAt", new Date()),
+                        new ReplaceOptions().upsert(true))))
+                .thenReturn(sequence));
+    }
+
+    private Mono<Facility> increment(Criteria key) {
+        Criteria belowCapacity = Criteria.expr(
+                ComparisonOperators.valueOf("currentOccupancy").lessThan("totalCapacity"));
+        return adjust(new Criteria().andOperator(key, belowCapacity), 1);
+    }
+
+    private Mono<Facility> decrement(Criteria key) {
+        Criteria aboveZero = Criteria.where("currentOccupancy").gt(0);
+        return adjust(new Criteria().andOperator(key, aboveZero), -1);
+    }
+
+    private Mono<Facility> adjust(Criteria criteria, int delta) {
+        Query query = new Query(criteria);
+        query.fields().include("name", "currentOccupancy", "totalCapacity", "owner", "type", "version",
+                "metadataVersion", "changeSeq");
+
+        return FacilityChangeSequence.next(mongoTemplate, 1).flatMap(sequence -> mongoTemplate.findAndModify(
+                query,
+                new Update().inc("currentOccupancy", delta).inc("version", 1).set("changeSeq", sequence),
+                FindAndModifyOptions.options().returnNew(true),
+                Facility.class));
+    }
+}
@@ -0,0 +1,87 @@
+package com.example.AtCapacity.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token buckets keyed by string, e.g. one per client.
+ * <p>
+ * Each bucket is a single {@link AtomicLong} holding the time at which it will be
+ * full again (the generic cell rate algorithm), so admitting a request is one
+ * map lookup and one compare-and-set, with no lock and no refill thread. A bucket
+ * that has not been used for as long as it takes to refill is full, so evicting it
+ * loses nothing; buckets expire after that long, and the map is also bounded in size.
+ */
+public class RateLimiter {
+
+    private final long intervalNanos;
+    private final long toleranceNanos;
+    private final LongSupplier nanoClock;
+    private final Cache<String, AtomicLong> buckets;
+
+    /**
+     * @param permitsPerSecond sustained rate each key may reach
+     * @param burst requests a key may make at once after being idle
+     * @param maximumKeys buckets kept at most; the least recently used are evicted first
+     */
+    public RateLimiter(double permitsPerSecond, int burst, long maximumKeys) {
+        this(permitsPerSecond, burst, maximumKeys, System::nanoTime);
+    }
+
+    RateLimiter(double permitsPerSecond, int burst, long maximumKeys, LongSupplier nanoClock) {
+        if (!(permitsPerSecond > 0) || burst < 1) {
+            throw new IllegalArgumentException("permits per second and burst must be positive");
+        }
+        this.intervalNanos = Math.max(1, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.toleranceNanos = intervalNanos * burst;
+        this.nanoClock = nanoClock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maximumKeys)
+                .expireAfterAccess(Duration.ofNanos(toleranceNanos))
+                .ticker(nanoClock::getAsLong)
+                .build();
+    }
+
+    /**
+     * Takes one permit from the key's bucket if it has one.
+     * @return 0 if the request is admitted, otherwise how long to wait, in nanoseconds, before a permit is free
+     */
+    public long tryAcquire(String key) {
+        AtomicLong fullAt = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        long now = nanoClock.getAsLong();
+        while (true) {
+            long current = fullAt.get();
+            long next = Math.max(current, now) + intervalNanos;
+            long wait = next - now - toleranceNanos;
+            if (wait > 0) {
+                return wait;
+            }
+            if (fullAt.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+
+    /**
+     * Returns a permit taken by {@link #tryAcquire}, for a request that another limit
+     * turned away after all.
+     */
+    public void release(String key) {
+        AtomicLong fullAt = buckets.getIfPresent(key);
+        if (fullAt != null) {
+            fullAt.addAndGet(-intervalNanos);
+        }
+    }
+
+    /**
+     * Number of buckets currently held, for monitoring.
+     */
+    public long size() {
+        return buckets.estimatedSize();
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.AtCapacity.security;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import reactor.core.publisher.Mono;
+
+import java.util.Optional;
+
+/**
+ * WebFlux version of {@link TokenAuthenticationFilter}, active with the "reactive" profile.
+ * Verification is a single HMAC, so it runs inline on the event loop. Runs ahead of
+ * {@link ReactiveWriteRateLimitFilter}, which limits a verified user by name.
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.LOWEST_PRECEDENCE - 1)
+public class ReactiveTokenAuthenticationFilter implements WebFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+    private final boolean enabled;
+
+    public ReactiveTokenAuthenticationFilter(TokenService tokenService,
+                                             @Value("${atcapacity.auth.enabled:false}") boolean enabled) {
+        this.tokenService = tokenService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!requiresToken(request)) {
+            return chain.filter(exchange);
+        }
+        String header = request.getHeaders().getFirst(HttpHeaders.AUTHORIZATION);
+        Optional<TokenClaims> claims = header != null && header.startsWith(BEARER_PREFIX)
+                ? tokenService.verify(header.substring(BEARER_PREFIX.length()).trim())
+                : Optional.empty();
+
+        if (claims.isEmpty()) {
+            ServerHttpResponse response = exchange.getResponse();
+            response.setStatusCode(HttpStatus.UNAUTHORIZED);
+            response.getHeaders().set(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            return response.setComplete();
+        }
+        exchange.getAttributes().put(TokenAuthenticationFilter.CLAIMS_ATTRIBUTE, claims.get());
+        return chain.filter(exchange);
+    }
+
+    private boolean requiresToken(ServerHttpRequest request) {
+        if (!enabled || !lookupPath(request).startsWith("/api/facilities")) {
+            return false;
+        }
+        HttpMethod method = request.getMethod();
+        return !(HttpMethod.GET.equals(method) || HttpMethod.HEAD.equals(method) || HttpMethod.OPTIONS.equals(method));
+    }
+
+    /**
+     * The path within the application as handler mapping matches it: decoded and
+     * without matrix parameters, so an encoded path cannot skip a path check.
+     */
+    static String lookupPath(ServerHttpRequest request) {
+        StringBuilder path = new StringBuilder();
+        for (PathContainer.Element element : request.getPath().pathWithinApplication().elements()) {
+            path.append(element instanceof PathContainer.PathSegment segment ? segment.valueToMatch() : element.value());
+        }
+        return path.toString();
+    }
+}
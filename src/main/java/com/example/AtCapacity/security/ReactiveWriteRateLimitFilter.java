@@ -0,0 +1,99 @@
+package com.example.AtCapacity.security;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.service.ReactiveFacilityService;
+import org.springframework.context.annotation.Profile;
+import org.springframework.core.Ordered;
+import org.springframework.core.annotation.Order;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.server.PathContainer;
+import org.springframework.http.server.reactive.ServerHttpRequest;
+import org.springframework.http.server.reactive.ServerHttpResponse;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ServerWebExchange;
+import org.springframework.web.server.WebFilter;
+import org.springframework.web.server.WebFilterChain;
+import org.springframework.web.util.pattern.PathPattern;
+import org.springframework.web.util.pattern.PathPatternParser;
+import reactor.core.publisher.Mono;
+
+import java.net.InetSocketAddress;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * WebFlux version of {@link WriteRateLimitInterceptor}, active with the "reactive" profile.
+ * Filters run before handler mapping, so the facility is read from the path with the
+ * patterns of the reactive controller's write routes, and a name is resolved to the
+ * facility's ID without blocking. Ordered after
+ * {@link ReactiveTokenAuthenticationFilter}, so a verified user is limited as that user.
+ */
+@Component
+@Profile("reactive")
+@Order(Ordered.LOWEST_PRECEDENCE)
+public class ReactiveWriteRateLimitFilter implements WebFilter {
+
+    private static final PathPattern BY_NAME =
+            PathPatternParser.defaultInstance.parse("/api/facilities/by-name/{name}/**");
+    private static final PathPattern BY_ID =
+            PathPatternParser.defaultInstance.parse("/api/facilities/{id}/**");
+
+    private final WriteRateLimits limits;
+    private final ReactiveFacilityService facilityService;
+
+    public ReactiveWriteRateLimitFilter(WriteRateLimits limits, ReactiveFacilityService facilityService) {
+        this.limits = limits;
+        this.facilityService = facilityService;
+    }
+
+    @Override
+    public Mono<Void> filter(ServerWebExchange exchange, WebFilterChain chain) {
+        ServerHttpRequest request = exchange.getRequest();
+        if (!ReactiveTokenAuthenticationFilter.lookupPath(request).startsWith("/api/facilities")
+                || !limits.appliesTo(request.getMethod().name())) {
+            return chain.filter(exchange);
+        }
+        return facilityKey(request)
+                .map(Optional::of)
+                .defaultIfEmpty(Optional.empty())
+                .flatMap(facilityKey -> {
+                    long wait = limits.tryAcquire(clientKey(exchange), facilityKey.orElse(null));
+                    if (wait > 0) {
+                        ServerHttpResponse response = exchange.getResponse();
+                        response.setStatusCode(HttpStatus.TOO_MANY_REQUESTS);
+                        response.getHeaders().set(HttpHeaders.RETRY_AFTER,
+                                Long.toString(WriteRateLimits.retryAfterSeconds(wait)));
+                        return response.setComplete();
+                    }
+                    return chain.filter(exchange);
+                });
+    }
+
+    private static String clientKey(ServerWebExchange exchange) {
+        Object claims = exchange.getAttribute(TokenAuthenticationFilter.CLAIMS_ATTRIBUTE);
+        InetSocketAddress address = exchange.getRequest().getRemoteAddress();
+        return WriteRateLimits.clientKey(claims instanceof TokenClaims tokenClaims ? tokenClaims : null,
+                address == null ? "unknown" : address.getHostString());
+    }
+
+    /**
+     * Keys a write by the ID of the facility in its path, or completes empty for writes
+     * that name none or name one that does not exist.
+     */
+    private Mono<String> facilityKey(ServerHttpRequest request) {
+        PathContainer path = request.getPath().pathWithinApplication();
+        PathPattern.PathMatchInfo match = BY_NAME.matchAndExtract(path);
+        if (match == null) {
+            match = BY_ID.matchAndExtract(path);
+        }
+        if (match == null) {
+            return Mono.empty();
+        }
+        Map<String, String> variables = match.getUriVariables();
+        if (variables.get("id") != null) {
+            return Mono.just(variables.get("id"));
+        }
+        return facilityService.getFacilityByName(variables.get("name")).map(Facility::getId);
+    }
+}
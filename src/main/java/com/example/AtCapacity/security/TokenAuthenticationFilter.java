@@ -0,0 +1,67 @@
+package com.example.AtCapacity.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+import org.springframework.web.util.UrlPathHelper;
+
+import java.io.IOException;
+import java.util.Optional;
+
+/**
+ * Requires a valid session token on facility write endpoints (anything but GET, HEAD
+ * and OPTIONS under /api/facilities). Verification is a single HMAC, with no database
+ * lookup and no BCrypt. The path is matched decoded and without matrix parameters,
+ * as the controllers see it, so an encoded path cannot skip the check. Disabled
+ * unless {@code atcapacity.auth.enabled=true}.
+ */
+@Component
+@Profile("!reactive")
+public class TokenAuthenticationFilter extends OncePerRequestFilter {
+
+    /** Request attribute holding the verified {@link TokenClaims} */
+    public static final String CLAIMS_ATTRIBUTE = TokenAuthenticationFilter.class.getName() + ".claims";
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final TokenService tokenService;
+    private final boolean enabled;
+
+    public TokenAuthenticationFilter(TokenService tokenService,
+                                     @Value("${atcapacity.auth.enabled:false}") boolean enabled) {
+        this.tokenService = tokenService;
+        this.enabled = enabled;
+    }
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        if (!enabled || !UrlPathHelper.defaultInstance.getLookupPathForRequest(request).startsWith("/api/facilities")) {
+            return true;
+        }
+        String method = request.getMethod();
+        return "GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        Optional<TokenClaims> claims = header != null && header.startsWith(BEARER_PREFIX)
+                ? tokenService.verify(header.substring(BEARER_PREFIX.length()).trim())
+                : Optional.empty();
+
+        if (claims.isEmpty()) {
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            response.sendError(HttpServletResponse.SC_UNAUTHORIZED, "A valid session token is required");
+            return;
+        }
+        request.setAttribute(CLAIMS_ATTRIBUTE, claims.get());
+        chain.doFilter(request, response);
+    }
+}
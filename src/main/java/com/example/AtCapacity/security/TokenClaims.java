@@ -0,0 +1,12 @@
+package com.example.AtCapacity.security;
+
+import java.time.Instant;
+
+/**
+ * Verified contents of a session token.
+ * @param username authenticated user
+ * @param role user's role at login time
+ * @param expiresAt instant after which the token is rejected
+ */
+public record TokenClaims(String username, String role, Instant expiresAt) {
+}
@@ -0,0 +1,160 @@
+package com.example.AtCapacity.security;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * Issues and verifies stateless HMAC-SHA256 session tokens.
+ * <p>
+ * Format: {@code kid.base64url(username).base64url(role).expiryEpochSeconds.base64url(hmac)}.
+ * Verification needs only the signing keys, so any instance can check a token issued
+ * by another without shared state or a database lookup. Keys are configured as
+ * {@code kid:base64secret} pairs; new tokens are signed with the active key while
+ * tokens signed with any other configured key stay valid, which allows rotation.
+ */
+@Service
+public class TokenService {
+
+    private static final Logger log = LoggerFactory.getLogger(TokenService.class);
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private final Map<String, Mac> macsByKeyId;
+    private final String activeKeyId;
+    private final Duration ttl;
+    private final Clock clock;
+
+    @Autowired
+    public TokenService(@Value("${atcapacity.auth.token.keys:}") String keys,
+                        @Value("${atcapacity.auth.token.active-key:}") String activeKeyId,
+                        @Value("${atcapacity.auth.token.ttl-seconds:3600}") long ttlSeconds) {
+        this(keys, activeKeyId, Duration.ofSeconds(ttlSeconds), Clock.systemUTC());
+    }
+
+    TokenService(String keys, String activeKeyId, Duration ttl, Clock clock) {
+        this.macsByKeyId = parseKeys(keys);
+        if (macsByKeyId.isEmpty()) {
+            log.warn("No atcapacity.auth.token.keys configured; using a random key, tokens will not survive a restart or work across instances");
+            byte[] secret = new byte[32];
+            new SecureRandom().nextBytes(secret);
+            macsByKeyId.put("ephemeral", newMac(secret));
+            this.activeKeyId = "ephemeral";
+        } else if (activeKeyId == null || activeKeyId.isBlank()) {
+            throw new IllegalStateException("atcapacity.auth.token.active-key must name one of the configured keys");
+        } else if (!macsByKeyId.containsKey(activeKeyId)) {
+            throw new IllegalStateException("Active token key '" + activeKeyId + "' is not configured");
+        } else {
+            this.activeKeyId = activeKeyId;
+        }
+        this.ttl = ttl;
+        this.clock = clock;
+    }
+
+    /**
+     * A freshly issued token and its expiry.
+     */
+    public record IssuedToken(String token, Instant expiresAt) {
+    }
+
+    /**
+     * Issues a token for a user who has just been authenticated.
+     */
+    public IssuedToken issue(String username, String role) {
+        Instant expiresAt = clock.instant().plus(ttl);
+        String unsigned = activeKeyId
+                + '.' + encode(username)
+                + '.' + encode(role == null ? "" : role)
+                + '.' + expiresAt.getEpochSecond();
+        return new IssuedToken(unsigned + '.' + ENCODER.encodeToString(sign(activeKeyId, unsigned)), expiresAt);
+    }
+
+    /**
+     * Checks a token's signature in constant time and its expiry.
+     * @return the claims, or empty if the token is malformed, forged, signed with an unknown key or expired
+     */
+    public Optional<TokenClaims> verify(String token) {
+        if (token == null) {
+            return Optional.empty();
+        }
+        String[] parts = token.split("\\.");
+        if (parts.length != 5 || !macsByKeyId.containsKey(parts[0])) {
+            return Optional.empty();
+        }
+        try {
+            String unsigned = token.substring(0, token.lastIndexOf('.'));
+            byte[] expected = sign(parts[0], unsigned);
+            if (!MessageDigest.isEqual(expected, DECODER.decode(parts[4]))) {
+                return Optional.empty();
+            }
+            Instant expiresAt = Instant.ofEpochSecond(Long.parseLong(parts[3]));
+            if (!clock.instant().isBefore(expiresAt)) {
+                return Optional.empty();
+            }
+            return Optional.of(new TokenClaims(decode(parts[1]), decode(parts[2]), expiresAt));
+        } catch (IllegalArgumentException e) {
+            return Optional.empty();
+        }
+    }
+
+    private byte[] sign(String keyId, String unsigned) {
+        Mac mac;
+        try {
+            // Mac is not thread-safe; cloning the initialized prototype skips key setup
+            mac = (Mac) macsByKeyId.get(keyId).clone();
+        } catch (CloneNotSupportedException e) {
+            throw new IllegalStateException(e);
+        }
+        return mac.doFinal(unsigned.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static Map<String, Mac> parseKeys(String keys) {
+        Map<String, Mac> macs = new HashMap<>();
+        if (keys == null || keys.isBlank()) {
+            return macs;
+        }
+        for (String pair : keys.split(",")) {
+            String[] idAndSecret = pair.trim().split(":", 2);
+            if (idAndSecret.length != 2 || idAndSecret[0].isBlank() || idAndSecret[0].contains(".")) {
+                throw new IllegalStateException("Token keys must be comma-separated kid:base64secret pairs");
+            }
+            macs.put(idAndSecret[0], newMac(Base64.getDecoder().decode(idAndSecret[1])));
+        }
+        return macs;
+    }
+
+    private static Mac newMac(byte[] secret) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(new SecretKeySpec(secret, ALGORITHM));
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static String encode(String value) {
+        return ENCODER.encodeToString(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static String decode(String value) {
+        return new String(DECODER.decode(value), StandardCharsets.UTF_8);
+    }
+}
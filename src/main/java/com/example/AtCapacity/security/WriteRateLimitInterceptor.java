@@ -0,0 +1,76 @@
+package com.example.AtCapacity.security;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.service.FacilityService;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.HandlerInterceptor;
+import org.springframework.web.servlet.HandlerMapping;
+
+import java.io.IOException;
+import java.util.Map;
+
+/**
+ * Rate-limits facility writes (anything but GET, HEAD and OPTIONS under
+ * /api/facilities) with {@link WriteRateLimits}; a write over a limit is answered
+ * 429 with Retry-After. The client is the authenticated user when a session token
+ * was verified, else the remote address. A facility named in the path is resolved
+ * to its ID, through the facility cache.
+ */
+@Component
+@Profile("!reactive")
+public class WriteRateLimitInterceptor implements HandlerInterceptor {
+
+    private final WriteRateLimits limits;
+    private final FacilityService facilityService;
+
+    public WriteRateLimitInterceptor(WriteRateLimits limits, FacilityService facilityService) {
+        this.limits = limits;
+        this.facilityService = facilityService;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler)
+            throws IOException {
+        if (!limits.appliesTo(request.getMethod())) {
+            return true;
+        }
+        String clientKey = clientKey(request);
+        long wait = limits.tryAcquire(clientKey, facilityKey(request));
+        if (wait > 0) {
+            response.setHeader(HttpHeaders.RETRY_AFTER, Long.toString(WriteRateLimits.retryAfterSeconds(wait)));
+            response.sendError(HttpStatus.TOO_MANY_REQUESTS.value(), "Too many writes; retry later");
+            return false;
+        }
+        request.setAttribute(WriteRateLimits.CLIENT_KEY_ATTRIBUTE, clientKey);
+        return true;
+    }
+
+    private static String clientKey(HttpServletRequest request) {
+        Object claims = request.getAttribute(TokenAuthenticationFilter.CLAIMS_ATTRIBUTE);
+        return WriteRateLimits.clientKey(claims instanceof TokenClaims tokenClaims ? tokenClaims : null,
+                request.getRemoteAddr());
+    }
+
+    /**
+     * Keys a write by the ID of the facility in its path, or returns null for writes
+     * that name none or name one that does not exist.
+     */
+    @SuppressWarnings("unchecked")
+    private String facilityKey(HttpServletRequest request) {
+        Object attribute = request.getAttribute(HandlerMapping.URI_TEMPLATE_VARIABLES_ATTRIBUTE);
+        if (!(attribute instanceof Map<?, ?>)) {
+            return null;
+        }
+        Map<String, String> variables = (Map<String, String>) attribute;
+        if (variables.get("id") != null) {
+            return variables.get("id");
+        }
+        String name = variables.get("name");
+        return name == null ? null : facilityService.getFacilityByName(name).map(Facility::getId).orElse(null);
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.AtCapacity.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Rate limits on facility writes, shared by {@link WriteRateLimitInterceptor} and
+ * {@link ReactiveWriteRateLimitFilter}, so a faulty sensor or script cannot use up
+ * MongoDB write capacity meant for everyone else. A write must get a permit from its
+ * client's bucket and, when it names a facility, from that facility's bucket, keyed by
+ * facility ID so a write by name draws on the same bucket as one by ID. A write
+ * that only the facility's bucket turns away gives its client permit back, so clients
+ * are not charged for writes to a busy facility. A batch of occupancy events costs
+ * its client one permit and each facility it names one permit; the facilities are
+ * only known once the body is read, so the controller charges them with
+ * {@link #tryAcquireFacilities}. Disabled unless {@code atcapacity.ratelimit.enabled=true}.
+ */
+@Component
+public class WriteRateLimits {
+
+    /** Request attribute holding the client key of a write that was admitted */
+    public static final String CLIENT_KEY_ATTRIBUTE = WriteRateLimits.class.getName() + ".clientKey";
+
+    private final boolean enabled;
+    private final RateLimiter clients;
+    private final RateLimiter facilities;
+    private final Counter clientRejections;
+    private final Counter facilityRejections;
+
+    @Autowired
+    public WriteRateLimits(@Value("${atcapacity.ratelimit.enabled:false}") boolean enabled,
+                           @Value("${atcapacity.ratelimit.client.permits-per-second:20}") double clientRate,
+                           @Value("${atcapacity.ratelimit.client.burst:40}") int clientBurst,
+                           @Value("${atcapacity.ratelimit.facility.permits-per-second:200}") double facilityRate,
+                           @Value("${atcapacity.ratelimit.facility.burst:400}") int facilityBurst,
+                           @Value("${atcapacity.ratelimit.maximum-keys:100000}") long maximumKeys,
+                           MeterRegistry registry) {
+        this(enabled, new RateLimiter(clientRate, clientBurst, maximumKeys),
+                new RateLimiter(facilityRate, facilityBurst, maximumKeys), registry);
+    }
+
+    WriteRateLimits(boolean enabled, RateLimiter clients, RateLimiter facilities, MeterRegistry registry) {
+        this.enabled = enabled;
+        this.clients = clients;
+        this.facilities = facilities;
+        this.clientRejections = rejections(registry, "client");
+        this.facilityRejections = rejections(registry, "facility");
+        Gauge.builder("atcapacity.ratelimit.buckets", clients, RateLimiter::size)
+                .description("Rate-limit buckets held")
+                .tag("scope", "client")
+                .register(registry);
+        Gauge.builder("atcapacity.ratelimit.buckets", facilities, RateLimiter::size)
+                .description("Rate-limit buckets held")
+                .tag("scope", "facility")
+                .register(registry);
+    }
+
+    /**
+     * Tells whether requests with this method are limited at all.
+     */
+    boolean appliesTo(String method) {
+        return enabled && !("GET".equals(method) || "HEAD".equals(method) || "OPTIONS".equals(method));
+    }
+
+    /**
+     * Takes a permit for one write from both buckets, or from neither.
+     * @param clientKey the authenticated user or remote address
+     * @param facilityKey ID of the facility the write names, or null if it names none
+     * @return 0 if the write is admitted, otherwise how long to wait, in nanoseconds
+     */
+    long tryAcquire(String clientKey, String facilityKey) {
+        long wait = clients.tryAcquire(clientKey);
+        if (wait > 0) {
+            clientRejections.increment();
+            return wait;
+        }
+        if (facilityKey != null) {
+            wait = facilities.tryAcquire(facilityKey);
+            if (wait > 0) {
+                clients.release(clientKey);
+                facilityRejections.increment();
+                return wait;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Takes one permit from each facility's bucket, or from none, for a write whose
+     * client permit was already taken. If a facility turns the write away, the client
+     * permit is given back too.
+     * @param clientKey the key the client permit was taken under, or null if none was
+     * @param facilityKeys IDs of the distinct facilities the write names
+     * @return 0 if the write is admitted, otherwise how long to wait, in nanoseconds
+     */
+    public long tryAcquireFacilities(String clientKey, Collection<String> facilityKeys) {
+        if (!enabled || clientKey == null) {
+            return 0;
+        }
+        List<String> taken = new ArrayList<>(facilityKeys.size());
+        for (String facilityKey : facilityKeys) {
+            long wait = facilities.tryAcquire(facilityKey);
+            if (wait > 0) {
+                taken.forEach(facilities::release);
+                clients.release(clientKey);
+                facilityRejections.increment();
+                return wait;
+            }
+            taken.add(facilityKey);
+        }
+        return 0;
+    }
+
+    static String clientKey(TokenClaims claims, String remoteAddress) {
+        return claims != null ? "user:" + claims.username() : "addr:" + remoteAddress;
+    }
+
+    /**
+     * Rounds a wait up to whole seconds, at least one, for Retry-After.
+     */
+    public static long retryAfterSeconds(long waitNanos) {
+        return Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+    }
+
+    private static Counter rejections(MeterRegistry registry, String scope) {
+        return Counter.builder("atcapacity.ratelimit.rejections")
+                .description("Facility writes rejected with 429, by the bucket that ran out")
+                .tag("scope", scope)
+                .register(registry);
+    }
+}
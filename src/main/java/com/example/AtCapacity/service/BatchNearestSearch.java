@@ -0,0 +1,97 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import jakarta.annotation.PreDestroy;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Runs the origins of a batch nearest query in parallel on a dedicated
+ * fork-join pool, so large batches never occupy the common pool.
+ * <p>
+ * Also keeps the coordinates snapshot batches scan when the spatial index is off.
+ * It is dropped whenever a facility is created, edited or deleted, here or, with
+ * sync on, on another instance, and is reloaded at the latest after the max age,
+ * which bounds how long writes this instance is not told about go unseen.
+ */
+@Component
+public class BatchNearestSearch {
+
+    private record Loaded(FacilityCoordinates coordinates, long generation, long loadedAtNanos) {
+    }
+
+    private final ForkJoinPool pool = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+    private final long maxAgeNanos;
+    private final AtomicLong generation = new AtomicLong();
+    private final ReentrantLock loadLock = new ReentrantLock();
+
+    private volatile Loaded loaded;
+
+    public BatchNearestSearch(@Value("${atcapacity.nearest.batch.coordinates-max-age-ms:60000}") long maxAgeMs) {
+        this.maxAgeNanos = Duration.ofMillis(maxAgeMs).toNanos();
+    }
+
+    /**
+     * Answers each query with the given search, in query order.
+     */
+    <T> List<T> search(List<NearestQuery> queries, Function<NearestQuery, T> nearest) {
+        return pool.submit(() -> queries.parallelStream()
+                        .map(nearest)
+                        .toList())
+                .join();
+    }
+
+    /**
+     * The cached coordinates snapshot, loaded with {@code loader} if there is none,
+     * it is older than the max age, or a facility changed since it was loaded.
+     * Concurrent callers share one load.
+     */
+    FacilityCoordinates coordinates(Supplier<FacilityCoordinates> loader) {
+        Loaded current = loaded;
+        if (isFresh(current)) {
+            return current.coordinates();
+        }
+        loadLock.lock();
+        try {
+            current = loaded;
+            if (isFresh(current)) {
+                return current.coordinates();
+            }
+            // Read before loading, so a change made during the load leaves the snapshot stale
+            long loadingGeneration = generation.get();
+            long loadedAt = System.nanoTime();
+            FacilityCoordinates coordinates = loader.get();
+            loaded = new Loaded(coordinates, loadingGeneration, loadedAt);
+            return coordinates;
+        } finally {
+            loadLock.unlock();
+        }
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        // Occupancy never moves a facility or changes its type
+        if (event.kind() != FacilityChangedEvent.Kind.OCCUPANCY) {
+            generation.incrementAndGet();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    private boolean isFresh(Loaded current) {
+        return current != null && current.generation() == generation.get()
+                && System.nanoTime() - current.loadedAtNanos() < maxAgeNanos;
+    }
+}
@@ -0,0 +1,208 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Bounded read-through cache of facilities keyed by ID, with a name-to-ID index.
+ * <p>
+ * Facility metadata rarely changes and is kept until evicted by size or TTL, or
+ * invalidated by a write. Occupancy changes constantly, so a cached entry whose
+ * occupancy is older than the configured bound is reloaded instead of served.
+ * Occupancy changes made through this instance are written into the cache.
+ */
+@Component
+public class FacilityCache {
+
+    private final Cache<String, Entry> byId;
+    private final Cache<String, String> idsByName;
+    private final ConcurrentHashMap<String, CompletableFuture<Entry>> loading = new ConcurrentHashMap<>();
+    private final long occupancyMaxStalenessNanos;
+
+    public FacilityCache(@Value("${atcapacity.cache.maximum-size:10000}") long maximumSize,
+                         @Value("${atcapacity.cache.ttl-ms:600000}") long ttlMs,
+                         @Value("${atcapacity.cache.occupancy-max-staleness-ms:2000}") long occupancyMaxStalenessMs) {
+        this.byId = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .recordStats()
+                .build();
+        this.idsByName = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(Duration.ofMillis(ttlMs))
+                .build();
+        this.occupancyMaxStalenessNanos = Duration.ofMillis(occupancyMaxStalenessMs).toNanos();
+    }
+
+    /**
+     * Returns a copy of the cached facility, loading it on a miss or when its occupancy is too old.
+     */
+    public Optional<Facility> getById(String id, Function<String, Optional<Facility>> loader) {
+        Entry entry = byId.getIfPresent(id);
+        if (entry == null || entry.isOccupancyStale(occupancyMaxStalenessNanos)) {
+            // Stale occupancy counts as a miss
+            entry = load(id, loader);
+            if (entry == null) {
+                return Optional.empty();
+            }
+            if (entry.facility.getName() != null) {
+                idsByName.put(entry.facility.getName(), id);
+            }
+        }
+        return Optional.of(entry.copy());
+    }
+
+    /**
+     * Loads one key with at most one load in flight per key. The load runs outside
+     * any map lock: compute() would hold a monitor across the MongoDB call, which
+     * pins the carrier thread when requests run on virtual threads.
+     */
+    private Entry load(String id, Function<String, Optional<Facility>> loader) {
+        CompletableFuture<Entry> mine = new CompletableFuture<>();
+        CompletableFuture<Entry> inFlight = loading.putIfAbsent(id, mine);
+        if (inFlight != null) {
+            try {
+                return inFlight.join();
+            } catch (CompletionException e) {
+                throw e.getCause() instanceof RuntimeException cause ? cause : e;
+            }
+        }
+        try {
+            Entry current = byId.asMap().get(id);
+            Entry loaded = current != null && !current.isOccupancyStale(occupancyMaxStalenessNanos)
+                    ? current
+                    : loader.apply(id).map(Entry::new).orElse(null);
+            // Store only if no invalidate() ran during the load; it removes our marker first
+            byId.asMap().compute(id, (key, existing) -> loading.get(key) == mine ? loaded : existing);
+            mine.complete(loaded);
+            return loaded;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            loading.remove(id, mine);
+        }
+    }
+
+    /**
+     * Returns a copy of the cached facility with the given name, loading it on a miss.
+     */
+    public Optional<Facility> getByName(String name, Function<String, Optional<Facility>> idLoader,
+                                        Function<String, Optional<Facility>> nameLoader) {
+        String id = idsByName.getIfPresent(name);
+        if (id != null) {
+            Optional<Facility> facility = getById(id, idLoader);
+            if (facility.isPresent() && name.equals(facility.get().getName())) {
+                return facility;
+            }
+            idsByName.invalidate(name);
+        }
+        Optional<Facility> loaded = nameLoader.apply(name);
+        loaded.ifPresent(facility -> {
+            byId.put(facility.getId(), new Entry(facility));
+            idsByName.put(name, facility.getId());
+        });
+        return loaded.map(Facility::new);
+    }
+
+    /**
+     * Records an occupancy value just written, through this instance or another one.
+     * A value older than the cached one, by version, is ignored, so a late change-stream
+     * event cannot roll the cache back.
+     * @param version the document version after the write, or null if unknown
+     */
+    public void updateOccupancy(String id, int occupancy, Long version) {
+        // asMap().get() so internal bookkeeping does not count as hits or misses
+        Entry entry = byId.asMap().get(id);
+        if (entry != null) {
+            entry.setOccupancy(occupancy, version);
+        }
+    }
+
+    public void invalidate(Facility facility) {
+        if (facility.getId() != null) {
+            loading.remove(facility.getId());
+            Entry entry = byId.asMap().get(facility.getId());
+            if (entry != null && entry.facility.getName() != null) {
+                idsByName.invalidate(entry.facility.getName());
+            }
+            byId.invalidate(facility.getId());
+        }
+        if (facility.getName() != null) {
+            idsByName.invalidate(facility.getName());
+        }
+    }
+
+    public void invalidateAll() {
+        loading.clear();
+        byId.invalidateAll();
+        idsByName.invalidateAll();
+    }
+
+    /**
+     * Hit, miss and eviction counts of the ID cache since startup.
+     */
+    public CacheStats stats() {
+        return byId.stats();
+    }
+
+    public long size() {
+        return byId.estimatedSize();
+    }
+
+    /**
+     * The underlying ID cache, for binding its statistics to metrics.
+     */
+    Cache<String, ?> nativeCache() {
+        return byId;
+    }
+
+    private static final class Entry {
+
+        /** Never handed out; readers get copies */
+        private final Facility facility;
+        private volatile int occupancy;
+        /** Version matching {@link #occupancy}; occupancy writes increment it */
+        private volatile Long version;
+        private volatile long occupancyAsOfNanos;
+
+        Entry(Facility facility) {
+            this.facility = facility;
+            setOccupancy(facility.getCurrentOccupancy(), facility.getVersion());
+        }
+
+        void setOccupancy(int occupancy, Long version) {
+            Long current = this.version;
+            if (version != null && current != null && version < current) {
+                return;
+            }
+            this.occupancy = occupancy;
+            if (version != null) {
+                this.version = version;
+            }
+            this.occupancyAsOfNanos = System.nanoTime();
+        }
+
+        boolean isOccupancyStale(long maxStalenessNanos) {
+            return System.nanoTime() - occupancyAsOfNanos > maxStalenessNanos;
+        }
+
+        Facility copy() {
+            Facility copy = new Facility(facility);
+            copy.setCurrentOccupancy(occupancy);
+            copy.setVersion(version);
+            return copy;
+        }
+    }
+}
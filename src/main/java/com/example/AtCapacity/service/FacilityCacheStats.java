@@ -0,0 +1,13 @@
+package com.example.AtCapacity.service;
+
+import com.github.benmanes.caffeine.cache.stats.CacheStats;
+
+/**
+ * Snapshot of facility cache statistics since startup.
+ */
+public record FacilityCacheStats(long size, long hitCount, long missCount, double hitRate, long evictionCount) {
+
+    static FacilityCacheStats of(CacheStats stats, long size) {
+        return new FacilityCacheStats(size, stats.hitCount(), stats.missCount(), stats.hitRate(), stats.evictionCount());
+    }
+}
@@ -0,0 +1,94 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.repository.FacilityChangeSequence;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.function.LongSupplier;
+
+/**
+ * Tells delta-sync clients which sequence to continue from. Every facility write is
+ * numbered from one counter in MongoDB and stamps its number on the document it
+ * changes, or on a tombstone for a delete ({@link FacilityChangeSequence}), so any
+ * instance can find what changed after a sequence any other instance handed out.
+ * <p>
+ * A write takes its number just before it lands, so a write numbered before a poll
+ * may land after the poll's read. The sequence handed back is therefore not the
+ * highest one taken but the highest one that was already taken a settle interval
+ * ago; writes land well within that. Changes made during the last interval are sent
+ * again on the next poll, which is harmless as each carries the current state.
+ */
+@Component
+public class FacilityChangeLog {
+
+    /**
+     * Answer to {@link #since(Long)}.
+     * @param sequence the client's next {@code since}
+     * @param resync true if the changes cannot be told and the client must fetch everything
+     */
+    record Delta(long sequence, boolean resync) {
+    }
+
+    /** The counter's value when it was read */
+    private record Reading(long atNanos, long sequence) {
+    }
+
+    private final LongSupplier counter;
+    private final LongSupplier nanoClock;
+    private final long settleNanos;
+
+    /** Readings newer than the settle interval, after the newest one older than it; guarded by this */
+    private final ArrayDeque<Reading> readings = new ArrayDeque<>();
+
+    @Autowired
+    public FacilityChangeLog(MongoTemplate mongoTemplate,
+                             @Value("${atcapacity.changes.settle-ms:2000}") long settleMs) {
+        this(() -> FacilityChangeSequence.current(mongoTemplate), System::nanoTime,
+                Duration.ofMillis(settleMs).toNanos());
+    }
+
+    FacilityChangeLog(LongSupplier counter, LongSupplier nanoClock, long settleNanos) {
+        this.counter = counter;
+        this.nanoClock = nanoClock;
+        this.settleNanos = settleNanos;
+    }
+
+    /**
+     * @param since the sequence the client last got, or null to start
+     * @throws DataAccessException if MongoDB is unreachable
+     */
+    Delta since(Long since) {
+        long current = counter.getAsLong();
+        long settled = settle(current);
+        if (since == null || since > current) {
+            // A sequence the counter has not reached was handed out before the counter was reset
+            return new Delta(settled, true);
+        }
+        return new Delta(Math.max(since, settled), false);
+    }
+
+    /**
+     * Records a reading of the counter.
+     * @return the newest reading at least a settle interval old, or 0 if there is none yet
+     */
+    private synchronized long settle(long current) {
+        long now = nanoClock.getAsLong();
+        if (readings.isEmpty() || readings.peekLast().sequence() < current) {
+            readings.addLast(new Reading(now, current));
+        }
+        Reading settled = null;
+        while (!readings.isEmpty() && now - readings.peekFirst().atNanos() >= settleNanos) {
+            settled = readings.pollFirst();
+        }
+        if (settled == null) {
+            return 0;
+        }
+        readings.addFirst(settled);
+        return settled.sequence();
+    }
+}
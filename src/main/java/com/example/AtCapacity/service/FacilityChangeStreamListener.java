@@ -0,0 +1,391 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.repository.FacilityRepository;
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.mongodb.MongoCommandException;
+import com.mongodb.client.ChangeStreamIterable;
+import com.mongodb.client.MongoChangeStreamCursor;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.changestream.ChangeStreamDocument;
+import com.mongodb.client.model.changestream.FullDocument;
+import com.mongodb.client.model.changestream.OperationType;
+import com.mongodb.client.model.changestream.UpdateDescription;
+import jakarta.annotation.PreDestroy;
+import org.bson.BsonDocument;
+import org.bson.BsonValue;
+import org.bson.Document;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Date;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Keeps this instance's in-memory facility state coherent with writes made by other
+ * instances, by following a MongoDB change stream on the facilities collection.
+ * <p>
+ * Each remote insert, update or delete is applied to the lookup cache, the occupancy
+ * engine's counters and the spatial index, and republished as a
+ * {@link FacilityChangedEvent} flagged {@code remote}, so the live stream, open-now
+ * index and popular times see it too. This instance's own writes come
+ * back through the stream as well; they are recognised by version and skipped.
+ * <p>
+ * The resume token is saved per instance at most once per save interval, so after a
+ * restart the stream resumes where it stopped. If the oplog no longer reaches back to
+ * the token, or there is no token yet, all facilities are reloaded instead, after the
+ * new stream is opened so nothing written during the reload is missed. Change streams
+ * need a replica set, so the listener is off unless {@code atcapacity.sync.enabled}.
+ */
+@Component
+public class FacilityChangeStreamListener implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(FacilityChangeStreamListener.class);
+
+    static final String TOKENS_COLLECTION = "change_stream_tokens";
+
+    /** ChangeStreamHistoryLost and ChangeStreamFatalError: the token is no longer in the oplog */
+    private static final Set<Integer> HISTORY_LOST_CODES = Set.of(286, 280);
+
+    /** Fields an occupancy write touches; updates of only these skip a full refresh */
+    private static final Set<String> OCCUPANCY_FIELDS = Set.of("currentOccupancy", "version", "changeSeq");
+
+    /** Stands for a delete in {@link #localVersions} */
+    private static final long DELETED = Long.MAX_VALUE;
+
+    private static final Duration MAX_AWAIT = Duration.ofSeconds(1);
+    private static final Duration MAX_BACKOFF = Duration.ofSeconds(30);
+
+    private final MongoTemplate mongoTemplate;
+    private final FacilityRepository facilityRepository;
+    private final FacilityCache facilityCache;
+    private final OccupancyEngine occupancyEngine;
+    private final FacilitySpatialIndex spatialIndex;
+    private final OpenNowIndex openNowIndex;
+    private final ApplicationEventPublisher eventPublisher;
+    private final boolean enabled;
+    private final String instanceId;
+    private final long tokenSaveIntervalNanos;
+
+    /** Highest version of each facility written by this instance, to recognise its own writes */
+    private final Cache<String, Long> localVersions = Caffeine.newBuilder()
+            .expireAfterWrite(Duration.ofMinutes(5))
+            .maximumSize(100_000)
+            .build();
+
+    private volatile boolean running;
+    private volatile boolean following;
+    private volatile BsonDocument resumeToken;
+    private BsonDocument savedToken;
+    private long tokenSavedAtNanos;
+    private Thread thread;
+
+    public FacilityChangeStreamListener(MongoTemplate mongoTemplate, FacilityRepository facilityRepository,
+                                        FacilityCache facilityCache, OccupancyEngine occupancyEngine,
+                                        FacilitySpatialIndex spatialIndex, OpenNowIndex openNowIndex,
+                                        ApplicationEventPublisher eventPublisher,
+                                        @Value("${atcapacity.sync.enabled:false}") boolean enabled,
+                                        @Value("${atcapacity.sync.instance-id:${HOSTNAME:local}}") String instanceId,
+                                        @Value("${atcapacity.sync.token-save-interval-ms:1000}") long tokenSaveIntervalMs) {
+        this.mongoTemplate = mongoTemplate;
+        this.facilityRepository = facilityRepository;
+        this.facilityCache = facilityCache;
+        this.occupancyEngine = occupancyEngine;
+        this.spatialIndex = spatialIndex;
+        this.openNowIndex = openNowIndex;
+        this.eventPublisher = eventPublisher;
+        this.enabled = enabled;
+        this.instanceId = instanceId;
+        this.tokenSaveIntervalNanos = Duration.ofMillis(tokenSaveIntervalMs).toNanos();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * True while the stream is open; remote writes made from then on are applied.
+     */
+    public boolean isFollowing() {
+        return following;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        running = true;
+        thread = new Thread(this::run, "facility-change-stream");
+        thread.setDaemon(true);
+        thread.start();
+    }
+
+    @PreDestroy
+    public void shutdown() throws InterruptedException {
+        if (thread == null) {
+            return;
+        }
+        running = false;
+        thread.join(MAX_AWAIT.multipliedBy(2).toMillis());
+        saveResumeToken(true);
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        if (!enabled || event.remote()) {
+            return;
+        }
+        if (event.kind() == FacilityChangedEvent.Kind.DELETED) {
+            localVersions.put(event.facilityId(), DELETED);
+        } else if (event.facility() != null && event.facility().getVersion() != null) {
+            localVersions.asMap().merge(event.facilityId(), event.facility().getVersion(), Math::max);
+        }
+    }
+
+    private void run() {
+        resumeToken = loadResumeToken();
+        boolean reload = resumeToken == null;
+        long backoffMillis = MAX_AWAIT.toMillis();
+        while (running) {
+            try {
+                if (follow(reload)) {
+                    // E.g. the collection was dropped; an invalidated stream cannot be resumed
+                    resumeToken = null;
+                    reload = true;
+                }
+            } catch (MongoCommandException e) {
+                if (!HISTORY_LOST_CODES.contains(e.getErrorCode())) {
+                    backoffMillis = backOff(e, backoffMillis);
+                    continue;
+                }
+                log.warn("Change stream cannot resume from the saved token; reloading all facilities");
+                resumeToken = null;
+                reload = true;
+            } catch (RuntimeException e) {
+                if (!running) {
+                    return;
+                }
+                backoffMillis = backOff(e, backoffMillis);
+                continue;
+            }
+            backoffMillis = MAX_AWAIT.toMillis();
+        }
+    }
+
+    /**
+     * Follows the stream until it is invalidated or the listener stops.
+     * @param reload true to reload every facility once the stream is open
+     * @return true if the stream was invalidated
+     */
+    private boolean follow(boolean reload) {
+        MongoCollection<Document> collection = mongoTemplate.getCollection(mongoTemplate.getCollectionName(Facility.class));
+        ChangeStreamIterable<Document> stream = collection.watch()
+                .fullDocument(FullDocument.UPDATE_LOOKUP)
+                .maxAwaitTime(MAX_AWAIT.toMillis(), TimeUnit.MILLISECONDS);
+        if (resumeToken != null) {
+            stream = stream.resumeAfter(resumeToken);
+        }
+        try (MongoChangeStreamCursor<ChangeStreamDocument<Document>> cursor = stream.cursor()) {
+            if (reload) {
+                reloadAll();
+            }
+            following = true;
+            while (running) {
+                ChangeStreamDocument<Document> change = cursor.tryNext();
+                if (change != null && !apply(change)) {
+                    return true;
+                }
+                // Advances even when idle, so a quiet collection does not age the saved token
+                resumeToken = cursor.getResumeToken();
+                saveResumeToken(false);
+            }
+            return false;
+        } finally {
+            following = false;
+        }
+    }
+
+    /**
+     * @return false if the change invalidates the stream
+     */
+    private boolean apply(ChangeStreamDocument<Document> change) {
+        OperationType type = change.getOperationType();
+        if (type == OperationType.INVALIDATE || type == OperationType.DROP
+                || type == OperationType.RENAME || type == OperationType.DROP_DATABASE) {
+            return false;
+        }
+        String id = idOf(change.getDocumentKey());
+        if (id == null) {
+            return true;
+        }
+        Instant timestamp = change.getWallTime() == null
+                ? Instant.now()
+                : Instant.ofEpochMilli(change.getWallTime().getValue());
+        if (type == OperationType.DELETE) {
+            applyDelete(id, timestamp);
+            return true;
+        }
+        if (change.getFullDocument() == null) {
+            // Deleted before the lookup; the delete follows in the stream
+            return true;
+        }
+        Facility stored = mongoTemplate.getConverter().read(Facility.class, change.getFullDocument());
+        if (isOwn(id, stored.getVersion())) {
+            return true;
+        }
+        switch (type) {
+            case INSERT -> applyFull(stored, FacilityChangedEvent.Kind.CREATED, timestamp, false);
+            case REPLACE -> applyFull(stored, FacilityChangedEvent.Kind.UPDATED, timestamp, true);
+            case UPDATE -> {
+                if (isOccupancyOnly(change.getUpdateDescription())) {
+                    applyOccupancy(stored, timestamp);
+                } else {
+                    applyFull(stored, FacilityChangedEvent.Kind.UPDATED, timestamp, false);
+                }
+            }
+            default -> {
+                // Other operation types carry no facility change
+            }
+        }
+        return true;
+    }
+
+    private void applyDelete(String id, Instant timestamp) {
+        Long local = localVersions.getIfPresent(id);
+        if (local != null && local == DELETED) {
+            return;
+        }
+        Facility deleted = new Facility();
+        deleted.setId(id);
+        facilityCache.invalidate(deleted);
+        occupancyEngine.evict(id);
+        spatialIndex.remove(id);
+        eventPublisher.publishEvent(FacilityChangedEvent.remote(FacilityChangedEvent.Kind.DELETED, deleted, timestamp));
+    }
+
+    /**
+     * @param replaced true for a whole-document replace, after which the counter is
+     *                 reloaded just as it is on the instance that made it
+     */
+    private void applyFull(Facility stored, FacilityChangedEvent.Kind kind, Instant timestamp, boolean replaced) {
+        facilityCache.invalidate(stored);
+        if (replaced) {
+            occupancyEngine.evict(stored.getId());
+        } else {
+            occupancyEngine.rebase(stored.getId(), stored.getCurrentOccupancy(), stored.getVersion());
+        }
+        spatialIndex.upsert(stored);
+        eventPublisher.publishEvent(FacilityChangedEvent.remote(kind, stored, timestamp));
+    }
+
+    private void applyOccupancy(Facility stored, Instant timestamp) {
+        occupancyEngine.rebase(stored.getId(), stored.getCurrentOccupancy(), stored.getVersion());
+        facilityCache.updateOccupancy(stored.getId(), stored.getCurrentOccupancy(), stored.getVersion());
+        eventPublisher.publishEvent(FacilityChangedEvent.remote(FacilityChangedEvent.Kind.OCCUPANCY,
+                occupancyEngine.overlay(stored), timestamp));
+    }
+
+    /**
+     * Own writes have a version this instance already wrote or, for occupancy engine
+     * flushes, already holds in the engine's snapshot.
+     */
+    private boolean isOwn(String id, Long version) {
+        if (version == null) {
+            return false;
+        }
+        Long local = localVersions.getIfPresent(id);
+        Long loaded = occupancyEngine.loadedVersion(id);
+        return (local != null && version <= local) || (loaded != null && version <= loaded);
+    }
+
+    private static boolean isOccupancyOnly(UpdateDescription update) {
+        if (update == null || update.getUpdatedFields() == null) {
+            return false;
+        }
+        List<String> removed = update.getRemovedFields();
+        return (removed == null || removed.isEmpty()) && OCCUPANCY_FIELDS.containsAll(update.getUpdatedFields().keySet());
+    }
+
+    private static String idOf(BsonDocument documentKey) {
+        BsonValue id = documentKey == null ? null : documentKey.get("_id");
+        if (id == null) {
+            return null;
+        }
+        if (id.isObjectId()) {
+            return id.asObjectId().getValue().toHexString();
+        }
+        return id.isString() ? id.asString().getValue() : null;
+    }
+
+    /**
+     * Rebuilds every in-memory view from the collection, for when changes were missed.
+     */
+    private void reloadAll() {
+        List<Facility> facilities = facilityRepository.findAll();
+        facilityCache.invalidateAll();
+        if (spatialIndex.isReady()) {
+            spatialIndex.rebuild(facilities);
+        }
+        openNowIndex.reload(facilities);
+        facilities.forEach(facility ->
+                occupancyEngine.rebase(facility.getId(), facility.getCurrentOccupancy(), facility.getVersion()));
+        log.info("Reloaded {} facilities for the change stream", facilities.size());
+    }
+
+    private long backOff(RuntimeException e, long backoffMillis) {
+        log.warn("Change stream failed; retrying in {} ms", backoffMillis, e);
+        try {
+            Thread.sleep(backoffMillis);
+        } catch (InterruptedException interrupted) {
+            Thread.currentThread().interrupt();
+            running = false;
+        }
+        return Math.min(backoffMillis * 2, MAX_BACKOFF.toMillis());
+    }
+
+    private BsonDocument loadResumeToken() {
+        try {
+            BsonDocument stored = mongoTemplate.getCollection(TOKENS_COLLECTION)
+                    .withDocumentClass(BsonDocument.class)
+                    .find(Filters.eq("_id", instanceId))
+                    .first();
+            return stored == null || !stored.isDocument("token") ? null : stored.getDocument("token");
+        } catch (RuntimeException e) {
+            log.warn("Could not load the change stream resume token; reloading all facilities", e);
+            return null;
+        }
+    }
+
+    private void saveResumeToken(boolean force) {
+        BsonDocument token = resumeToken;
+        long now = System.nanoTime();
+        if (token == null || token.equals(savedToken) || (!force && now - tokenSavedAtNanos < tokenSaveIntervalNanos)) {
+            return;
+        }
+        try {
+            mongoTemplate.getCollection(TOKENS_COLLECTION).replaceOne(Filters.eq("_id", instanceId),
+                    new Document("_id", instanceId).append("token", token).append("savedAt", new Date()),
+                    new ReplaceOptions().upsert(true));
+            savedToken = token;
+            tokenSavedAtNanos = now;
+        } catch (RuntimeException e) {
+            // The next save retries; a restart before then replays a little more
+            log.debug("Could not save the change stream resume token", e);
+        }
+    }
+}
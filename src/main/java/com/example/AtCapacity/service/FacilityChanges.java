@@ -0,0 +1,20 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.FacilityTombstone;
+
+import java.util.List;
+
+/**
+ * Facilities changed since a client's last change sequence.
+ * @param sequence sequence to pass as {@code since} on the next request
+ * @param resync true if the changes cannot be told; the client must fetch the full list
+ *               and then continue from {@code sequence}
+ * @param facilities current state of every facility created or changed since, full or summary
+ * @param deleted facilities deleted since
+ */
+public record FacilityChanges(long sequence, boolean resync, List<?> facilities, List<FacilityTombstone> deleted) {
+
+    static FacilityChanges resync(long sequence) {
+        return new FacilityChanges(sequence, true, List.of(), List.of());
+    }
+}
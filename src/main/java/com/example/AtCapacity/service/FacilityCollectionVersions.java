@@ -0,0 +1,51 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityCollectionVersion;
+import com.example.AtCapacity.repository.FacilityChangeSequence;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.stereotype.Component;
+
+/**
+ * Fingerprints facility collections from the change sequences stored in MongoDB
+ * ({@link FacilityChangeSequence}), so every instance computes the same collection
+ * ETag for the same data, before and after a restart.
+ * <p>
+ * Every write to any facility takes a sequence, so the counter alone moves the full
+ * list's fingerprint. An owner's list uses the highest sequence stamped on the
+ * owner's facilities, which moves when one of them is written or one is added; a
+ * removal moves the count instead. Both are index-only reads.
+ * <p>
+ * Occupancy the occupancy engine has not flushed yet carries no sequence; the list
+ * endpoints bound that staleness with Cache-Control max-age rather than the tag.
+ */
+@Component
+public class FacilityCollectionVersions {
+
+    private final MongoTemplate mongoTemplate;
+
+    public FacilityCollectionVersions(MongoTemplate mongoTemplate) {
+        this.mongoTemplate = mongoTemplate;
+    }
+
+    /**
+     * @param owner optional owner filter; null for all facilities
+     * @throws DataAccessException if MongoDB is unreachable
+     */
+    public FacilityCollectionVersion current(String owner) {
+        if (owner == null) {
+            return new FacilityCollectionVersion(FacilityChangeSequence.current(mongoTemplate),
+                    mongoTemplate.estimatedCount(Facility.class));
+        }
+        Query newest = new Query(Criteria.where("owner").is(owner))
+                .with(Sort.by(Sort.Direction.DESC, "changeSeq")).limit(1);
+        newest.fields().include("changeSeq");
+        Facility latest = mongoTemplate.findOne(newest, Facility.class);
+        long sequence = latest == null || latest.getChangeSeq() == null ? 0 : latest.getChangeSeq();
+        return new FacilityCollectionVersion(sequence, mongoTemplate.count(new Query(Criteria.where("owner").is(owner)), Facility.class));
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+
+import java.util.List;
+
+/**
+ * Columnar snapshot of facility coordinates for scanning many origins at once.
+ * Latitudes and longitudes are kept in radians together with cos(latitude),
+ * so the Haversine term per facility costs two sines and a few multiplies.
+ */
+final class FacilityCoordinates {
+
+    /** Earth's radius in kilometers, matching {@link Facility#calculateDistance} */
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    final String[] ids;
+    /** FacilityType ordinal, or -1 for facilities without a type */
+    final byte[] types;
+    final double[] latitudes;
+    final double[] longitudes;
+    final double[] cosLatitudes;
+
+    private FacilityCoordinates(int size) {
+        ids = new String[size];
+        types = new byte[size];
+        latitudes = new double[size];
+        longitudes = new double[size];
+        cosLatitudes = new double[size];
+    }
+
+    static FacilityCoordinates of(List<Facility> facilities) {
+        int count = (int) facilities.stream().filter(facility -> facility.getLocation() != null).count();
+        FacilityCoordinates coordinates = new FacilityCoordinates(count);
+        int i = 0;
+        for (Facility facility : facilities) {
+            if (facility.getLocation() == null) {
+                continue;
+            }
+            double lat = Math.toRadians(facility.getLocation().getLatitude());
+            coordinates.ids[i] = facility.getId();
+            coordinates.types[i] = facility.getType() == null ? -1 : (byte) facility.getType().ordinal();
+            coordinates.latitudes[i] = lat;
+            coordinates.longitudes[i] = Math.toRadians(facility.getLocation().getLongitude());
+            coordinates.cosLatitudes[i] = Math.cos(lat);
+            i++;
+        }
+        return coordinates;
+    }
+
+    int size() {
+        return ids.length;
+    }
+
+    /**
+     * Scans every facility once, keeping the closest {@code query.limit()} in a bounded heap.
+     * @return matching facility indices and distances in kilometers, ordered by distance
+     */
+    Result nearest(NearestQuery query) {
+        double lat = Math.toRadians(query.latitude());
+        double lon = Math.toRadians(query.longitude());
+        double cosLat = Math.cos(lat);
+        int type = query.type() == null ? Integer.MIN_VALUE : query.type().ordinal();
+
+        TopKHeap heap = new TopKHeap(query.limit());
+        for (int i = 0; i < ids.length; i++) {
+            if (type != Integer.MIN_VALUE && types[i] != type) {
+                continue;
+            }
+            double sinHalfDLat = Math.sin((latitudes[i] - lat) / 2);
+            double sinHalfDLon = Math.sin((longitudes[i] - lon) / 2);
+            // Haversine term a; distance grows monotonically with it, so it is used as the heap key
+            double a = sinHalfDLat * sinHalfDLat + cosLat * cosLatitudes[i] * sinHalfDLon * sinHalfDLon;
+            heap.offer(i, a);
+        }
+
+        int[] indices = new int[heap.size()];
+        double[] distances = new double[heap.size()];
+        heap.drainAscending(indices, distances);
+        for (int i = 0; i < distances.length; i++) {
+            distances[i] = 2 * EARTH_RADIUS_KM * Math.asin(Math.min(1.0, Math.sqrt(distances[i])));
+        }
+        return new Result(indices, distances);
+    }
+
+    record Result(int[] indices, double[] distances) {
+    }
+}
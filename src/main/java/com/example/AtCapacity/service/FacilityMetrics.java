@@ -0,0 +1,120 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.FacilityType;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Domain meters for the occupancy and nearest-query paths. HTTP latency per endpoint
+ * and MongoDB command latency come from Spring Boot's own instrumentation
+ * ({@code http.server.requests}, {@code mongodb.driver.commands}).
+ * <p>
+ * Tags are limited to enums (operation, outcome, source, facility type) so the
+ * number of series stays fixed however many facilities exist; facility IDs are
+ * never used as tags. Every series is registered up front, so recording is an
+ * array lookup rather than a registry lookup.
+ */
+@Component
+public class FacilityMetrics {
+
+    /** Tag value for facilities without a type, or whose type is unknown */
+    static final String NO_TYPE = "none";
+
+    public enum Operation {
+        INCREMENT, DECREMENT
+    }
+
+    public enum Outcome {
+        SUCCESS, AT_CAPACITY, EMPTY, NOT_FOUND
+    }
+
+    /** Where a nearest query found its candidates */
+    public enum Source {
+        INDEX, MONGO
+    }
+
+    private static final FacilityType[] TYPES = FacilityType.values();
+
+    /** Indexed by {@link #typeIndex} */
+    private final Map<Operation, Map<Outcome, Counter[]>> occupancyChanges = new EnumMap<>(Operation.class);
+    private final Map<Source, DistributionSummary[]> nearestCandidates = new EnumMap<>(Source.class);
+    private final double explainRate;
+
+    /**
+     * @param explainRate share of MongoDB nearest queries whose candidates are counted
+     *                    by explaining them, which runs the query again
+     */
+    public FacilityMetrics(MeterRegistry registry, FacilityCache facilityCache,
+                           @Value("${atcapacity.metrics.nearest-explain-rate:0.01}") double explainRate) {
+        this.explainRate = explainRate;
+        CaffeineCacheMetrics.monitor(registry, facilityCache.nativeCache(), "facilities");
+        for (Operation operation : Operation.values()) {
+            Map<Outcome, Counter[]> byOutcome = new EnumMap<>(Outcome.class);
+            for (Outcome outcome : Outcome.values()) {
+                Counter[] byType = new Counter[TYPES.length + 1];
+                for (int i = 0; i < byType.length; i++) {
+                    byType[i] = Counter.builder("atcapacity.occupancy.changes")
+                            .description("Occupancy increments and decrements by outcome")
+                            .tag("operation", tagValue(operation))
+                            .tag("outcome", tagValue(outcome))
+                            .tag("type", tagValue(typeAt(i)))
+                            .register(registry);
+                }
+                byOutcome.put(outcome, byType);
+            }
+            occupancyChanges.put(operation, byOutcome);
+        }
+        for (Source source : Source.values()) {
+            DistributionSummary[] byType = new DistributionSummary[TYPES.length + 1];
+            for (int i = 0; i < byType.length; i++) {
+                byType[i] = DistributionSummary.builder("atcapacity.nearest.candidates")
+                        .description("Candidates examined per nearest query: k-d tree nodes visited, "
+                                + "or documents $geoNear examined in sampled queries")
+                        .tag("source", tagValue(source))
+                        .tag("type", tagValue(typeAt(i)))
+                        .register(registry);
+            }
+            nearestCandidates.put(source, byType);
+        }
+    }
+
+    public void occupancyChanged(Operation operation, Outcome outcome, FacilityType type) {
+        occupancyChanges.get(operation).get(outcome)[typeIndex(type)].increment();
+    }
+
+    /**
+     * Records how many candidates a nearest query examined to find its results.
+     */
+    public void nearestCandidates(Source source, FacilityType type, long count) {
+        nearestCandidates.get(source)[typeIndex(type)].record(count);
+    }
+
+    /**
+     * Tells whether to count the candidates of this MongoDB nearest query.
+     */
+    public boolean sampleNearestQuery() {
+        return explainRate > 0 && ThreadLocalRandom.current().nextDouble() < explainRate;
+    }
+
+    static String tagValue(Enum<?> value) {
+        return value == null ? NO_TYPE : value.name().toLowerCase(Locale.ROOT);
+    }
+
+    /** The type's ordinal, or one past the last for no type */
+    private static int typeIndex(FacilityType type) {
+        return type == null ? TYPES.length : type.ordinal();
+    }
+
+    private static FacilityType typeAt(int index) {
+        return index < TYPES.length ? TYPES[index] : null;
+    }
+}
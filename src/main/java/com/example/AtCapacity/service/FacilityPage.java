@@ -0,0 +1,13 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+
+import java.util.List;
+
+/**
+ * One page of a keyset-paginated facility listing.
+ * @param items facilities on this page, ordered by ID
+ * @param nextCursor value to pass as {@code after} for the next page, or null on the last page
+ */
+public record FacilityPage(List<Facility> items, String nextCursor) {
+}
@@ -1,144 +1,657 @@
 package com.example.AtCapacity.service;
 
+import com.example.AtCapacity.event.FacilityChangedEvent;
 import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityCollectionVersion;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.example.AtCapacity.model.FacilityTombstone;
 import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.OccupancyChange;
+import com.example.AtCapacity.model.OpeningSchedule;
 import com.example.AtCapacity.repository.FacilityRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.geo.Metrics;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Service
 public class FacilityService {
 
+    /** Upper bounds on a batch nearest query */
+    public static final int MAX_BATCH_ORIGINS = 1000;
+    public static final int MAX_BATCH_K = 100;
+
+    /** Upper bound on a keyset page */
+    public static final int MAX_PAGE_SIZE = 500;
+
+    /** Upper bounds on one batch of occupancy events and on the change each event carries, either way */
+    public static final int MAX_OCCUPANCY_EVENTS = 10_000;
+    public static final int MAX_OCCUPANCY_EVENT_DELTA = 1_000;
+
+    /** Attempts of an update that keeps racing with other writes */
+    static final int MAX_UPDATE_ATTEMPTS = 3;
+
     private final FacilityRepository facilityRepository;
+    private final OccupancyEngine occupancyEngine;
+    private final FacilitySpatialIndex spatialIndex;
+    private final BatchNearestSearch batchNearestSearch;
+    private final ApplicationEventPublisher eventPublisher;
+    private final FacilityCache facilityCache;
+    private final OpenNowIndex openNowIndex;
+    private final FacilityMetrics metrics;
+    private final FacilityChangeLog changeLog;
+    private final FacilityCollectionVersions collectionVersions;
 
     @Autowired
-    public FacilityService(FacilityRepository facilityRepository) {
+    public FacilityService(FacilityRepository facilityRepository, OccupancyEngine occupancyEngine,
+                           FacilitySpatialIndex spatialIndex, BatchNearestSearch batchNearestSearch,
+                           ApplicationEventPublisher eventPublisher, FacilityCache facilityCache,
+                           OpenNowIndex openNowIndex, FacilityMetrics metrics, FacilityChangeLog changeLog,
+                           FacilityCollectionVersions collectionVersions) {
         this.facilityRepository = facilityRepository;
+        this.facilityCache = facilityCache;
+        this.openNowIndex = openNowIndex;
+        this.metrics = metrics;
+        this.changeLog = changeLog;
+        this.collectionVersions = collectionVersions;
+        this.occupancyEngine = occupancyEngine;
+        this.spatialIndex = spatialIndex;
+        this.batchNearestSearch = batchNearestSearch;
+        this.eventPublisher = eventPublisher;
     }
 
     public List<Facility> getAllFacilities() {
-        return facilityRepository.findAll();
+        return overlay(facilityRepository.findAll());
+    }
+
+    /**
+     * Streams every facility from a MongoDB cursor so memory use does not grow with the collection.
+     * The caller must close the returned stream.
+     */
+    public Stream<Facility> streamAllFacilities() {
+        Stream<Facility> facilities = facilityRepository.streamAllBy();
+        return occupancyEngine.isEnabled() ? facilities.map(occupancyEngine::overlay) : facilities;
+    }
+
+    /**
+     * Streams summaries of every facility, reading only the summary fields from MongoDB.
+     * The caller must close the returned stream.
+     */
+    public Stream<FacilitySummary> streamAllFacilitySummaries() {
+        Stream<FacilitySummary> summaries = facilityRepository.streamAllBy(FacilitySummary.class);
+        return occupancyEngine.isEnabled() ? summaries.map(this::overlay) : summaries;
+    }
+
+    /**
+     * Like {@link #streamAllFacilities()}, optionally keeping only facilities open right now.
+     */
+    public Stream<Facility> streamAllFacilities(boolean openNow) {
+        Stream<Facility> facilities = streamAllFacilities();
+        if (!openNow) {
+            return facilities;
+        }
+        return openNowIndex.isReady()
+                ? facilities.filter(facility -> openNowIndex.isOpen(facility.getId()))
+                : facilities.filter(Facility::isOpen);
+    }
+
+    /**
+     * Like {@link #streamAllFacilitySummaries()}, optionally keeping only facilities open right now.
+     */
+    public Stream<FacilitySummary> streamAllFacilitySummaries(boolean openNow) {
+        if (!openNow) {
+            return streamAllFacilitySummaries();
+        }
+        if (openNowIndex.isReady()) {
+            return streamAllFacilitySummaries().filter(summary -> openNowIndex.isOpen(summary.id()));
+        }
+        // Summaries lack the hours, so check them on the full documents
+        return streamAllFacilities(true).map(FacilitySummary::of);
     }
 
+    /**
+     * Returns the page of facilities following the given cursor, ordered by ID.
+     * @param after ID of the last facility of the previous page, or null for the first page
+     * @param limit page size, between 1 and {@link #MAX_PAGE_SIZE}
+     * @throws IllegalArgumentException if the limit is out of range
+     */
+    public FacilityPage getFacilitiesPage(String after, int limit) {
+        if (limit < 1 || limit > MAX_PAGE_SIZE) {
+            throw new IllegalArgumentException("limit must be between 1 and " + MAX_PAGE_SIZE);
+        }
+        // Fetch one extra row to learn whether another page exists
+        List<Facility> items = after == null
+                ? facilityRepository.findAllByOrderByIdAsc(Limit.of(limit + 1))
+                : facilityRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit + 1));
+        if (items.size() <= limit) {
+            return new FacilityPage(overlay(items), null);
+        }
+        List<Facility> page = new ArrayList<>(items.subList(0, limit));
+        return new FacilityPage(overlay(page), page.get(limit - 1).getId());
+    }
+
+    /**
+     * Looks a facility up through the read-through cache.
+     */
     public Optional<Facility> getFacilityById(String id) {
-        return facilityRepository.findById(id);
+        return facilityCache.getById(id, facilityRepository::findById).map(occupancyEngine::overlay);
     }
 
+    /**
+     * Looks a facility up by name through the read-through cache.
+     */
     public Optional<Facility> getFacilityByName(String name) {
-        return facilityRepository.findByName(name);
+        return facilityCache.getByName(name, facilityRepository::findById, facilityRepository::findByName)
+                .map(occupancyEngine::overlay);
+    }
+
+    public Optional<FacilitySummary> getFacilitySummaryById(String id) {
+        return getFacilityById(id).map(FacilitySummary::of);
+    }
+
+    /**
+     * Delta sync: the facilities created, changed or deleted after a change sequence.
+     * Changed facilities are loaded in one query, so each is returned once in its
+     * current state however often it changed.
+     * @param since the sequence from the client's previous response, or null to start
+     * @param summary true to return summaries instead of full facilities
+     * @return the changes, or a resync signal if the client has no sequence or one from before a reset
+     */
+    public FacilityChanges getChangesSince(Long since, boolean summary) {
+        FacilityChangeLog.Delta delta = changeLog.since(since);
+        if (delta.resync()) {
+            return FacilityChanges.resync(delta.sequence());
+        }
+        List<Facility> facilities = overlay(facilityRepository.findByChangeSeqGreaterThan(since));
+        Set<String> changedIds = facilities.stream().map(Facility::getId).collect(Collectors.toSet());
+        // A tombstone of an ID that exists again was followed by a create
+        List<FacilityTombstone> deleted = facilityRepository.findDeletionsAfter(since).stream()
+                .filter(tombstone -> !changedIds.contains(tombstone.id()))
+                .collect(Collectors.toList());
+        List<?> changed = summary
+                ? facilities.stream().map(FacilitySummary::of).collect(Collectors.toList())
+                : facilities;
+        return new FacilityChanges(delta.sequence(), false, changed, deleted);
+    }
+
+    /**
+     * Fingerprint of all facilities, or of one owner's, for collection ETags.
+     * @param owner optional owner filter; null for all facilities
+     */
+    public FacilityCollectionVersion getCollectionVersion(String owner) {
+        return collectionVersions.current(owner);
+    }
+
+    public FacilityCacheStats getCacheStats() {
+        return FacilityCacheStats.of(facilityCache.stats(), facilityCache.size());
     }
 
+    /**
+     * @throws IllegalArgumentException if the hours are given but cannot be parsed
+     */
     public Facility createFacility(Facility facility) {
-        return facilityRepository.save(facility);
+        validateHours(facility);
+        // A client-supplied version would make the save an update of a missing document
+        facility.setVersion(null);
+        facility.setMetadataVersion(0L);
+        facilityCache.invalidate(facility);
+        Facility saved = facilityRepository.save(facility);
+        spatialIndex.upsert(saved);
+        eventPublisher.publishEvent(FacilityChangedEvent.of(FacilityChangedEvent.Kind.CREATED, saved));
+        return saved;
     }
 
-    public boolean incrementOccupancy(String facilityId) {
-        Optional<Facility> facilityOpt = facilityRepository.findById(facilityId);
-        
-        if (facilityOpt.isPresent()) {
-            Facility facility = facilityOpt.get();
-            boolean incremented = facility.incrementOccupancy();
-            
-            if (incremented) {
-                facilityRepository.save(facility);
-                return true;
+    /**
+     * Increments occupancy in a single conditional update.
+     * @return the new occupancy, or empty if the facility was not found or is at capacity
+     */
+    public Optional<Integer> incrementOccupancy(String facilityId) {
+        return occupancyChanged(occupancyEngine.isEnabled()
+                ? occupancyEngine.increment(facilityId)
+                : facilityRepository.incrementOccupancyById(facilityId), 1, () -> getFacilityById(facilityId));
+    }
+
+    /**
+     * Decrements occupancy in a single conditional update.
+     * @return the new occupancy, or empty if the facility was not found or is empty
+     */
+    public Optional<Integer> decrementOccupancy(String facilityId) {
+        return occupancyChanged(occupancyEngine.isEnabled()
+                ? occupancyEngine.decrement(facilityId)
+                : facilityRepository.decrementOccupancyById(facilityId), -1, () -> getFacilityById(facilityId));
+    }
+
+    public Optional<Integer> incrementOccupancyByName(String name) {
+        return occupancyChanged(occupancyEngine.isEnabled()
+                ? occupancyEngine.incrementByName(name)
+                : facilityRepository.incrementOccupancyByName(name), 1, () -> getFacilityByName(name));
+    }
+
+    public Optional<Integer> decrementOccupancyByName(String name) {
+        return occupancyChanged(occupancyEngine.isEnabled()
+                ? occupancyEngine.decrementByName(name)
+                : facilityRepository.decrementOccupancyByName(name), -1, () -> getFacilityByName(name));
+    }
+
+    /**
+     * IDs of the facilities a batch of turnstile events names, with names resolved in
+     * one query; names of no facility are left out.
+     */
+    public Set<String> getFacilityIds(List<OccupancyEvent> events) {
+        Set<String> ids = new HashSet<>();
+        Set<String> names = new HashSet<>();
+        for (OccupancyEvent event : events) {
+            if (event.facilityId() != null) {
+                ids.add(event.facilityId());
+            } else if (event.name() != null) {
+                names.add(event.name());
             }
         }
-        
-        return false;
+        if (!names.isEmpty()) {
+            for (FacilitySummary summary : facilityRepository.findByNameIn(names, FacilitySummary.class)) {
+                ids.add(summary.id());
+            }
+        }
+        return ids;
     }
 
-    public boolean decrementOccupancy(String facilityId) {
-        Optional<Facility> facilityOpt = facilityRepository.findById(facilityId);
-        
-        if (facilityOpt.isPresent()) {
-            Facility facility = facilityOpt.get();
-            boolean decremented = facility.decrementOccupancy();
-            
-            if (decremented) {
-                facilityRepository.save(facility);
-                return true;
+    /**
+     * Applies a batch of turnstile events as one net change per facility.
+     * Names are resolved with one query and all changes are written with one
+     * bulk write (or applied to the in-memory counters when the engine is enabled),
+     * each clamped to [0, totalCapacity]. Results, change events and metrics carry the
+     * change as stored, which clamping may have cut short.
+     * @return one result per facility named in the batch; unknown names are reported first
+     * @throws IllegalArgumentException if the batch is too large, an event names no facility
+     *                                  or an event's delta is out of range
+     */
+    public List<OccupancyBatchResult> applyOccupancyEvents(List<OccupancyEvent> events) {
+        if (events.size() > MAX_OCCUPANCY_EVENTS) {
+            throw new IllegalArgumentException("At most " + MAX_OCCUPANCY_EVENTS + " events are allowed per batch");
+        }
+        Map<String, Integer> deltasById = new LinkedHashMap<>();
+        Map<String, Integer> deltasByName = new LinkedHashMap<>();
+        for (OccupancyEvent event : events) {
+            if (Math.abs(event.delta()) > MAX_OCCUPANCY_EVENT_DELTA) {
+                // Also keeps every sum within an int
+                throw new IllegalArgumentException("Every delta must be between -" + MAX_OCCUPANCY_EVENT_DELTA
+                        + " and " + MAX_OCCUPANCY_EVENT_DELTA);
+            }
+            if (event.facilityId() != null) {
+                deltasById.merge(event.facilityId(), event.delta(), Integer::sum);
+            } else if (event.name() != null) {
+                deltasByName.merge(event.name(), event.delta(), Integer::sum);
+            } else {
+                throw new IllegalArgumentException("Every event needs a facilityId or a name");
             }
         }
-        
-        return false;
-    }
 
-    public boolean incrementOccupancyByName(String name) {
-        Optional<Facility> facilityOpt = facilityRepository.findByName(name);
-        
-        if (facilityOpt.isPresent()) {
-            Facility facility = facilityOpt.get();
-            boolean incremented = facility.incrementOccupancy();
-            
-            if (incremented) {
-                facilityRepository.save(facility);
-                return true;
+        List<OccupancyBatchResult> results = new ArrayList<>();
+        if (!deltasByName.isEmpty()) {
+            Map<String, String> idsByName = new HashMap<>();
+            for (FacilitySummary summary : facilityRepository.findByNameIn(deltasByName.keySet(), FacilitySummary.class)) {
+                idsByName.put(summary.name(), summary.id());
             }
+            deltasByName.forEach((name, delta) -> {
+                String id = idsByName.get(name);
+                if (id == null) {
+                    results.add(OccupancyBatchResult.notFound(null, name, delta));
+                } else {
+                    deltasById.merge(id, delta, Integer::sum);
+                }
+            });
+        }
+        if (deltasById.isEmpty()) {
+            return results;
         }
-        return false;
-    }
 
-    public boolean decrementOccupancyByName(String name) {
-        Optional<Facility> facilityOpt = facilityRepository.findByName(name);
-        
-        if (facilityOpt.isPresent()) {
-            Facility facility = facilityOpt.get();
-            boolean decremented = facility.decrementOccupancy();
-            
-            if (decremented) {
-                facilityRepository.save(facility);
-                return true;
+        Map<String, OccupancyChange> updated = new HashMap<>();
+        if (occupancyEngine.isEnabled()) {
+            deltasById.forEach((id, delta) -> occupancyEngine.add(id, delta)
+                    .ifPresent(change -> updated.put(id, change)));
+        } else {
+            for (OccupancyChange change : facilityRepository.applyOccupancyChanges(deltasById)) {
+                updated.put(change.facility().getId(), change);
             }
         }
-        return false;
+
+        deltasById.forEach((id, delta) -> {
+            OccupancyChange change = updated.get(id);
+            if (change == null) {
+                results.add(OccupancyBatchResult.notFound(id, null, delta));
+                return;
+            }
+            Facility facility = change.facility();
+            if (change.applied() != 0) {
+                occupancyChanged(Optional.of(facility), change.applied(), Optional::empty);
+            } else if (delta != 0) {
+                // Already full or empty; recorded as a rejected change
+                occupancyChanged(Optional.empty(), delta, () -> Optional.of(facility));
+            }
+            results.add(new OccupancyBatchResult(id, facility.getName(), delta, change.applied(),
+                    facility.getCurrentOccupancy(), OccupancyBatchResult.Status.APPLIED));
+        });
+        return results;
     }
 
+    /**
+     * Replaces the stored facility whatever its current version.
+     * @throws IllegalArgumentException if the hours are given but cannot be parsed
+     */
     public void updateFacility(Facility facility) {
-        facilityRepository.save(facility);
+        updateFacility(facility, null);
+    }
+
+    /**
+     * Replaces the stored facility, on success setting the new versions on {@code facility}.
+     * The stored occupancy is kept, since occupancy only changes through increments and
+     * decrements. Occupancy changes racing with the save are retried over, since they do
+     * not move the metadata version a client names.
+     * @param expectedMetadataVersion metadata version the client last saw (from If-Match),
+     *                                or null to overwrite whatever is stored
+     * @throws IllegalArgumentException if the hours are given but cannot be parsed
+     * @throws OptimisticLockingFailureException if the stored metadata version is not
+     *                                           {@code expectedMetadataVersion}, or other writes keep racing
+     */
+    public void updateFacility(Facility facility, Long expectedMetadataVersion) {
+        validateHours(facility);
+        for (int attempt = 1; ; attempt++) {
+            Optional<Facility> stored = facilityRepository.findById(facility.getId());
+            long storedMetadataVersion = stored.map(Facility::getMetadataVersion).orElse(0L);
+            if (expectedMetadataVersion != null
+                    && (stored.isEmpty() || storedMetadataVersion != expectedMetadataVersion)) {
+                throw new OptimisticLockingFailureException("Facility " + facility.getId()
+                        + " was edited after metadata version " + expectedMetadataVersion);
+            }
+            facility.setVersion(stored.map(Facility::getVersion).orElse(null));
+            facility.setMetadataVersion(storedMetadataVersion + 1);
+            // Not the body's: it would undo every change since the client's read, and
+            // the engine's pending changes are written on top when it is evicted below
+            stored.map(Facility::getCurrentOccupancy).ifPresent(facility::setCurrentOccupancy);
+            try {
+                facilityRepository.save(facility);
+                break;
+            } catch (OptimisticLockingFailureException e) {
+                if (attempt == MAX_UPDATE_ATTEMPTS) {
+                    throw e;
+                }
+            }
+        }
+        facilityCache.invalidate(facility);
+        occupancyEngine.evict(facility.getId());
+        spatialIndex.upsert(facility);
+        eventPublisher.publishEvent(FacilityChangedEvent.of(FacilityChangedEvent.Kind.UPDATED, facility));
     }
 
     public void deleteFacility(String id) {
+        Optional<Facility> existing = facilityRepository.findById(id);
         facilityRepository.deleteById(id);
+        existing.ifPresent(this::deleted);
     }
 
     public void deleteFacilityByName(String name) {
+        Optional<Facility> existing = facilityRepository.findByName(name);
         facilityRepository.deleteByName(name);
+        existing.ifPresent(this::deleted);
     }
 
     // New methods for querying by address or owner
     public List<Facility> getFacilitiesByOwner(String owner) {
-        return facilityRepository.findByOwner(owner);
+        return overlay(facilityRepository.findByOwner(owner));
     }
 
-    public List<Facility> findNearestFacilities(double latitude, double longitude, int limit) {
-        List<Facility> allFacilities = getAllFacilities();
-        
-        return allFacilities.stream()
-                .sorted((f1, f2) -> {
-                    double dist1 = f1.calculateDistance(latitude, longitude);
-                    double dist2 = f2.calculateDistance(latitude, longitude);
-                    return Double.compare(dist1, dist2);
-                })
-                .limit(limit)
+    public List<FacilitySummary> getFacilitySummariesByOwner(String owner) {
+        return facilityRepository.findByOwner(owner, FacilitySummary.class).stream()
+                .map(this::overlay)
                 .collect(Collectors.toList());
     }
 
-    public List<Facility> findNearestFacilities(double latitude, double longitude, int limit, FacilityType type) {
-        List<Facility> allFacilities = getAllFacilities();
-        
-        return allFacilities.stream()
-                .filter(facility -> type == null || facility.getType() == type)
-                .sorted((f1, f2) -> {
-                    double dist1 = f1.calculateDistance(latitude, longitude);
-                    double dist2 = f2.calculateDistance(latitude, longitude);
-                    return Double.compare(dist1, dist2);
-                })
-                .limit(limit)
+    /**
+     * Like {@link #findNearestFacilities(double, double, int, FacilityType)}, returning summaries.
+     * When MongoDB answers the query, only the summary fields leave the database.
+     */
+    public List<FacilitySummary> findNearestFacilitySummaries(double latitude, double longitude, int limit, FacilityType type) {
+        return findNearestFacilitySummaries(latitude, longitude, limit, type, false);
+    }
+
+    /**
+     * @param openNow true to consider only facilities open right now
+     */
+    public List<FacilitySummary> findNearestFacilitySummaries(double latitude, double longitude, int limit,
+                                                              FacilityType type, boolean openNow) {
+        if (spatialIndex.isReady() || (openNow && !openNowIndex.isReady())) {
+            return findNearestFacilities(latitude, longitude, limit, type, openNow).stream()
+                    .map(FacilitySummary::of)
+                    .collect(Collectors.toList());
+        }
+        Collection<String> onlyIds = openNow ? openNowIndex.getOpenIds() : null;
+        List<FacilitySummary> nearest = facilityRepository.findNearestSummaries(latitude, longitude, type, limit, onlyIds)
+                .stream()
+                .map(this::overlay)
                 .collect(Collectors.toList());
+        recordMongoCandidates(latitude, longitude, type, limit, onlyIds);
+        return nearest;
+    }
+
+    public List<Facility> findNearestFacilities(double latitude, double longitude, int limit) {
+        return findNearestFacilities(latitude, longitude, limit, null);
+    }
+
+    /**
+     * Finds the nearest facilities, either from the in-memory spatial index or
+     * with MongoDB's 2dsphere index. Both read only {@code limit} documents.
+     * @return facilities ordered by distance, each with its distance in kilometers set
+     */
+    public List<Facility> findNearestFacilities(double latitude, double longitude, int limit, FacilityType type) {
+        return findNearestFacilities(latitude, longitude, limit, type, false);
+    }
+
+    /**
+     * @param openNow true to consider only facilities open right now; until the open-now
+     *                index is loaded, closed facilities are dropped after the query, so
+     *                fewer than {@code limit} may be returned
+     */
+    public List<Facility> findNearestFacilities(double latitude, double longitude, int limit, FacilityType type,
+                                                boolean openNow) {
+        boolean filterById = openNow && openNowIndex.isReady();
+        List<Facility> nearest;
+        if (spatialIndex.isReady()) {
+            nearest = findNearestInIndex(latitude, longitude, limit, type,
+                    filterById ? openNowIndex::isOpen : id -> true);
+        } else {
+            Collection<String> onlyIds = filterById ? openNowIndex.getOpenIds() : null;
+            nearest = facilityRepository.findNearest(latitude, longitude, type, limit, onlyIds)
+                    .getContent().stream()
+                    .map(result -> {
+                        Facility facility = result.getContent();
+                        facility.setDistance(result.getDistance().in(Metrics.KILOMETERS).getValue());
+                        return occupancyEngine.overlay(facility);
+                    })
+                    .collect(Collectors.toList());
+            recordMongoCandidates(latitude, longitude, type, limit, onlyIds);
+        }
+        if (openNow && !filterById) {
+            nearest.removeIf(facility -> !facility.isOpen());
+        }
+        return nearest;
+    }
+
+    /**
+     * Answers many nearest queries at once, from the spatial index when it is ready and
+     * otherwise by scanning a cached columnar snapshot of facility coordinates. Origins
+     * are searched in parallel, and every facility that appears in any result is loaded
+     * in a single query.
+     * @return one list per query, in query order, each ordered by distance
+     * @throws IllegalArgumentException if the batch or any k is out of bounds
+     */
+    public List<List<Facility>> findNearestFacilities(List<NearestQuery> queries) {
+        if (queries.size() > MAX_BATCH_ORIGINS) {
+            throw new IllegalArgumentException("At most " + MAX_BATCH_ORIGINS + " origins are allowed per batch");
+        }
+        for (NearestQuery query : queries) {
+            if (query.limit() < 1 || query.limit() > MAX_BATCH_K) {
+                throw new IllegalArgumentException("k must be between 1 and " + MAX_BATCH_K);
+            }
+        }
+        if (queries.isEmpty()) {
+            return List.of();
+        }
+
+        List<List<FacilitySpatialIndex.Neighbor>> results;
+        if (spatialIndex.isReady()) {
+            results = batchNearestSearch.search(queries, query -> {
+                FacilitySpatialIndex.Search search = spatialIndex.search(query.latitude(), query.longitude(),
+                        query.limit(), query.type(), id -> true);
+                metrics.nearestCandidates(FacilityMetrics.Source.INDEX, query.type(), search.visited());
+                return search.neighbors();
+            });
+        } else {
+            FacilityCoordinates coordinates = batchNearestSearch.coordinates(
+                    () -> FacilityCoordinates.of(facilityRepository.findAllCoordinates()));
+            results = batchNearestSearch.search(queries, query -> neighbors(coordinates, coordinates.nearest(query)));
+        }
+
+        Set<String> ids = new HashSet<>();
+        for (List<FacilitySpatialIndex.Neighbor> result : results) {
+            for (FacilitySpatialIndex.Neighbor neighbor : result) {
+                ids.add(neighbor.id());
+            }
+        }
+        Map<String, Facility> facilitiesById = new HashMap<>();
+        facilityRepository.findAllById(ids).forEach(facility -> facilitiesById.put(facility.getId(), occupancyEngine.overlay(facility)));
+
+        List<List<Facility>> nearest = new ArrayList<>(results.size());
+        for (List<FacilitySpatialIndex.Neighbor> result : results) {
+            List<Facility> facilities = new ArrayList<>(result.size());
+            for (FacilitySpatialIndex.Neighbor neighbor : result) {
+                Facility facility = facilitiesById.get(neighbor.id());
+                if (facility != null) {
+                    Facility withDistance = new Facility(facility);
+                    withDistance.setDistance(neighbor.distance());
+                    facilities.add(withDistance);
+                }
+            }
+            nearest.add(facilities);
+        }
+        return nearest;
+    }
+
+    private List<Facility> findNearestInIndex(double latitude, double longitude, int limit, FacilityType type,
+                                              Predicate<String> accept) {
+        FacilitySpatialIndex.Search search = spatialIndex.search(latitude, longitude, limit, type, accept);
+        metrics.nearestCandidates(FacilityMetrics.Source.INDEX, type, search.visited());
+        List<FacilitySpatialIndex.Neighbor> neighbors = search.neighbors();
+        Map<String, Facility> facilitiesById = new HashMap<>();
+        facilityRepository.findAllById(neighbors.stream().map(FacilitySpatialIndex.Neighbor::id).toList())
+                .forEach(facility -> facilitiesById.put(facility.getId(), facility));
+
+        List<Facility> nearest = new ArrayList<>(neighbors.size());
+        for (FacilitySpatialIndex.Neighbor neighbor : neighbors) {
+            Facility facility = facilitiesById.get(neighbor.id());
+            if (facility != null) {
+                facility.setDistance(neighbor.distance());
+                nearest.add(occupancyEngine.overlay(facility));
+            }
+        }
+        return nearest;
+    }
+
+    /**
+     * Counts the documents MongoDB examines for a sample of nearest queries, by explaining
+     * the query again; a failed explain leaves the query's own result alone.
+     */
+    private void recordMongoCandidates(double latitude, double longitude, FacilityType type, int limit,
+                                       Collection<String> onlyIds) {
+        if (!metrics.sampleNearestQuery()) {
+            return;
+        }
+        try {
+            metrics.nearestCandidates(FacilityMetrics.Source.MONGO, type,
+                    facilityRepository.countNearestCandidates(latitude, longitude, type, limit, onlyIds));
+        } catch (DataAccessException e) {
+            // Only a metric is lost
+        }
+    }
+
+    /**
+     * Compiles the hours once at write time, so a malformed string is rejected
+     * instead of silently making the facility look closed.
+     */
+    static void validateHours(Facility facility) {
+        if (facility.getHours() != null) {
+            OpeningSchedule.parse(facility.getHours());
+        }
+    }
+
+    /**
+     * @param lookup finds the facility when the update did not apply, to tell a rejected
+     *               change from a missing facility in the metrics
+     */
+    private Optional<Integer> occupancyChanged(Optional<Facility> updated, int delta,
+                                               Supplier<Optional<Facility>> lookup) {
+        FacilityMetrics.Operation operation = delta > 0
+                ? FacilityMetrics.Operation.INCREMENT
+                : FacilityMetrics.Operation.DECREMENT;
+        if (updated.isPresent()) {
+            Facility facility = updated.get();
+            facilityCache.updateOccupancy(facility.getId(), facility.getCurrentOccupancy(), facility.getVersion());
+            eventPublisher.publishEvent(FacilityChangedEvent.occupancy(facility, delta));
+            metrics.occupancyChanged(operation, FacilityMetrics.Outcome.SUCCESS, facility.getType());
+        } else {
+            Optional<Facility> existing = lookup.get();
+            FacilityMetrics.Outcome outcome = existing.isEmpty()
+                    ? FacilityMetrics.Outcome.NOT_FOUND
+                    : delta > 0 ? FacilityMetrics.Outcome.AT_CAPACITY : FacilityMetrics.Outcome.EMPTY;
+            metrics.occupancyChanged(operation, outcome, existing.map(Facility::getType).orElse(null));
+        }
+        return updated.map(Facility::getCurrentOccupancy);
+    }
+
+    private void deleted(Facility facility) {
+        facility.setChangeSeq(facilityRepository.recordDeletion(facility.getId(), facility.getOwner()));
+        facilityCache.invalidate(facility);
+        occupancyEngine.evict(facility.getId());
+        spatialIndex.remove(facility.getId());
+        eventPublisher.publishEvent(FacilityChangedEvent.of(FacilityChangedEvent.Kind.DELETED, facility));
+    }
+
+    private FacilitySummary overlay(FacilitySummary summary) {
+        if (!occupancyEngine.isEnabled()) {
+            return summary;
+        }
+        return occupancyEngine.currentOccupancy(summary.id()).map(summary::withOccupancy).orElse(summary);
+    }
+
+    private List<Facility> overlay(List<Facility> facilities) {
+        if (occupancyEngine.isEnabled()) {
+            facilities.forEach(occupancyEngine::overlay);
+        }
+        return facilities;
+    }
+
+    private static List<FacilitySpatialIndex.Neighbor> neighbors(FacilityCoordinates coordinates,
+                                                                 FacilityCoordinates.Result result) {
+        List<FacilitySpatialIndex.Neighbor> neighbors = new ArrayList<>(result.indices().length);
+        for (int i = 0; i < result.indices().length; i++) {
+            neighbors.add(new FacilitySpatialIndex.Neighbor(coordinates.ids[result.indices()[i]], result.distances()[i]));
+        }
+        return neighbors;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,317 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.repository.FacilityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * In-memory k-d tree over facility locations, partitioned by {@link FacilityType}.
+ * Locations are stored as unit vectors, where straight-line (chord) distance
+ * orders points exactly like great-circle distance, so subtrees can be pruned
+ * without any trigonometry during the search.
+ * <p>
+ * Writers rebuild an immutable snapshot and publish it through a volatile
+ * field (copy-on-write), so readers never block.
+ */
+@Component
+public class FacilitySpatialIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(FacilitySpatialIndex.class);
+
+    /** Earth's radius in kilometers, matching {@link Facility#calculateDistance} */
+    private static final double EARTH_RADIUS_KM = 6371;
+
+    /** Partition slot for facilities without a type */
+    private static final int UNTYPED = FacilityType.values().length;
+
+    private final FacilityRepository facilityRepository;
+    private final boolean enabled;
+    private final ReentrantLock writeLock = new ReentrantLock();
+
+    private volatile Snapshot snapshot;
+
+    public FacilitySpatialIndex(FacilityRepository facilityRepository,
+                                @Value("${atcapacity.nearest.index.enabled:false}") boolean enabled) {
+        this.facilityRepository = facilityRepository;
+        this.enabled = enabled;
+    }
+
+    /**
+     * A facility found by {@link #findNearest}.
+     * @param id facility ID
+     * @param distance great-circle distance in kilometers
+     */
+    public record Neighbor(String id, double distance) {
+    }
+
+    /**
+     * Result of {@link #search}.
+     * @param neighbors neighbors ordered by ascending distance
+     * @param visited tree nodes the search examined to find them
+     */
+    public record Search(List<Neighbor> neighbors, int visited) {
+    }
+
+    /**
+     * True once the index is enabled and has been built; until then callers should query MongoDB.
+     */
+    public boolean isReady() {
+        return enabled && snapshot != null;
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            rebuild(facilityRepository.findAll());
+            log.info("Built spatial index over {} facilities", snapshot.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not build spatial index; nearest queries will use MongoDB", e);
+        }
+    }
+
+    /**
+     * Replaces the whole index with the given facilities.
+     */
+    public void rebuild(Collection<Facility> facilities) {
+        Map<String, Entry> entries = new HashMap<>();
+        for (Facility facility : facilities) {
+            Entry entry = Entry.of(facility);
+            if (entry != null) {
+                entries.put(entry.id(), entry);
+            }
+        }
+        writeLock.lock();
+        try {
+            snapshot = Snapshot.build(entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Adds or moves a facility. Facilities without a location are removed.
+     */
+    public void upsert(Facility facility) {
+        if (!isReady() || facility.getId() == null) {
+            return;
+        }
+        Entry entry = Entry.of(facility);
+        writeLock.lock();
+        try {
+            Map<String, Entry> entries = new HashMap<>(snapshot.entries);
+            if (entry == null) {
+                entries.remove(facility.getId());
+            } else {
+                entries.put(entry.id(), entry);
+            }
+            snapshot = Snapshot.build(entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    public void remove(String facilityId) {
+        if (!isReady() || !snapshot.entries.containsKey(facilityId)) {
+            return;
+        }
+        writeLock.lock();
+        try {
+            Map<String, Entry> entries = new HashMap<>(snapshot.entries);
+            entries.remove(facilityId);
+            snapshot = Snapshot.build(entries);
+        } finally {
+            writeLock.unlock();
+        }
+    }
+
+    /**
+     * Finds the {@code limit} facilities closest to a point.
+     * @param type optional type filter; null searches every partition
+     * @return neighbors ordered by ascending distance
+     */
+    public List<Neighbor> findNearest(double latitude, double longitude, int limit, FacilityType type) {
+        return findNearest(latitude, longitude, limit, type, id -> true);
+    }
+
+    /**
+     * Like {@link #findNearest(double, double, int, FacilityType)}, skipping facilities the filter rejects.
+     * @param accept tested with each candidate's ID during the search
+     */
+    public List<Neighbor> findNearest(double latitude, double longitude, int limit, FacilityType type,
+                                      Predicate<String> accept) {
+        return search(latitude, longitude, limit, type, accept).neighbors();
+    }
+
+    /**
+     * Like {@link #findNearest(double, double, int, FacilityType, Predicate)}, also telling
+     * how many candidates the search examined.
+     */
+    public Search search(double latitude, double longitude, int limit, FacilityType type, Predicate<String> accept) {
+        Snapshot current = snapshot;
+        if (current == null || limit <= 0) {
+            return new Search(Collections.emptyList(), 0);
+        }
+
+        double[] query = toUnitVector(latitude, longitude);
+        TopKHeap heap = new TopKHeap(limit);
+        int visited = 0;
+        if (type != null) {
+            visited = current.search(type.ordinal(), query, heap, accept);
+        } else {
+            for (int partition = 0; partition <= UNTYPED; partition++) {
+                visited += current.search(partition, query, heap, accept);
+            }
+        }
+
+        int[] indices = new int[heap.size()];
+        double[] chordsSquared = new double[heap.size()];
+        int count = heap.drainAscending(indices, chordsSquared);
+        List<Neighbor> neighbors = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            neighbors.add(new Neighbor(current.ids[indices[i]], chordToKilometers(chordsSquared[i])));
+        }
+        return new Search(neighbors, visited);
+    }
+
+    static double[] toUnitVector(double latitude, double longitude) {
+        double lat = Math.toRadians(latitude);
+        double lon = Math.toRadians(longitude);
+        double cosLat = Math.cos(lat);
+        return new double[] {cosLat * Math.cos(lon), cosLat * Math.sin(lon), Math.sin(lat)};
+    }
+
+    /**
+     * Converts a squared chord length between unit vectors to great-circle kilometers.
+     */
+    static double chordToKilometers(double chordSquared) {
+        double halfChord = Math.min(1.0, Math.sqrt(chordSquared) / 2);
+        return EARTH_RADIUS_KM * 2 * Math.asin(halfChord);
+    }
+
+    private record Entry(String id, int partition, double latitude, double longitude) {
+
+        static Entry of(Facility facility) {
+            if (facility.getId() == null || facility.getLocation() == null) {
+                return null;
+            }
+            int partition = facility.getType() == null ? UNTYPED : facility.getType().ordinal();
+            return new Entry(facility.getId(), partition,
+                    facility.getLocation().getLatitude(), facility.getLocation().getLongitude());
+        }
+    }
+
+    /**
+     * Immutable index state: coordinates in flat arrays and, per partition,
+     * an implicit balanced k-d tree stored as a permutation of entry indices
+     * (the median of each range is the node, split axis cycles x, y, z).
+     */
+    private static final class Snapshot {
+
+        final Map<String, Entry> entries;
+        final String[] ids;
+        final double[][] coords;
+        final int[][] trees;
+
+        private Snapshot(Map<String, Entry> entries) {
+            this.entries = entries;
+            int n = entries.size();
+            this.ids = new String[n];
+            this.coords = new double[3][n];
+            List<List<Integer>> members = new ArrayList<>();
+            for (int p = 0; p <= UNTYPED; p++) {
+                members.add(new ArrayList<>());
+            }
+            int i = 0;
+            for (Entry entry : entries.values()) {
+                double[] v = toUnitVector(entry.latitude(), entry.longitude());
+                ids[i] = entry.id();
+                coords[0][i] = v[0];
+                coords[1][i] = v[1];
+                coords[2][i] = v[2];
+                members.get(entry.partition()).add(i);
+                i++;
+            }
+            this.trees = new int[UNTYPED + 1][];
+            for (int p = 0; p <= UNTYPED; p++) {
+                Integer[] order = members.get(p).toArray(new Integer[0]);
+                arrange(order, 0, order.length, 0);
+                trees[p] = Arrays.stream(order).mapToInt(Integer::intValue).toArray();
+            }
+        }
+
+        static Snapshot build(Map<String, Entry> entries) {
+            return new Snapshot(entries);
+        }
+
+        int size() {
+            return ids.length;
+        }
+
+        private void arrange(Integer[] order, int lo, int hi, int depth) {
+            if (hi - lo <= 1) {
+                return;
+            }
+            double[] axis = coords[depth % 3];
+            Arrays.sort(order, lo, hi, (a, b) -> Double.compare(axis[a], axis[b]));
+            int mid = (lo + hi) >>> 1;
+            arrange(order, lo, mid, depth + 1);
+            arrange(order, mid + 1, hi, depth + 1);
+        }
+
+        /**
+         * @return nodes visited
+         */
+        int search(int partition, double[] query, TopKHeap heap, Predicate<String> accept) {
+            return search(trees[partition], 0, trees[partition].length, 0, query, heap, accept);
+        }
+
+        private int search(int[] tree, int lo, int hi, int depth, double[] query, TopKHeap heap,
+                           Predicate<String> accept) {
+            if (lo >= hi) {
+                return 0;
+            }
+            int mid = (lo + hi) >>> 1;
+            int node = tree[mid];
+            double dx = query[0] - coords[0][node];
+            double dy = query[1] - coords[1][node];
+            double dz = query[2] - coords[2][node];
+            if (accept.test(ids[node])) {
+                heap.offer(node, dx * dx + dy * dy + dz * dz);
+            }
+
+            int visited = 1;
+            double split = query[depth % 3] - coords[depth % 3][node];
+            if (split < 0) {
+                visited += search(tree, lo, mid, depth + 1, query, heap, accept);
+                if (split * split < heap.worstKey()) {
+                    visited += search(tree, mid + 1, hi, depth + 1, query, heap, accept);
+                }
+            } else {
+                visited += search(tree, mid + 1, hi, depth + 1, query, heap, accept);
+                if (split * split < heap.worstKey()) {
+                    visited += search(tree, lo, mid, depth + 1, query, heap, accept);
+                }
+            }
+            return visited;
+        }
+    }
+}
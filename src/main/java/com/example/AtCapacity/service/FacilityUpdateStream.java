@@ -0,0 +1,177 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.FacilityType;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.thread.Threading;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.env.Environment;
+import org.springframework.core.task.VirtualThreadTaskExecutor;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Pushes facility changes to Server-Sent Event subscribers.
+ * <p>
+ * Changes are coalesced per facility, so a burst of increments produces at most one
+ * message per facility per tick. Each subscriber has its own mailbox (again keyed by
+ * facility, latest wins) drained on a small sender pool, so the tick never blocks and
+ * a slow client only delays itself.
+ */
+@Component
+public class FacilityUpdateStream {
+
+    private static final Logger log = LoggerFactory.getLogger(FacilityUpdateStream.class);
+
+    private final long emitterTimeoutMs;
+    private final Executor senders;
+
+    private final ConcurrentHashMap<String, FacilityChangedEvent> pending = new ConcurrentHashMap<>();
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+
+    public FacilityUpdateStream(@Value("${atcapacity.stream.timeout-ms:1800000}") long emitterTimeoutMs,
+                                @Value("${atcapacity.stream.sender-threads:4}") int senderThreads,
+                                Environment environment) {
+        this.emitterTimeoutMs = emitterTimeoutMs;
+        if (Threading.VIRTUAL.isActive(environment)) {
+            // A blocked write to a slow client then parks a virtual thread instead of holding a pool slot
+            this.senders = new VirtualThreadTaskExecutor("facility-stream-sender-");
+        } else {
+            this.senders = Executors.newFixedThreadPool(senderThreads, runnable -> {
+                Thread thread = new Thread(runnable, "facility-stream-sender");
+                thread.setDaemon(true);
+                return thread;
+            });
+        }
+    }
+
+    /**
+     * Opens a stream of facility changes.
+     * @param ids only facilities with these IDs; empty for all
+     * @param owner only facilities of this owner; null for all
+     * @param type only facilities of this type; null for all
+     */
+    public SseEmitter subscribe(Set<String> ids, String owner, FacilityType type) {
+        SseEmitter emitter = new SseEmitter(emitterTimeoutMs);
+        Subscriber subscriber = new Subscriber(emitter, ids, owner, type);
+        subscribers.add(subscriber);
+        emitter.onCompletion(() -> subscribers.remove(subscriber));
+        emitter.onTimeout(() -> subscribers.remove(subscriber));
+        emitter.onError(error -> subscribers.remove(subscriber));
+        return emitter;
+    }
+
+    public int getSubscriberCount() {
+        return subscribers.size();
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        if (!subscribers.isEmpty()) {
+            pending.put(event.facilityId(), event);
+        }
+    }
+
+    /**
+     * Hands the latest change of every facility changed since the previous tick to the subscribers.
+     */
+    @Scheduled(fixedDelayString = "${atcapacity.stream.tick-ms:1000}")
+    public void tick() {
+        if (pending.isEmpty()) {
+            return;
+        }
+        List<FacilityChangedEvent> changes = new ArrayList<>(pending.size());
+        for (String facilityId : pending.keySet()) {
+            // remove(key) rather than iterator removal, so a change arriving now is kept for the next tick
+            FacilityChangedEvent change = pending.remove(facilityId);
+            if (change != null) {
+                changes.add(change);
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.offer(changes)) {
+                senders.execute(subscriber::drain);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        if (senders instanceof ExecutorService pool) {
+            pool.shutdownNow();
+        }
+        subscribers.forEach(subscriber -> subscriber.emitter.complete());
+    }
+
+    private final class Subscriber {
+
+        private final SseEmitter emitter;
+        private final Set<String> ids;
+        private final String owner;
+        private final FacilityType type;
+        private final ConcurrentHashMap<String, FacilityChangedEvent> mailbox = new ConcurrentHashMap<>();
+        private final AtomicBoolean draining = new AtomicBoolean();
+
+        Subscriber(SseEmitter emitter, Set<String> ids, String owner, FacilityType type) {
+            this.emitter = emitter;
+            this.ids = ids;
+            this.owner = owner;
+            this.type = type;
+        }
+
+        /**
+         * Queues matching changes.
+         * @return true if the caller must schedule {@link #drain()}
+         */
+        boolean offer(List<FacilityChangedEvent> changes) {
+            for (FacilityChangedEvent change : changes) {
+                if (change.matches(ids, owner, type)) {
+                    mailbox.put(change.facilityId(), change);
+                }
+            }
+            return !mailbox.isEmpty() && draining.compareAndSet(false, true);
+        }
+
+        void drain() {
+            do {
+                for (String facilityId : mailbox.keySet()) {
+                    FacilityChangedEvent change = mailbox.remove(facilityId);
+                    if (change != null && !send(change)) {
+                        return;
+                    }
+                }
+                draining.set(false);
+            } while (!mailbox.isEmpty() && draining.compareAndSet(false, true));
+        }
+
+        private boolean send(FacilityChangedEvent change) {
+            try {
+                emitter.send(SseEmitter.event()
+                        .id(change.facilityId())
+                        .name(change.kind().name().toLowerCase(Locale.ROOT))
+                        .data(change.facility()));
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping facility stream subscriber", e);
+                subscribers.remove(this);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
@@ -0,0 +1,11 @@
+package com.example.AtCapacity.service;
+
+/**
+ * Thrown when the password-hashing queue is full and a request must be shed.
+ */
+public class HashingOverloadedException extends RuntimeException {
+
+    public HashingOverloadedException() {
+        super("Too many authentication requests, please retry shortly");
+    }
+}
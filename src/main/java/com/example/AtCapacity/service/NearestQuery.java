@@ -0,0 +1,19 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.FacilityType;
+
+/**
+ * One origin of a batch nearest-facility query.
+ * @param latitude origin latitude
+ * @param longitude origin longitude
+ * @param type optional facility type filter
+ * @param k number of facilities wanted; defaults to 4 when omitted
+ */
+public record NearestQuery(double latitude, double longitude, FacilityType type, Integer k) {
+
+    public static final int DEFAULT_K = 4;
+
+    public int limit() {
+        return k == null ? DEFAULT_K : k;
+    }
+}
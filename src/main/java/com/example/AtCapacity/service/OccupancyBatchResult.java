@@ -0,0 +1,26 @@
+package com.example.AtCapacity.service;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+/**
+ * Outcome of a batch of occupancy events for one facility.
+ * @param facilityId facility ID; null if the events named a facility that does not exist
+ * @param name facility name as given in the events or stored
+ * @param requested net change requested by the events
+ * @param applied how far the stored occupancy moved, less than requested when clamped to
+ *                [0, totalCapacity]; null if not found
+ * @param currentOccupancy occupancy after the batch was applied; null if not found
+ * @param status whether the change was applied
+ */
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record OccupancyBatchResult(String facilityId, String name, int requested, Integer applied,
+                                   Integer currentOccupancy, Status status) {
+
+    public enum Status {
+        APPLIED, NOT_FOUND
+    }
+
+    static OccupancyBatchResult notFound(String facilityId, String name, int requested) {
+        return new OccupancyBatchResult(facilityId, name, requested, null, null, Status.NOT_FOUND);
+    }
+}
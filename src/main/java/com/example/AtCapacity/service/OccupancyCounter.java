@@ -0,0 +1,149 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Lock-free, capacity-bounded occupancy counter for a single facility.
+ * Tracks the net change since the last flush so only deltas are written back.
+ */
+final class OccupancyCounter {
+
+    private static final VarHandle OCCUPANCY;
+
+    static {
+        try {
+            OCCUPANCY = MethodHandles.lookup().findVarHandle(OccupancyCounter.class, "occupancy", int.class);
+        } catch (ReflectiveOperationException e) {
+            throw new ExceptionInInitializerError(e);
+        }
+    }
+
+    private final String facilityId;
+    private final int capacity;
+    /** The document the counter was loaded from; only its version moves, with flushes and rebases */
+    private final Facility facility;
+    private final AtomicInteger pendingDelta = new AtomicInteger();
+
+    @SuppressWarnings("unused") // accessed through OCCUPANCY
+    private volatile int occupancy;
+    private volatile long lastTouchedNanos;
+
+    OccupancyCounter(String facilityId, int occupancy, int capacity) {
+        this(facilityId, occupancy, capacity, null);
+    }
+
+    OccupancyCounter(Facility facility) {
+        this(facility.getId(), facility.getCurrentOccupancy(), facility.getTotalCapacity(), facility);
+    }
+
+    private OccupancyCounter(String facilityId, int occupancy, int capacity, Facility facility) {
+        this.facilityId = facilityId;
+        this.occupancy = occupancy;
+        this.capacity = capacity;
+        this.facility = facility;
+        this.lastTouchedNanos = System.nanoTime();
+    }
+
+    String getFacilityId() {
+        return facilityId;
+    }
+
+    Facility getFacility() {
+        return facility;
+    }
+
+    int getCapacity() {
+        return capacity;
+    }
+
+    int getOccupancy() {
+        return (int) OCCUPANCY.getVolatile(this);
+    }
+
+    long getLastTouchedNanos() {
+        return lastTouchedNanos;
+    }
+
+    /**
+     * Increments occupancy if below capacity.
+     * @return the new occupancy, or -1 if at capacity
+     */
+    int tryIncrement() {
+        return tryAdd(1);
+    }
+
+    /**
+     * Decrements occupancy if above zero.
+     * @return the new occupancy, or -1 if already empty
+     */
+    int tryDecrement() {
+        return tryAdd(-1);
+    }
+
+    /**
+     * Applies as much of {@code delta} as fits within [0, capacity].
+     * @return the net change actually applied
+     */
+    int addClamped(int delta) {
+        while (true) {
+            int current = (int) OCCUPANCY.getVolatile(this);
+            int next = Math.max(0, Math.min(capacity, current + delta));
+            if (next == current) {
+                return 0;
+            }
+            if (OCCUPANCY.compareAndSet(this, current, next)) {
+                recordChange(next - current);
+                return next - current;
+            }
+        }
+    }
+
+    /**
+     * Moves the counter onto a newer stored occupancy, written by another instance,
+     * keeping the changes this instance has not flushed yet. The result is clamped
+     * to [0, capacity] like any other change.
+     */
+    void rebase(int storedOccupancy) {
+        while (true) {
+            int current = (int) OCCUPANCY.getVolatile(this);
+            int next = Math.max(0, Math.min(capacity, storedOccupancy + pendingDelta.get()));
+            if (next == current || OCCUPANCY.compareAndSet(this, current, next)) {
+                return;
+            }
+        }
+    }
+
+    /**
+     * Takes the net change accumulated since the previous call.
+     */
+    int drainPendingDelta() {
+        return pendingDelta.getAndSet(0);
+    }
+
+    boolean hasPendingDelta() {
+        return pendingDelta.get() != 0;
+    }
+
+    private int tryAdd(int delta) {
+        while (true) {
+            int current = (int) OCCUPANCY.getVolatile(this);
+            int next = current + delta;
+            if (next < 0 || next > capacity) {
+                return -1;
+            }
+            if (OCCUPANCY.compareAndSet(this, current, next)) {
+                recordChange(delta);
+                return next;
+            }
+        }
+    }
+
+    private void recordChange(int delta) {
+        pendingDelta.addAndGet(delta);
+        lastTouchedNanos = System.nanoTime();
+    }
+}
@@ -0,0 +1,297 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.OccupancyChange;
+import com.example.AtCapacity.repository.FacilityRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Optional in-memory occupancy engine.
+ * When enabled, increments and decrements are answered from per-facility
+ * {@link OccupancyCounter}s and only the net changes are written to the
+ * {@code facilities} collection in a periodic bulk write.
+ */
+@Component
+public class OccupancyEngine {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyEngine.class);
+
+    private final FacilityRepository facilityRepository;
+    private final boolean enabled;
+    private final long maxStalenessNanos;
+
+    private final ConcurrentHashMap<String, OccupancyCounter> counters = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, String> idsByName = new ConcurrentHashMap<>();
+    /** Counters unloaded by the last flush; drained once more to catch in-flight updates. */
+    private final List<OccupancyCounter> retired = new ArrayList<>();
+    /** Deltas from a failed flush, retried by the next one. */
+    private final Map<String, Integer> unflushed = new HashMap<>();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public OccupancyEngine(FacilityRepository facilityRepository,
+                           @Value("${atcapacity.occupancy.engine.enabled:false}") boolean enabled,
+                           @Value("${atcapacity.occupancy.engine.max-staleness-ms:30000}") long maxStalenessMs) {
+        this.facilityRepository = facilityRepository;
+        this.enabled = enabled;
+        this.maxStalenessNanos = Duration.ofMillis(maxStalenessMs).toNanos();
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Increments occupancy in memory.
+     * @return a copy of the facility with the new occupancy, or empty if not found or at capacity
+     */
+    public Optional<Facility> increment(String facilityId) {
+        return counter(facilityId).flatMap(counter -> view(counter, counter.tryIncrement()));
+    }
+
+    /**
+     * Decrements occupancy in memory.
+     * @return a copy of the facility with the new occupancy, or empty if not found or empty
+     */
+    public Optional<Facility> decrement(String facilityId) {
+        return counter(facilityId).flatMap(counter -> view(counter, counter.tryDecrement()));
+    }
+
+    /**
+     * Applies as much of a net change as fits within [0, capacity] in memory.
+     * @return a copy of the facility with the new occupancy and the part of the change
+     *         that fit, or empty if not found
+     */
+    public Optional<OccupancyChange> add(String facilityId, int delta) {
+        return counter(facilityId).flatMap(counter -> {
+            int applied = counter.addClamped(delta);
+            return view(counter, counter.getOccupancy()).map(facility -> new OccupancyChange(facility, applied));
+        });
+    }
+
+    public Optional<Facility> incrementByName(String name) {
+        return resolveId(name).flatMap(this::increment);
+    }
+
+    public Optional<Facility> decrementByName(String name) {
+        return resolveId(name).flatMap(this::decrement);
+    }
+
+    /**
+     * Returns the in-memory occupancy for a facility, if a counter is loaded.
+     */
+    public Optional<Integer> currentOccupancy(String facilityId) {
+        OccupancyCounter counter = counters.get(facilityId);
+        return counter == null ? Optional.empty() : Optional.of(counter.getOccupancy());
+    }
+
+    /**
+     * Overwrites the facility's occupancy with the in-memory value when one is loaded,
+     * so reads never lag behind the counters by the flush interval.
+     */
+    public Facility overlay(Facility facility) {
+        if (enabled && facility != null && facility.getId() != null) {
+            OccupancyCounter counter = counters.get(facility.getId());
+            if (counter != null) {
+                facility.setCurrentOccupancy(counter.getOccupancy());
+            }
+        }
+        return facility;
+    }
+
+    /**
+     * Drops the counter for a facility whose stored document was replaced or deleted,
+     * so the next access reloads it. Pending changes are written first, onto the new
+     * document, so increments and decrements made before the write are not lost.
+     */
+    public void evict(String facilityId) {
+        if (facilityId == null) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            OccupancyCounter counter = counters.get(facilityId);
+            Map<String, Integer> deltas = new HashMap<>();
+            Integer failed = unflushed.remove(facilityId);
+            if (failed != null) {
+                deltas.put(facilityId, failed);
+            }
+            if (counter != null) {
+                drainInto(counter, deltas);
+            }
+            if (!deltas.isEmpty()) {
+                try {
+                    facilityRepository.applyOccupancyDeltas(deltas);
+                } catch (RuntimeException e) {
+                    log.warn("Occupancy flush of evicted facility {} failed, will retry", facilityId, e);
+                    unflushed.merge(facilityId, deltas.get(facilityId), Integer::sum);
+                }
+            }
+            // Changes racing with the removal are drained by the next flush
+            if (counter != null && counters.remove(facilityId, counter)) {
+                retired.add(counter);
+            }
+            idsByName.values().remove(facilityId);
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Version of the loaded snapshot, which flushes keep in step with the stored document.
+     * @return the version, or null if no counter is loaded for the facility
+     */
+    public Long loadedVersion(String facilityId) {
+        OccupancyCounter counter = counters.get(facilityId);
+        Facility snapshot = counter == null ? null : counter.getFacility();
+        return snapshot == null ? null : snapshot.getVersion();
+    }
+
+    /**
+     * Applies a stored occupancy written by another instance to the loaded counter.
+     * Runs under the flush lock, so no drained change is in flight that the stored
+     * value would be missing.
+     * @return true if a counter is loaded and the stored version was newer than its snapshot
+     */
+    public boolean rebase(String facilityId, int storedOccupancy, Long storedVersion) {
+        if (!enabled || storedVersion == null) {
+            return false;
+        }
+        flushLock.lock();
+        try {
+            OccupancyCounter counter = counters.get(facilityId);
+            Facility snapshot = counter == null ? null : counter.getFacility();
+            if (snapshot == null || (snapshot.getVersion() != null && storedVersion <= snapshot.getVersion())) {
+                return false;
+            }
+            counter.rebase(storedOccupancy);
+            snapshot.setVersion(storedVersion);
+            return true;
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Writes the net change of every counter to MongoDB in one bulk write and
+     * unloads counters that have been idle longer than the maximum staleness,
+     * so the next access reloads capacity and occupancy from the database.
+     */
+    @Scheduled(fixedDelayString = "${atcapacity.occupancy.engine.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            Map<String, Integer> deltas = new HashMap<>(unflushed);
+            unflushed.clear();
+            for (OccupancyCounter counter : retired) {
+                drainInto(counter, deltas);
+            }
+            retired.clear();
+            for (OccupancyCounter counter : counters.values()) {
+                drainInto(counter, deltas);
+            }
+            if (!deltas.isEmpty()) {
+                try {
+                    facilityRepository.applyOccupancyDeltas(deltas);
+                } catch (RuntimeException e) {
+                    log.warn("Occupancy flush of {} facilities failed, will retry", deltas.size(), e);
+                    deltas.forEach((id, delta) -> unflushed.merge(id, delta, Integer::sum));
+                    return;
+                }
+                deltas.keySet().forEach(this::advanceVersion);
+            }
+            unloadStaleCounters();
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    /**
+     * Drains pending changes on a clean shutdown.
+     */
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private static void drainInto(OccupancyCounter counter, Map<String, Integer> deltas) {
+        int delta = counter.drainPendingDelta();
+        if (delta != 0) {
+            deltas.merge(counter.getFacilityId(), delta, Integer::sum);
+        }
+    }
+
+    /**
+     * The bulk write incremented the stored version once per facility; mirror that in
+     * the loaded snapshot so views carry the version an If-Match must name.
+     */
+    private void advanceVersion(String facilityId) {
+        OccupancyCounter counter = counters.get(facilityId);
+        Facility facility = counter == null ? null : counter.getFacility();
+        if (facility != null && facility.getVersion() != null) {
+            facility.setVersion(facility.getVersion() + 1);
+        }
+    }
+
+    private void unloadStaleCounters() {
+        long now = System.nanoTime();
+        for (OccupancyCounter counter : counters.values()) {
+            if (!counter.hasPendingDelta()
+                    && now - counter.getLastTouchedNanos() > maxStalenessNanos
+                    && counters.remove(counter.getFacilityId(), counter)) {
+                retired.add(counter);
+            }
+        }
+    }
+
+    private static Optional<Facility> view(OccupancyCounter counter, int occupancy) {
+        if (occupancy < 0) {
+            return Optional.empty();
+        }
+        Facility view = new Facility(counter.getFacility());
+        view.setCurrentOccupancy(occupancy);
+        return Optional.of(view);
+    }
+
+    private Optional<OccupancyCounter> counter(String facilityId) {
+        OccupancyCounter counter = counters.get(facilityId);
+        if (counter != null) {
+            return Optional.of(counter);
+        }
+        // Load outside the map so a slow read never holds a bin lock.
+        return facilityRepository.findById(facilityId).map(this::register);
+    }
+
+    private Optional<String> resolveId(String name) {
+        String id = idsByName.get(name);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        return facilityRepository.findByName(name).map(facility -> register(facility).getFacilityId());
+    }
+
+    private OccupancyCounter register(Facility facility) {
+        OccupancyCounter loaded = new OccupancyCounter(facility);
+        OccupancyCounter counter = counters.putIfAbsent(facility.getId(), loaded);
+        if (facility.getName() != null) {
+            idsByName.put(facility.getName(), facility.getId());
+        }
+        return counter != null ? counter : loaded;
+    }
+}
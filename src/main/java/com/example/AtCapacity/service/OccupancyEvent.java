@@ -0,0 +1,13 @@
+package com.example.AtCapacity.service;
+
+import java.time.Instant;
+
+/**
+ * One entry or exit reported by a turnstile gateway.
+ * @param facilityId facility ID; takes precedence over name when both are given
+ * @param name facility name, used when no ID is given
+ * @param delta occupancy change, e.g. +1 for an entry and -1 for an exit
+ * @param eventTime when the sensor saw the event; optional, as net changes do not depend on order
+ */
+public record OccupancyEvent(String facilityId, String name, int delta, Instant eventTime) {
+}
@@ -0,0 +1,28 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.HistoryResolution;
+
+import java.time.Instant;
+import java.util.List;
+
+/**
+ * Occupancy of one facility over a time range, one point per bucket with data.
+ * @param facilityId facility ID
+ * @param resolution bucket size the points were read at
+ * @param from start of the first bucket (inclusive)
+ * @param to end of the range (exclusive)
+ * @param points buckets in ascending time order; buckets without changes are omitted
+ */
+public record OccupancyHistory(String facilityId, HistoryResolution resolution, Instant from, Instant to,
+                               List<Point> points) {
+
+    /**
+     * @param bucket start of the bucket
+     * @param min lowest recorded occupancy
+     * @param max highest recorded occupancy
+     * @param average mean of the recorded occupancy values
+     * @param samples number of recorded values
+     */
+    public record Point(Instant bucket, int min, int max, double average, long samples) {
+    }
+}
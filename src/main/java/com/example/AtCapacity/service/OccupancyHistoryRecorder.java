@@ -0,0 +1,177 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.HistoryResolution;
+import com.example.AtCapacity.model.OccupancyRollup;
+import com.example.AtCapacity.model.OccupancySample;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.mongodb.core.BulkOperations;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Records every occupancy change as a time-series sample and keeps the
+ * per-minute, per-hour and per-day rollups up to date.
+ * <p>
+ * Listeners only enqueue, so request threads never wait on the history write.
+ * A scheduled flush inserts the queued samples in one batch and folds them into
+ * the rollups with one unordered bulk of upserts ($min, $max, $inc), so each
+ * rollup document is touched at most once per flush. A new minute or hour rollup
+ * is stamped with the time it expires. History is best effort:
+ * when the queue is full or a write fails, samples are dropped and counted.
+ */
+@Component
+public class OccupancyHistoryRecorder {
+
+    private static final Logger log = LoggerFactory.getLogger(OccupancyHistoryRecorder.class);
+
+    private final MongoTemplate mongoTemplate;
+    private final boolean enabled;
+    private final int batchSize;
+    private final BlockingQueue<OccupancySample> queue;
+    private final AtomicLong dropped = new AtomicLong();
+    private final ReentrantLock flushLock = new ReentrantLock();
+
+    public OccupancyHistoryRecorder(MongoTemplate mongoTemplate,
+                                    @Value("${atcapacity.history.enabled:true}") boolean enabled,
+                                    @Value("${atcapacity.history.queue-capacity:100000}") int queueCapacity,
+                                    @Value("${atcapacity.history.batch-size:5000}") int batchSize) {
+        this.mongoTemplate = mongoTemplate;
+        this.enabled = enabled;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Number of samples lost to a full queue or a failed write since startup.
+     */
+    public long getDroppedCount() {
+        return dropped.get();
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        // The instance that made a remote change has recorded it already
+        if (!enabled || event.remote() || event.kind() != FacilityChangedEvent.Kind.OCCUPANCY
+                || event.facility() == null) {
+            return;
+        }
+        OccupancySample sample = new OccupancySample(event.facilityId(),
+                event.facility().getCurrentOccupancy(), event.timestamp());
+        if (!queue.offer(sample)) {
+            dropped.incrementAndGet();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${atcapacity.history.flush-interval-ms:1000}")
+    public void flush() {
+        if (!enabled) {
+            return;
+        }
+        flushLock.lock();
+        try {
+            List<OccupancySample> batch = new ArrayList<>(Math.min(batchSize, queue.size()));
+            while (queue.drainTo(batch, batchSize) > 0) {
+                write(batch);
+                batch.clear();
+            }
+        } finally {
+            flushLock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    private void write(List<OccupancySample> batch) {
+        try {
+            mongoTemplate.insert(batch, OccupancySample.class);
+            BulkOperations rollups = mongoTemplate.bulkOps(BulkOperations.BulkMode.UNORDERED, OccupancyRollup.class);
+            for (RollupDelta delta : aggregate(batch).values()) {
+                Update update = new Update()
+                        .min("min", delta.min)
+                        .max("max", delta.max)
+                        .inc("sum", delta.sum)
+                        .inc("count", delta.count);
+                delta.resolution.expiryOf(delta.bucket).ifPresent(expiry -> update.setOnInsert("expireAt", expiry));
+                rollups.upsert(
+                        new Query(Criteria.where("facilityId").is(delta.facilityId)
+                                .and("resolution").is(delta.resolution)
+                                .and("bucket").is(delta.bucket)),
+                        update);
+            }
+            rollups.execute();
+        } catch (DataAccessException e) {
+            dropped.addAndGet(batch.size());
+            log.warn("Could not record {} occupancy samples", batch.size(), e);
+        }
+    }
+
+    /**
+     * Folds a batch into one delta per (facility, resolution, bucket).
+     */
+    static Map<RollupKey, RollupDelta> aggregate(List<OccupancySample> batch) {
+        Map<RollupKey, RollupDelta> deltas = new HashMap<>();
+        for (OccupancySample sample : batch) {
+            for (HistoryResolution resolution : HistoryResolution.values()) {
+                Instant bucket = resolution.bucketOf(sample.getTimestamp());
+                deltas.computeIfAbsent(new RollupKey(sample.getFacilityId(), resolution, bucket),
+                                key -> new RollupDelta(key.facilityId(), key.resolution(), key.bucket()))
+                        .add(sample.getOccupancy());
+            }
+        }
+        return deltas;
+    }
+
+    record RollupKey(String facilityId, HistoryResolution resolution, Instant bucket) {
+    }
+
+    static final class RollupDelta {
+
+        final String facilityId;
+        final HistoryResolution resolution;
+        final Instant bucket;
+        int min = Integer.MAX_VALUE;
+        int max = Integer.MIN_VALUE;
+        long sum;
+        long count;
+
+        RollupDelta(String facilityId, HistoryResolution resolution, Instant bucket) {
+            this.facilityId = facilityId;
+            this.resolution = resolution;
+            this.bucket = bucket;
+        }
+
+        void add(int occupancy) {
+            min = Math.min(min, occupancy);
+            max = Math.max(max, occupancy);
+            sum += occupancy;
+            count++;
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.HistoryResolution;
+import com.example.AtCapacity.model.OccupancyRollup;
+import com.example.AtCapacity.repository.OccupancyRollupRepository;
+import org.springframework.data.domain.Range;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * Reads occupancy history from the rollups written by {@link OccupancyHistoryRecorder}.
+ * A request only ever reads the one rollup resolution that fits its range, and
+ * unless asked for one, never a resolution that has already expired at its start.
+ */
+@Service
+public class OccupancyHistoryService {
+
+    /** Upper bound on the points of one history response */
+    public static final int MAX_POINTS = 2000;
+
+    /** Default range when none is given */
+    public static final Duration DEFAULT_RANGE = Duration.ofDays(1);
+
+    private final OccupancyRollupRepository rollupRepository;
+
+    public OccupancyHistoryService(OccupancyRollupRepository rollupRepository) {
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * @param from start of the range; defaults to one day before {@code to}
+     * @param to end of the range (exclusive); defaults to now
+     * @param resolution bucket size; defaults to the finest one that fits in {@link #MAX_POINTS}
+     * @throws IllegalArgumentException if the range is empty or needs more than {@link #MAX_POINTS} buckets
+     */
+    public OccupancyHistory getHistory(String facilityId, Instant from, Instant to, HistoryResolution resolution) {
+        Instant now = Instant.now();
+        Instant end = to != null ? to : now;
+        Instant start = from != null ? from : end.minus(DEFAULT_RANGE);
+        if (!start.isBefore(end)) {
+            throw new IllegalArgumentException("from must be before to");
+        }
+        HistoryResolution chosen = resolution != null ? resolution : resolutionFor(start, end, now);
+        if (bucketCount(start, end, chosen) > MAX_POINTS) {
+            throw new IllegalArgumentException("Range needs more than " + MAX_POINTS + " "
+                    + chosen.name().toLowerCase(Locale.ROOT) + " buckets; use a coarser resolution");
+        }
+
+        Instant firstBucket = chosen.bucketOf(start);
+        List<OccupancyHistory.Point> points = rollupRepository
+                .findByFacilityIdAndResolutionAndBucketBetween(facilityId, chosen,
+                        Range.rightOpen(firstBucket, end), Sort.by("bucket"))
+                .stream()
+                .map(OccupancyHistoryService::toPoint)
+                .toList();
+        return new OccupancyHistory(facilityId, chosen, firstBucket, end, points);
+    }
+
+    /**
+     * The finest resolution whose bucket count for the range stays within {@link #MAX_POINTS}
+     * and whose rollups at the start of the range have not expired by {@code now}.
+     */
+    static HistoryResolution resolutionFor(Instant from, Instant to, Instant now) {
+        for (HistoryResolution resolution : HistoryResolution.values()) {
+            boolean expired = resolution.expiryOf(resolution.bucketOf(from)).map(now::isAfter).orElse(false);
+            if (!expired && bucketCount(from, to, resolution) <= MAX_POINTS) {
+                return resolution;
+            }
+        }
+        return HistoryResolution.DAY;
+    }
+
+    private static long bucketCount(Instant from, Instant to, HistoryResolution resolution) {
+        Duration span = Duration.between(resolution.bucketOf(from), to);
+        long size = resolution.getBucketSize().toMillis();
+        return (span.toMillis() + size - 1) / size;
+    }
+
+    private static OccupancyHistory.Point toPoint(OccupancyRollup rollup) {
+        return new OccupancyHistory.Point(rollup.getBucket(), rollup.getMin(), rollup.getMax(),
+                rollup.getAverage(), rollup.getCount());
+    }
+}
@@ -0,0 +1,170 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.OpeningSchedule;
+import com.example.AtCapacity.repository.FacilityRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.data.annotation.Id;
+import org.springframework.scheduling.TaskScheduler;
+import org.springframework.stereotype.Component;
+
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * The set of facilities open right now, kept in memory so an "open now" filter is
+ * a hash lookup per facility.
+ * <p>
+ * Every facility's compiled {@link OpeningSchedule} is held here. The set is rebuilt
+ * only when some facility opens or closes: after each rebuild the next boundary
+ * across all schedules is scheduled on the task scheduler. Facility writes update
+ * the schedules through change events. Times are in the server's time zone, like
+ * {@code Facility.isOpen()}.
+ */
+@Component
+public class OpenNowIndex implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(OpenNowIndex.class);
+
+    /** Rebuild at least this often, so DST shifts and clock jumps are picked up */
+    private static final long MAX_REFRESH_MINUTES = 60;
+
+    private final FacilityRepository facilityRepository;
+    private final TaskScheduler taskScheduler;
+    private final ZoneId zone = ZoneId.systemDefault();
+    private final ConcurrentHashMap<String, OpeningSchedule> schedules = new ConcurrentHashMap<>();
+    private final ReentrantLock refreshLock = new ReentrantLock();
+
+    private volatile Set<String> openIds;
+    private ScheduledFuture<?> nextRefresh;
+
+    public OpenNowIndex(FacilityRepository facilityRepository, TaskScheduler taskScheduler) {
+        this.facilityRepository = facilityRepository;
+        this.taskScheduler = taskScheduler;
+    }
+
+    /**
+     * Projection used to load schedules without reading whole documents.
+     */
+    public record FacilityHours(@Id String id, String hours) {
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        try (Stream<FacilityHours> all = facilityRepository.streamAllBy(FacilityHours.class)) {
+            all.forEach(facility -> schedules.put(facility.id(), OpeningSchedule.parseOrClosed(facility.hours())));
+        } catch (DataAccessException e) {
+            log.warn("Could not load opening hours; open-now filters will check each facility", e);
+            return;
+        }
+        refresh();
+        log.info("Tracking opening hours of {} facilities, {} open now", schedules.size(), openIds.size());
+    }
+
+    /**
+     * Replaces every schedule with those of the given facilities, e.g. after changes
+     * made by other instances could not be followed. Does nothing until ready.
+     */
+    public void reload(Collection<Facility> facilities) {
+        if (!isReady()) {
+            return;
+        }
+        Map<String, OpeningSchedule> loaded = new HashMap<>();
+        facilities.forEach(facility -> loaded.put(facility.getId(), facility.getSchedule()));
+        schedules.keySet().retainAll(loaded.keySet());
+        schedules.putAll(loaded);
+        refresh();
+    }
+
+    /**
+     * True once schedules are loaded; until then callers should check {@code Facility.isOpen()}.
+     */
+    public boolean isReady() {
+        return openIds != null;
+    }
+
+    public boolean isOpen(String facilityId) {
+        Set<String> current = openIds;
+        return current != null && current.contains(facilityId);
+    }
+
+    /**
+     * IDs of every facility open right now; unmodifiable and empty until ready.
+     */
+    public Set<String> getOpenIds() {
+        Set<String> current = openIds;
+        return current == null ? Set.of() : current;
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        if (!isReady()) {
+            return;
+        }
+        switch (event.kind()) {
+            case CREATED, UPDATED -> {
+                if (event.facility() == null) {
+                    return;
+                }
+                schedules.put(event.facilityId(), event.facility().getSchedule());
+                refresh();
+            }
+            case DELETED -> {
+                if (schedules.remove(event.facilityId()) != null) {
+                    refresh();
+                }
+            }
+            default -> {
+                // Occupancy changes do not affect opening hours
+            }
+        }
+    }
+
+    /**
+     * Rebuilds the open set for the current minute and schedules the next rebuild
+     * at the earliest upcoming opening or closing.
+     */
+    void refresh() {
+        refreshLock.lock();
+        try {
+            ZonedDateTime now = ZonedDateTime.now(zone).truncatedTo(ChronoUnit.MINUTES);
+            int minuteOfWeek = OpeningSchedule.minuteOfWeek(now);
+            Set<String> open = new HashSet<>();
+            long nextChange = MAX_REFRESH_MINUTES;
+            for (var entry : schedules.entrySet()) {
+                OpeningSchedule schedule = entry.getValue();
+                if (schedule.isOpenAt(minuteOfWeek)) {
+                    open.add(entry.getKey());
+                }
+                int minutes = schedule.minutesUntilNextChange(minuteOfWeek);
+                if (minutes > 0 && minutes < nextChange) {
+                    nextChange = minutes;
+                }
+            }
+            openIds = Collections.unmodifiableSet(open);
+
+            if (nextRefresh != null) {
+                nextRefresh.cancel(false);
+            }
+            nextRefresh = taskScheduler.schedule(this::refresh, now.plusMinutes(nextChange).toInstant());
+        } finally {
+            refreshLock.unlock();
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package com.example.AtCapacity.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.stereotype.Service;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * Runs BCrypt hashing and verification on a dedicated executor sized to the CPU count,
+ * so a burst of logins cannot occupy every servlet thread. When the bounded queue is
+ * full, work is rejected with {@link HashingOverloadedException} instead of queuing
+ * without limit.
+ * <p>
+ * The BCrypt cost is either configured or, with calibration enabled, chosen at startup
+ * as the highest cost whose hash time stays within a target latency.
+ * <p>
+ * Hash and verify durations are timed as {@code atcapacity.password.hash}, excluding
+ * time spent queued; the queue length is the {@code atcapacity.password.queue} gauge.
+ */
+@Service
+public class PasswordHashingService {
+
+    private static final Logger log = LoggerFactory.getLogger(PasswordHashingService.class);
+    private static final int MIN_STRENGTH = 4;
+    private static final int MAX_STRENGTH = 16;
+
+    private final BCryptPasswordEncoder encoder;
+    private final ThreadPoolExecutor executor;
+    private final Timer encodeTimer;
+    private final Timer verifyTimer;
+
+    public PasswordHashingService(@Value("${atcapacity.password.bcrypt-strength:10}") int strength,
+                                  @Value("${atcapacity.password.calibrate:false}") boolean calibrate,
+                                  @Value("${atcapacity.password.calibration-target-ms:250}") long targetMs,
+                                  @Value("${atcapacity.password.queue-capacity:64}") int queueCapacity,
+                                  MeterRegistry registry) {
+        int cost = calibrate ? calibrate(targetMs) : strength;
+        this.encoder = new BCryptPasswordEncoder(cost);
+
+        int threads = Runtime.getRuntime().availableProcessors();
+        AtomicInteger threadNumber = new AtomicInteger();
+        this.executor = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "password-hashing-" + threadNumber.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.AbortPolicy());
+        this.encodeTimer = hashTimer(registry, "encode");
+        this.verifyTimer = hashTimer(registry, "verify");
+        Gauge.builder("atcapacity.password.queue", executor, pool -> pool.getQueue().size())
+                .description("Password hashing tasks waiting for a thread")
+                .register(registry);
+        log.info("Password hashing uses BCrypt cost {} on {} threads", cost, threads);
+    }
+
+    public CompletableFuture<String> encode(String rawPassword) {
+        return submit(timed(encodeTimer, () -> encoder.encode(rawPassword)));
+    }
+
+    public CompletableFuture<Boolean> matches(String rawPassword, String encodedPassword) {
+        return submit(timed(verifyTimer, () -> encoder.matches(rawPassword, encodedPassword)));
+    }
+
+    /**
+     * True if the hash was made with a lower cost than the current one and should be re-hashed.
+     */
+    public boolean needsUpgrade(String encodedPassword) {
+        return encoder.upgradeEncoding(encodedPassword);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    private static Timer hashTimer(MeterRegistry registry, String operation) {
+        return Timer.builder("atcapacity.password.hash")
+                .description("BCrypt hash and verify durations")
+                .tag("operation", operation)
+                .register(registry);
+    }
+
+    private static <T> Supplier<T> timed(Timer timer, Supplier<T> task) {
+        return () -> {
+            long start = System.nanoTime();
+            try {
+                return task.get();
+            } finally {
+                timer.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+        };
+    }
+
+    private <T> CompletableFuture<T> submit(Supplier<T> task) {
+        try {
+            return CompletableFuture.supplyAsync(task, executor);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(new HashingOverloadedException());
+        }
+    }
+
+    /**
+     * Each cost step doubles the work, so stop at the first cost that misses the target.
+     */
+    static int calibrate(long targetMs) {
+        int chosen = MIN_STRENGTH;
+        for (int cost = MIN_STRENGTH; cost <= MAX_STRENGTH; cost++) {
+            BCryptPasswordEncoder candidate = new BCryptPasswordEncoder(cost);
+            candidate.encode("calibration"); // warm up
+            long start = System.nanoTime();
+            candidate.encode("calibration");
+            long elapsedMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+            if (elapsedMs > targetMs) {
+                break;
+            }
+            chosen = cost;
+        }
+        if (chosen < 10) {
+            log.warn("Calibrated BCrypt cost {} is below the recommended minimum of 10", chosen);
+        }
+        return chosen;
+    }
+}
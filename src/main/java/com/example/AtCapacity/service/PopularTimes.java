@@ -0,0 +1,15 @@
+package com.example.AtCapacity.service;
+
+import java.time.DayOfWeek;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * How busy a facility usually is at each hour of the week.
+ * @param facilityId facility ID
+ * @param zone time zone the days and hours are in
+ * @param busyness per day, 24 values (hour 0 first) of typical occupancy as a percentage
+ *                 of capacity; null where there is not enough data
+ */
+public record PopularTimes(String facilityId, String zone, Map<DayOfWeek, List<Integer>> busyness) {
+}
@@ -0,0 +1,158 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.PopularTimesHistogram;
+import com.example.AtCapacity.repository.PopularTimesRepository;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.SmartInitializingSingleton;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.DayOfWeek;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Keeps a {@link WeeklyHistogram} of occupancy (as a share of capacity) per facility,
+ * fed in O(1) by every occupancy change and served from memory. Histograms are
+ * loaded at startup and changed ones are saved periodically, so a restart loses at
+ * most one persist interval of updates.
+ */
+@Service
+public class PopularTimesService implements SmartInitializingSingleton {
+
+    private static final Logger log = LoggerFactory.getLogger(PopularTimesService.class);
+
+    private final PopularTimesRepository repository;
+    private final boolean enabled;
+    private final ZoneId zone;
+    private final double halfLifeMillis;
+
+    private final ConcurrentHashMap<String, WeeklyHistogram> histograms = new ConcurrentHashMap<>();
+
+    public PopularTimesService(PopularTimesRepository repository,
+                               @Value("${atcapacity.popular-times.enabled:true}") boolean enabled,
+                               @Value("${atcapacity.popular-times.zone:UTC}") String zone,
+                               @Value("${atcapacity.popular-times.half-life-days:28}") long halfLifeDays) {
+        this.repository = repository;
+        this.enabled = enabled;
+        this.zone = ZoneId.of(zone);
+        this.halfLifeMillis = Duration.ofDays(halfLifeDays).toMillis();
+    }
+
+    @Override
+    public void afterSingletonsInstantiated() {
+        if (!enabled) {
+            return;
+        }
+        try {
+            for (PopularTimesHistogram stored : repository.findAll()) {
+                histograms.put(stored.getId(), WeeklyHistogram.of(stored));
+            }
+            log.info("Loaded popular times for {} facilities", histograms.size());
+        } catch (DataAccessException e) {
+            log.warn("Could not load popular times; histograms start empty", e);
+        }
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        if (!enabled) {
+            return;
+        }
+        if (event.kind() == FacilityChangedEvent.Kind.DELETED) {
+            // The instance that deleted the facility deletes the stored histogram
+            if (histograms.remove(event.facilityId()) != null && !event.remote()) {
+                try {
+                    repository.deleteById(event.facilityId());
+                } catch (DataAccessException e) {
+                    log.warn("Could not delete popular times of {}", event.facilityId(), e);
+                }
+            }
+            return;
+        }
+        Facility facility = event.facility();
+        if (event.kind() != FacilityChangedEvent.Kind.OCCUPANCY || facility == null
+                || facility.getTotalCapacity() <= 0) {
+            return;
+        }
+        double ratio = Math.min(1.0, (double) facility.getCurrentOccupancy() / facility.getTotalCapacity());
+        histograms.computeIfAbsent(event.facilityId(), id -> new WeeklyHistogram())
+                .record(slotOf(event.timestamp()), ratio, event.timestamp().toEpochMilli(), halfLifeMillis);
+    }
+
+    /**
+     * @return the facility's popular times; every hour is null if nothing was recorded yet
+     */
+    public PopularTimes getPopularTimes(String facilityId) {
+        WeeklyHistogram histogram = histograms.get(facilityId);
+        Map<DayOfWeek, List<Integer>> busyness = new EnumMap<>(DayOfWeek.class);
+        for (DayOfWeek day : DayOfWeek.values()) {
+            List<Integer> hours = new ArrayList<>(24);
+            for (int hour = 0; hour < 24; hour++) {
+                Double mean = histogram == null ? null : histogram.mean(slot(day, hour));
+                hours.add(mean == null ? null : (int) Math.round(mean * 100));
+            }
+            busyness.put(day, hours);
+        }
+        return new PopularTimes(facilityId, zone.getId(), busyness);
+    }
+
+    /**
+     * Saves every histogram changed since the previous run.
+     */
+    @Scheduled(fixedDelayString = "${atcapacity.popular-times.persist-interval-ms:60000}")
+    public void persist() {
+        if (!enabled) {
+            return;
+        }
+        List<PopularTimesHistogram> changed = new ArrayList<>();
+        histograms.forEach((id, histogram) -> {
+            PopularTimesHistogram snapshot = histogram.takeSnapshotIfDirty(id);
+            if (snapshot != null) {
+                changed.add(snapshot);
+            }
+        });
+        if (changed.isEmpty()) {
+            return;
+        }
+        try {
+            repository.saveAll(changed);
+        } catch (DataAccessException e) {
+            log.warn("Could not save popular times of {} facilities, will retry", changed.size(), e);
+            changed.forEach(snapshot -> {
+                WeeklyHistogram histogram = histograms.get(snapshot.getId());
+                if (histogram != null) {
+                    histogram.markDirty();
+                }
+            });
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        persist();
+    }
+
+    int slotOf(Instant timestamp) {
+        ZonedDateTime local = timestamp.atZone(zone);
+        return slot(local.getDayOfWeek(), local.getHour());
+    }
+
+    private static int slot(DayOfWeek day, int hour) {
+        return (day.getValue() - 1) * 24 + hour;
+    }
+}
@@ -0,0 +1,257 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilitySummary;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.repository.ReactiveFacilityRepository;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.annotation.Profile;
+import org.springframework.dao.OptimisticLockingFailureException;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.geo.Metrics;
+import org.springframework.stereotype.Service;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import reactor.util.retry.Retry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Non-blocking counterpart of {@link FacilityService} for the "reactive" profile.
+ * Every method only assembles a pipeline; nothing touches MongoDB until it is subscribed.
+ * <p>
+ * The occupancy engine and lookup cache are blocking-stack features and are not used
+ * here: occupancy changes are always single conditional findAndModify calls. The
+ * in-memory spatial index is, when enabled, since searching it never blocks.
+ * <p>
+ * Change events are published on a bounded-elastic worker, not the event loop: their
+ * listeners run synchronously and some block, e.g. on MongoDB or on rebuilding the
+ * open-now index.
+ */
+@Service
+@Profile("reactive")
+public class ReactiveFacilityService {
+
+    private final ReactiveFacilityRepository facilityRepository;
+    private final FacilitySpatialIndex spatialIndex;
+    private final ApplicationEventPublisher eventPublisher;
+
+    public ReactiveFacilityService(ReactiveFacilityRepository facilityRepository, FacilitySpatialIndex spatialIndex,
+                                   ApplicationEventPublisher eventPublisher) {
+        this.facilityRepository = facilityRepository;
+        this.spatialIndex = spatialIndex;
+        this.eventPublisher = eventPublisher;
+    }
+
+    /**
+     * Every facility, pulled from the cursor in batches as the subscriber requests them.
+     */
+    public Flux<Facility> streamAllFacilities() {
+        return facilityRepository.streamAllBy();
+    }
+
+    public Flux<FacilitySummary> streamAllFacilitySummaries() {
+        return facilityRepository.streamAllBy(FacilitySummary.class);
+    }
+
+    /**
+     * Same contract as {@link FacilityService#getFacilitiesPage}; an out-of-range limit
+     * signals IllegalArgumentException.
+     */
+    public Mono<FacilityPage> getFacilitiesPage(String after, int limit) {
+        if (limit < 1 || limit > FacilityService.MAX_PAGE_SIZE) {
+            return Mono.error(new IllegalArgumentException(
+                    "limit must be between 1 and " + FacilityService.MAX_PAGE_SIZE));
+        }
+        // Fetch one extra row to learn whether another page exists
+        Flux<Facility> items = after == null
+                ? facilityRepository.findAllByOrderByIdAsc(Limit.of(limit + 1))
+                : facilityRepository.findByIdGreaterThanOrderByIdAsc(after, Limit.of(limit + 1));
+        return items.collectList().map(list -> {
+            if (list.size() <= limit) {
+                return new FacilityPage(list, null);
+            }
+            List<Facility> page = new ArrayList<>(list.subList(0, limit));
+            return new FacilityPage(page, page.get(limit - 1).getId());
+        });
+    }
+
+    public Mono<Facility> getFacilityById(String id) {
+        return facilityRepository.findById(id);
+    }
+
+    public Mono<FacilitySummary> getFacilitySummaryById(String id) {
+        return facilityRepository.findById(id).map(FacilitySummary::of);
+    }
+
+    public Mono<Facility> getFacilityByName(String name) {
+        return facilityRepository.findByName(name);
+    }
+
+    public Flux<Facility> getFacilitiesByOwner(String owner) {
+        return facilityRepository.findByOwner(owner);
+    }
+
+    public Flux<FacilitySummary> getFacilitySummariesByOwner(String owner) {
+        return facilityRepository.findByOwner(owner, FacilitySummary.class);
+    }
+
+    /**
+     * Saves a new facility; errors with IllegalArgumentException if the hours cannot be parsed.
+     */
+    public Mono<Facility> createFacility(Facility facility) {
+        return Mono.fromRunnable(() -> {
+                    FacilityService.validateHours(facility);
+                    facility.setVersion(null);
+                    facility.setMetadataVersion(0L);
+                })
+                .then(Mono.defer(() -> facilityRepository.save(facility)))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(saved -> {
+                    spatialIndex.upsert(saved);
+                    eventPublisher.publishEvent(FacilityChangedEvent.of(FacilityChangedEvent.Kind.CREATED, saved));
+                });
+    }
+
+    /**
+     * Replaces the facility with the given ID, keeping its stored occupancy.
+     * @return the saved facility, or empty if no facility has that ID;
+     *         errors with IllegalArgumentException if the hours cannot be parsed
+     */
+    public Mono<Facility> updateFacility(String id, Facility facility) {
+        return Mono.fromRunnable(() -> FacilityService.validateHours(facility))
+                .then(facilityRepository.findById(id)
+                        .flatMap(existing -> {
+                            facility.setId(id);
+                            // Saving without the stored version would insert a second document
+                            facility.setVersion(existing.getVersion());
+                            facility.setMetadataVersion(existing.getMetadataVersion() == null
+                                    ? 1L : existing.getMetadataVersion() + 1);
+                            // Occupancy only changes through increments and decrements
+                            facility.setCurrentOccupancy(existing.getCurrentOccupancy());
+                            return facilityRepository.save(facility);
+                        })
+                        // An occupancy change between the read and the save; read again
+                        .retryWhen(Retry.max(FacilityService.MAX_UPDATE_ATTEMPTS - 1)
+                                .filter(OptimisticLockingFailureException.class::isInstance)
+                                .onRetryExhaustedThrow((spec, signal) -> signal.failure())))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(saved -> {
+                    spatialIndex.upsert(saved);
+                    eventPublisher.publishEvent(FacilityChangedEvent.of(FacilityChangedEvent.Kind.UPDATED, saved));
+                });
+    }
+
+    /**
+     * Replaces the facility with the given name, keeping its ID.
+     * @return the saved facility, or empty if no facility has that name
+     */
+    public Mono<Facility> updateFacilityByName(String name, Facility facility) {
+        return facilityRepository.findByName(name)
+                .flatMap(existing -> updateFacility(existing.getId(), facility));
+    }
+
+    /**
+     * @return the new occupancy, or empty if the facility was not found or is at capacity
+     */
+    public Mono<Integer> incrementOccupancy(String facilityId) {
+        return occupancyChanged(facilityRepository.incrementOccupancyById(facilityId), 1);
+    }
+
+    /**
+     * @return the new occupancy, or empty if the facility was not found or is empty
+     */
+    public Mono<Integer> decrementOccupancy(String facilityId) {
+        return occupancyChanged(facilityRepository.decrementOccupancyById(facilityId), -1);
+    }
+
+    public Mono<Integer> incrementOccupancyByName(String name) {
+        return occupancyChanged(facilityRepository.incrementOccupancyByName(name), 1);
+    }
+
+    public Mono<Integer> decrementOccupancyByName(String name) {
+        return occupancyChanged(facilityRepository.decrementOccupancyByName(name), -1);
+    }
+
+    public Mono<Void> deleteFacility(String id) {
+        return deleted(facilityRepository.findById(id));
+    }
+
+    public Mono<Void> deleteFacilityByName(String name) {
+        return deleted(facilityRepository.findByName(name));
+    }
+
+    /**
+     * Finds the nearest facilities, either from the in-memory spatial index or
+     * with MongoDB's 2dsphere index.
+     * @return facilities ordered by distance, each with its distance in kilometers set
+     */
+    public Flux<Facility> findNearestFacilities(double latitude, double longitude, int limit, FacilityType type) {
+        if (spatialIndex.isReady()) {
+            return findNearestInIndex(latitude, longitude, limit, type, Function.identity());
+        }
+        return facilityRepository.findNearest(latitude, longitude, type, limit)
+                .map(result -> {
+                    Facility facility = result.getContent();
+                    facility.setDistance(result.getDistance().in(Metrics.KILOMETERS).getValue());
+                    return facility;
+                });
+    }
+
+    public Flux<FacilitySummary> findNearestFacilitySummaries(double latitude, double longitude, int limit,
+                                                              FacilityType type) {
+        if (spatialIndex.isReady()) {
+            return findNearestInIndex(latitude, longitude, limit, type, FacilitySummary::of);
+        }
+        return facilityRepository.findNearestSummaries(latitude, longitude, type, limit);
+    }
+
+    /**
+     * Looks the neighbors up with one query and restores distance order, which findAllById does not keep.
+     */
+    private <T> Flux<T> findNearestInIndex(double latitude, double longitude, int limit, FacilityType type,
+                                           Function<Facility, T> mapper) {
+        List<FacilitySpatialIndex.Neighbor> neighbors = spatialIndex.findNearest(latitude, longitude, limit, type);
+        List<String> ids = neighbors.stream().map(FacilitySpatialIndex.Neighbor::id).toList();
+        return facilityRepository.findAllById(ids)
+                .collectMap(Facility::getId)
+                .flatMapIterable(byId -> {
+                    List<T> ordered = new ArrayList<>(neighbors.size());
+                    for (FacilitySpatialIndex.Neighbor neighbor : neighbors) {
+                        Facility facility = byId.get(neighbor.id());
+                        if (facility != null) {
+                            facility.setDistance(neighbor.distance());
+                            ordered.add(mapper.apply(facility));
+                        }
+                    }
+                    return ordered;
+                });
+    }
+
+    private Mono<Integer> occupancyChanged(Mono<Facility> updated, int delta) {
+        return updated
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(facility -> eventPublisher.publishEvent(FacilityChangedEvent.occupancy(facility, delta)))
+                .map(Facility::getCurrentOccupancy);
+    }
+
+    private Mono<Void> deleted(Mono<Facility> existing) {
+        return existing
+                .flatMap(facility -> facilityRepository.delete(facility)
+                        .then(facilityRepository.recordDeletion(facility.getId(), facility.getOwner()))
+                        .map(sequence -> {
+                            facility.setChangeSeq(sequence);
+                            return facility;
+                        }))
+                .publishOn(Schedulers.boundedElastic())
+                .doOnNext(facility -> {
+                    spatialIndex.remove(facility.getId());
+                    eventPublisher.publishEvent(FacilityChangedEvent.of(FacilityChangedEvent.Kind.DELETED, facility));
+                })
+                .then();
+    }
+}
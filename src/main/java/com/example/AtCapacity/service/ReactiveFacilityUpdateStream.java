@@ -0,0 +1,72 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.codec.ServerSentEvent;
+import org.springframework.stereotype.Component;
+import reactor.core.publisher.BufferOverflowStrategy;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Reactive counterpart of {@link FacilityUpdateStream} for the "reactive" profile.
+ * <p>
+ * Changes are multicast to every subscriber, which coalesces them per facility per
+ * tick (latest wins). A subscriber that cannot keep up loses its oldest messages
+ * rather than slowing the others or growing without bound.
+ */
+@Component
+@Profile("reactive")
+public class ReactiveFacilityUpdateStream {
+
+    /** Coalesced messages a slow subscriber may fall behind by */
+    private static final int SUBSCRIBER_BUFFER = 256;
+
+    private final Duration tick;
+    private final Duration timeout;
+    private final Sinks.Many<FacilityChangedEvent> changes = Sinks.many().multicast().directBestEffort();
+
+    public ReactiveFacilityUpdateStream(@Value("${atcapacity.stream.tick-ms:1000}") long tickMs,
+                                        @Value("${atcapacity.stream.timeout-ms:1800000}") long timeoutMs) {
+        this.tick = Duration.ofMillis(tickMs);
+        this.timeout = Duration.ofMillis(timeoutMs);
+    }
+
+    /**
+     * Opens a stream of facility changes; same filters as {@link FacilityUpdateStream#subscribe}.
+     */
+    public Flux<ServerSentEvent<Facility>> subscribe(Set<String> ids, String owner, FacilityType type) {
+        return changes.asFlux()
+                .filter(change -> change.matches(ids, owner, type))
+                .window(tick)
+                .concatMap(window -> window
+                        .collectMap(FacilityChangedEvent::facilityId, change -> change, LinkedHashMap::new)
+                        .flatMapIterable(Map::values))
+                .onBackpressureBuffer(SUBSCRIBER_BUFFER, BufferOverflowStrategy.DROP_OLDEST)
+                .map(change -> ServerSentEvent.builder(change.facility())
+                        .id(change.facilityId())
+                        .event(change.kind().name().toLowerCase(Locale.ROOT))
+                        .build())
+                .take(timeout);
+    }
+
+    public int getSubscriberCount() {
+        return changes.currentSubscriberCount();
+    }
+
+    @EventListener
+    public void onFacilityChanged(FacilityChangedEvent event) {
+        // Events arrive from many threads; retry briefly when another emission is in progress
+        changes.emitNext(event, Sinks.EmitFailureHandler.busyLooping(Duration.ofMillis(100)));
+    }
+}
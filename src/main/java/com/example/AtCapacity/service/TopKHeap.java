@@ -0,0 +1,101 @@
+package com.example.AtCapacity.service;
+
+/**
+ * Bounded max-heap that keeps the {@code k} entries with the smallest keys.
+ * Entries are plain int indices so callers can keep their data in primitive arrays.
+ */
+final class TopKHeap {
+
+    private final int capacity;
+    private final double[] keys;
+    private final int[] indices;
+    private int size;
+
+    TopKHeap(int capacity) {
+        this.capacity = capacity;
+        this.keys = new double[capacity];
+        this.indices = new int[capacity];
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * Largest key currently kept, or positive infinity while the heap is not full.
+     * Anything at or beyond this key cannot enter the heap.
+     */
+    double worstKey() {
+        return size < capacity ? Double.POSITIVE_INFINITY : keys[0];
+    }
+
+    /**
+     * Offers an entry, evicting the current worst one if the heap is full.
+     */
+    void offer(int index, double key) {
+        if (capacity == 0) {
+            return;
+        }
+        if (size < capacity) {
+            keys[size] = key;
+            indices[size] = index;
+            siftUp(size++);
+        } else if (key < keys[0]) {
+            keys[0] = key;
+            indices[0] = index;
+            siftDown(0);
+        }
+    }
+
+    /**
+     * Moves the kept entries into the given arrays ordered by ascending key, leaving the heap empty.
+     * @return the number of entries written
+     */
+    int drainAscending(int[] indicesOut, double[] keysOut) {
+        int count = size;
+        for (int i = count - 1; i >= 0; i--) {
+            indicesOut[i] = indices[0];
+            keysOut[i] = keys[0];
+            size--;
+            keys[0] = keys[size];
+            indices[0] = indices[size];
+            siftDown(0);
+        }
+        return count;
+    }
+
+    private void siftUp(int i) {
+        while (i > 0) {
+            int parent = (i - 1) >>> 1;
+            if (keys[parent] >= keys[i]) {
+                return;
+            }
+            swap(i, parent);
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while (true) {
+            int left = 2 * i + 1;
+            if (left >= size) {
+                return;
+            }
+            int largest = left + 1 < size && keys[left + 1] > keys[left] ? left + 1 : left;
+            if (keys[i] >= keys[largest]) {
+                return;
+            }
+            swap(i, largest);
+            i = largest;
+        }
+    }
+
+    private void swap(int a, int b) {
+        double key = keys[a];
+        keys[a] = keys[b];
+        keys[b] = key;
+        int index = indices[a];
+        indices[a] = indices[b];
+        indices[b] = index;
+    }
+}
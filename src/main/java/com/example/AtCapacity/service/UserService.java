@@ -2,32 +2,84 @@ package com.example.AtCapacity.service;
 
 import com.example.AtCapacity.model.User;
 import com.example.AtCapacity.repository.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
-import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.stereotype.Service;
 
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * User registration and authentication.
+ * All BCrypt work runs on {@link PasswordHashingService}'s bounded executor, so the
+ * returned futures fail with {@link HashingOverloadedException} under overload.
+ */
 @Service
 public class UserService {
+    private static final Logger log = LoggerFactory.getLogger(UserService.class);
+
     private final UserRepository userRepository;
-    private final BCryptPasswordEncoder passwordEncoder;
+    private final PasswordHashingService passwordHashing;
+    /** Runs the MongoDB calls, so callers (including event-loop threads) never block on them */
+    private final Executor blockingExecutor;
 
     @Autowired
-    public UserService(UserRepository userRepository) {
+    public UserService(UserRepository userRepository, PasswordHashingService passwordHashing,
+                       @Qualifier("applicationTaskExecutor") Executor blockingExecutor) {
         this.userRepository = userRepository;
-        this.passwordEncoder = new BCryptPasswordEncoder();
+        this.passwordHashing = passwordHashing;
+        this.blockingExecutor = blockingExecutor;
+    }
+
+    public CompletableFuture<User> registerUser(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> userRepository.existsByUsername(username), blockingExecutor)
+            .thenCompose(exists -> {
+                if (exists) {
+                    throw new RuntimeException("Username already exists");
+                }
+                return passwordHashing.encode(password);
+            })
+            .thenApplyAsync(hash -> userRepository.save(new User(username, hash, "USER")), blockingExecutor);
+    }
+
+    /**
+     * Checks a user's credentials, re-hashing the stored password in the background
+     * when it was made with a lower BCrypt cost than the current one.
+     * @return the user if the password matches, otherwise empty
+     */
+    public CompletableFuture<Optional<User>> authenticate(String username, String password) {
+        return CompletableFuture.supplyAsync(() -> userRepository.findByUsername(username), blockingExecutor)
+            .thenCompose(found -> found.isEmpty()
+                ? CompletableFuture.completedFuture(Optional.<User>empty())
+                : verify(found.get(), password));
     }
 
-    public User registerUser(String username, String password) {
-        if (userRepository.existsByUsername(username)) {
-            throw new RuntimeException("Username already exists");
-        }
-        User user = new User(username, password, "USER");
-        return userRepository.save(user);
+    private CompletableFuture<Optional<User>> verify(User user, String password) {
+        return passwordHashing.matches(password, user.getPassword())
+            .thenApply(matched -> {
+                if (!matched) {
+                    return Optional.empty();
+                }
+                if (passwordHashing.needsUpgrade(user.getPassword())) {
+                    upgradeHash(user, password);
+                }
+                return Optional.of(user);
+            });
     }
 
-    public boolean authenticateUser(String username, String password) {
-        return userRepository.findByUsername(username)
-            .map(user -> passwordEncoder.matches(password, user.getPassword()))
-            .orElse(false);
+    private void upgradeHash(User user, String password) {
+        passwordHashing.encode(password)
+            .thenAcceptAsync(hash -> {
+                user.setPassword(hash);
+                userRepository.save(user);
+            }, blockingExecutor)
+            .exceptionally(error -> {
+                // Best effort; the next login tries again
+                log.debug("Could not upgrade password hash for {}", user.getUsername(), error);
+                return null;
+            });
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,88 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.PopularTimesHistogram;
+
+import java.util.Arrays;
+
+/**
+ * Fixed-size day-of-week × hour-of-day histogram with exponential decay.
+ * <p>
+ * Each slot keeps a decayed sum and a decayed count. Recording a value first
+ * decays the slot by the time since its last update, then adds the value, so an
+ * update is O(1) and the slot mean (sum / count) weights recent weeks more than
+ * old ones. Reading never needs to decay: sum and count decay by the same factor.
+ */
+final class WeeklyHistogram {
+
+    static final int SLOTS = 7 * 24;
+
+    /** Slots whose decayed count is below this are reported as having no data */
+    private static final double MIN_WEIGHT = 0.1;
+
+    private final double[] sums;
+    private final double[] weights;
+    private final long[] updatedAt;
+    private boolean dirty;
+
+    WeeklyHistogram() {
+        this(new double[SLOTS], new double[SLOTS], new long[SLOTS]);
+    }
+
+    private WeeklyHistogram(double[] sums, double[] weights, long[] updatedAt) {
+        this.sums = sums;
+        this.weights = weights;
+        this.updatedAt = updatedAt;
+    }
+
+    /**
+     * Restores a persisted histogram; returns an empty one if the stored shape does not match.
+     */
+    static WeeklyHistogram of(PopularTimesHistogram stored) {
+        if (stored.getSums() == null || stored.getSums().length != SLOTS
+                || stored.getWeights() == null || stored.getWeights().length != SLOTS
+                || stored.getUpdatedAt() == null || stored.getUpdatedAt().length != SLOTS) {
+            return new WeeklyHistogram();
+        }
+        return new WeeklyHistogram(stored.getSums().clone(), stored.getWeights().clone(),
+                stored.getUpdatedAt().clone());
+    }
+
+    /**
+     * @param slot hour of the week, 0 = Monday 00:00
+     * @param value value to record, e.g. an occupancy ratio
+     * @param nowMillis current time in epoch milliseconds
+     * @param halfLifeMillis time after which a recorded value counts half
+     */
+    synchronized void record(int slot, double value, long nowMillis, double halfLifeMillis) {
+        long elapsed = nowMillis - updatedAt[slot];
+        double factor = updatedAt[slot] == 0 || elapsed <= 0 ? 1 : Math.pow(0.5, elapsed / halfLifeMillis);
+        sums[slot] = sums[slot] * factor + value;
+        weights[slot] = weights[slot] * factor + 1;
+        updatedAt[slot] = nowMillis;
+        dirty = true;
+    }
+
+    /**
+     * @return the decayed mean of the slot, or null if it has (almost) no data
+     */
+    synchronized Double mean(int slot) {
+        return weights[slot] < MIN_WEIGHT ? null : sums[slot] / weights[slot];
+    }
+
+    /**
+     * Copies the state for persisting and clears the dirty flag.
+     * @return the copy, or null if nothing changed since the previous call
+     */
+    synchronized PopularTimesHistogram takeSnapshotIfDirty(String facilityId) {
+        if (!dirty) {
+            return null;
+        }
+        dirty = false;
+        return new PopularTimesHistogram(facilityId, Arrays.copyOf(sums, SLOTS),
+                Arrays.copyOf(weights, SLOTS), Arrays.copyOf(updatedAt, SLOTS));
+    }
+
+    synchronized void markDirty() {
+        dirty = true;
+    }
+}
@@ -0,0 +1,140 @@
+package com.example.AtCapacity;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import com.example.AtCapacity.repository.FacilityRepository;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledForJreRange;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.junit.jupiter.api.condition.JRE;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.web.context.WebServerApplicationContext;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Compares max in-flight requests and p99 latency with spring.threads.virtual.enabled
+ * off and on, by firing bursts of concurrent owner lookups (one uncached MongoDB query
+ * each) at a real server. Runs only on Java 21 with ATCAPACITY_BENCHMARK=true and
+ * MONGO_URI pointing at a database the test may write to.
+ */
+@EnabledForJreRange(min = JRE.JAVA_21)
+@EnabledIfEnvironmentVariable(named = "ATCAPACITY_BENCHMARK", matches = "true")
+@EnabledIfEnvironmentVariable(named = "MONGO_URI", matches = ".+")
+class VirtualThreadBenchmarkTest {
+
+    private static final Logger log = LoggerFactory.getLogger(VirtualThreadBenchmarkTest.class);
+
+    private static final int CONCURRENCY = 1_000;
+    private static final int ROUNDS = 5;
+    private static final int WARM_UP = 200;
+
+    record Result(int maxInFlight, double p99Millis) {
+    }
+
+    @Test
+    void virtualThreadsAdmitMoreConcurrentRequests() throws Exception {
+        Result platform = run(false);
+        Result virtual = run(true);
+
+        log.info("Platform threads: max in-flight {}, p99 {} ms", platform.maxInFlight(), platform.p99Millis());
+        log.info("Virtual threads:  max in-flight {}, p99 {} ms", virtual.maxInFlight(), virtual.p99Millis());
+        assertThat(virtual.maxInFlight()).isGreaterThan(platform.maxInFlight());
+    }
+
+    private Result run(boolean virtualThreads) throws Exception {
+        try (ConfigurableApplicationContext context =
+                     new SpringApplicationBuilder(AtCapacityBackendApplication.class, InFlightProbe.class)
+                             .properties("server.port=0", "spring.threads.virtual.enabled=" + virtualThreads)
+                             .run()) {
+            int port = ((WebServerApplicationContext) context).getWebServer().getPort();
+            FacilityRepository facilityRepository = context.getBean(FacilityRepository.class);
+            InFlightProbe probe = context.getBean(InFlightProbe.class);
+
+            String owner = "vt-benchmark-" + System.nanoTime();
+            Facility facility = facilityRepository.save(new Facility(owner, 100,
+                    new Location("1 Test St", "Testville", "00000", 43.0, -79.0),
+                    owner, "00:00-23:59", null, FacilityType.GYM));
+            try {
+                HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+                URI uri = URI.create("http://localhost:" + port + "/api/facilities/owner/" + owner);
+
+                burst(client, uri, WARM_UP);
+                probe.reset();
+                long[] latencies = new long[CONCURRENCY * ROUNDS];
+                for (int round = 0; round < ROUNDS; round++) {
+                    long[] burst = burst(client, uri, CONCURRENCY);
+                    System.arraycopy(burst, 0, latencies, round * CONCURRENCY, CONCURRENCY);
+                }
+                Arrays.sort(latencies);
+                long p99 = latencies[(int) Math.ceil(latencies.length * 0.99) - 1];
+                return new Result(probe.maxInFlight.get(), TimeUnit.NANOSECONDS.toMicros(p99) / 1000.0);
+            } finally {
+                facilityRepository.deleteById(facility.getId());
+            }
+        }
+    }
+
+    /**
+     * Sends all requests at once and returns each one's latency in nanoseconds.
+     */
+    private long[] burst(HttpClient client, URI uri, int requests) {
+        HttpRequest request = HttpRequest.newBuilder(uri).GET().build();
+        List<CompletableFuture<Long>> futures = new ArrayList<>(requests);
+        for (int i = 0; i < requests; i++) {
+            long start = System.nanoTime();
+            futures.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .thenApply(response -> {
+                        assertThat(response.statusCode()).isEqualTo(200);
+                        return System.nanoTime() - start;
+                    }));
+        }
+        return futures.stream().mapToLong(CompletableFuture::join).toArray();
+    }
+
+    /**
+     * Counts requests currently inside the servlet stack. Registered as a source of the
+     * benchmark context only, so it is invisible to component scanning.
+     */
+    static class InFlightProbe extends OncePerRequestFilter {
+
+        private final AtomicInteger inFlight = new AtomicInteger();
+        private final AtomicInteger maxInFlight = new AtomicInteger();
+
+        void reset() {
+            maxInFlight.set(0);
+        }
+
+        @Override
+        protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response,
+                                        FilterChain chain) throws ServletException, IOException {
+            maxInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+            try {
+                chain.doFilter(request, response);
+            } finally {
+                inFlight.decrementAndGet();
+            }
+        }
+    }
+}
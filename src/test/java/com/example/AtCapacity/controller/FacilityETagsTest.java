@@ -0,0 +1,46 @@
+package com.example.AtCapacity.controller;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityCollectionVersion;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FacilityETagsTest {
+
+    @Test
+    void facilityTagCarriesVersionsAndOccupancy() {
+        Facility facility = new Facility();
+        facility.setMetadataVersion(2L);
+        facility.setVersion(4L);
+        facility.setCurrentOccupancy(7);
+
+        assertThat(FacilityETags.of(facility, false)).isEqualTo("\"2-4-7\"");
+        assertThat(FacilityETags.of(facility, true)).isEqualTo("\"s2-4-7\"");
+    }
+
+    @Test
+    void collectionTagDiffersFromFacilityTag() {
+        String tag = FacilityETags.of(new FacilityCollectionVersion(12, 9), false);
+
+        assertThat(tag).isEqualTo("\"c12-9\"");
+        assertThat(FacilityETags.of(new FacilityCollectionVersion(12, 8), false)).isNotEqualTo(tag);
+    }
+
+    @Test
+    void ifMatchYieldsTheMetadataVersion() {
+        assertThat(FacilityETags.expectedVersion("\"2-4-7\"")).isEqualTo(2L);
+        assertThat(FacilityETags.expectedVersion("\"s2-4-7\"")).isEqualTo(2L);
+        assertThat(FacilityETags.expectedVersion(null)).isNull();
+        assertThat(FacilityETags.expectedVersion("*")).isNull();
+    }
+
+    @Test
+    void ifMatchRejectsTagsThatCannotMatch() {
+        assertThatThrownBy(() -> FacilityETags.expectedVersion("W/\"4-7\"")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FacilityETags.expectedVersion("\"4-7\", \"5-7\"")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FacilityETags.expectedVersion("\"c2-9-b\"")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> FacilityETags.expectedVersion("4-7")).isInstanceOf(IllegalArgumentException.class);
+    }
+}
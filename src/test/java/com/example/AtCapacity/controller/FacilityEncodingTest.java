@@ -0,0 +1,63 @@
+package com.example.AtCapacity.controller;
+
+import com.example.AtCapacity.model.Facility;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.server.ResponseStatusException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FacilityEncodingTest {
+
+    @Test
+    void jsonIsTheDefault() {
+        assertThat(FacilityEncoding.negotiate(null)).isEqualTo(FacilityEncoding.JSON);
+        assertThat(FacilityEncoding.negotiate("*/*")).isEqualTo(FacilityEncoding.JSON);
+        assertThat(FacilityEncoding.negotiate("application/*")).isEqualTo(FacilityEncoding.JSON);
+        assertThat(FacilityEncoding.negotiate("text/html, */*;q=0.1")).isEqualTo(FacilityEncoding.JSON);
+    }
+
+    @Test
+    void headersAcceptingNoEncodingAreNotAcceptable() {
+        for (String accept : new String[] {"text/html", "application/json;q=0", "not a media type"}) {
+            assertThatThrownBy(() -> FacilityEncoding.negotiate(accept))
+                    .isInstanceOfSatisfying(ResponseStatusException.class,
+                            e -> assertThat(e.getStatusCode()).isEqualTo(HttpStatus.NOT_ACCEPTABLE));
+        }
+    }
+
+    @Test
+    void binaryEncodingsAreChosenByPreference() {
+        assertThat(FacilityEncoding.negotiate("application/cbor")).isEqualTo(FacilityEncoding.CBOR);
+        assertThat(FacilityEncoding.negotiate("application/x-jackson-smile, */*;q=0.1")).isEqualTo(FacilityEncoding.SMILE);
+        assertThat(FacilityEncoding.negotiate("application/cbor;q=0.5, application/json")).isEqualTo(FacilityEncoding.JSON);
+    }
+
+    @Test
+    void binaryETagsDifferFromJson() {
+        assertThat(FacilityEncoding.JSON.eTag("\"4-7\"")).isEqualTo("\"4-7\"");
+        assertThat(FacilityEncoding.CBOR.eTag("\"4-7\"")).isEqualTo("\"4-7-cbor\"");
+        assertThat(FacilityETags.expectedVersion(FacilityEncoding.SMILE.eTag("\"4-7\""))).isEqualTo(4L);
+    }
+
+    @Test
+    void binaryMapperRoundTripsAFacility() throws Exception {
+        // Like Spring Boot's mapper; derived properties such as "open" are written but not read back
+        ObjectMapper json = new ObjectMapper().disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        ObjectMapper cbor = FacilityEncoding.CBOR.mapper(json);
+        Facility facility = new Facility();
+        facility.setName("Pool");
+        facility.setTotalCapacity(10);
+        facility.setCurrentOccupancy(3);
+
+        byte[] bytes = cbor.writeValueAsBytes(facility);
+        Facility read = cbor.readValue(bytes, Facility.class);
+
+        assertThat(read.getName()).isEqualTo("Pool");
+        assertThat(read.getCurrentOccupancy()).isEqualTo(3);
+        assertThat(bytes.length).isLessThan(json.writeValueAsBytes(facility).length);
+    }
+}
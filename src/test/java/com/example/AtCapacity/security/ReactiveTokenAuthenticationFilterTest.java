@@ -0,0 +1,52 @@
+package com.example.AtCapacity.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.mock.http.server.reactive.MockServerHttpRequest;
+import org.springframework.mock.web.server.MockServerWebExchange;
+import reactor.core.publisher.Mono;
+
+import java.net.URI;
+import java.time.Clock;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class ReactiveTokenAuthenticationFilterTest {
+
+    private final ReactiveTokenAuthenticationFilter filter = new ReactiveTokenAuthenticationFilter(
+            new TokenService("", "", Duration.ofHours(1), Clock.systemUTC()), true);
+
+    @Test
+    void writeWithoutTokenIsRejected() {
+        assertThat(reachesHandler(MockServerHttpRequest.post("/api/facilities/1/increment").build())).isFalse();
+    }
+
+    @Test
+    void encodedPathIsStillChecked() {
+        assertThat(reachesHandler(
+                MockServerHttpRequest.method(HttpMethod.POST, URI.create("/api/%66acilities/1/increment")).build())).isFalse();
+    }
+
+    @Test
+    void matrixParametersDoNotSkipTheCheck() {
+        assertThat(reachesHandler(MockServerHttpRequest.post("/api;x=1/facilities/1/increment").build())).isFalse();
+    }
+
+    @Test
+    void readsNeedNoToken() {
+        assertThat(reachesHandler(MockServerHttpRequest.get("/api/facilities/1").build())).isTrue();
+    }
+
+    private boolean reachesHandler(MockServerHttpRequest request) {
+        MockServerWebExchange exchange = MockServerWebExchange.from(request);
+        AtomicBoolean reached = new AtomicBoolean();
+        filter.filter(exchange, e -> Mono.fromRunnable(() -> reached.set(true))).block();
+        if (!reached.get()) {
+            assertThat(exchange.getResponse().getStatusCode()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        }
+        return reached.get();
+    }
+}
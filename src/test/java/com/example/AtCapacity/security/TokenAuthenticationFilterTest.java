@@ -0,0 +1,49 @@
+package com.example.AtCapacity.security;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockFilterChain;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Clock;
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TokenAuthenticationFilterTest {
+
+    private final TokenAuthenticationFilter filter =
+            new TokenAuthenticationFilter(new TokenService("", "", Duration.ofHours(1), Clock.systemUTC()), true);
+
+    @Test
+    void writeWithoutTokenIsRejected() throws Exception {
+        assertThat(statusOf(write("/api/facilities/1/increment"))).isEqualTo(401);
+    }
+
+    @Test
+    void encodedPathIsStillChecked() throws Exception {
+        assertThat(statusOf(write("/api/%66acilities/1/increment"))).isEqualTo(401);
+    }
+
+    @Test
+    void matrixParametersDoNotSkipTheCheck() throws Exception {
+        assertThat(statusOf(write("/api;x=1/facilities/1/increment"))).isEqualTo(401);
+    }
+
+    @Test
+    void readsNeedNoToken() throws Exception {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/api/facilities/1");
+
+        assertThat(statusOf(request)).isEqualTo(200);
+    }
+
+    private static MockHttpServletRequest write(String uri) {
+        return new MockHttpServletRequest("POST", uri);
+    }
+
+    private int statusOf(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, new MockFilterChain());
+        return response.getStatus();
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.AtCapacity.security;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Clock;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.ZoneOffset;
+import java.util.Base64;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class TokenServiceTest {
+
+    private static final String OLD_KEY = "k1:" + Base64.getEncoder().encodeToString("old-secret-old-secret-old-secret".getBytes());
+    private static final String NEW_KEY = "k2:" + Base64.getEncoder().encodeToString("new-secret-new-secret-new-secret".getBytes());
+    private static final Clock NOW = Clock.fixed(Instant.parse("2025-01-01T00:00:00Z"), ZoneOffset.UTC);
+
+    @Test
+    void issuedTokenVerifiesWithClaims() {
+        TokenService service = new TokenService(NEW_KEY, "k2", Duration.ofHours(1), NOW);
+
+        TokenService.IssuedToken issued = service.issue("alice", "USER");
+
+        assertThat(service.verify(issued.token())).contains(
+                new TokenClaims("alice", "USER", Instant.parse("2025-01-01T01:00:00Z")));
+    }
+
+    @Test
+    void rejectsTamperedToken() {
+        TokenService service = new TokenService(NEW_KEY, "k2", Duration.ofHours(1), NOW);
+        String token = service.issue("alice", "USER").token();
+        String[] parts = token.split("\\.");
+        String forgedRole = Base64.getUrlEncoder().withoutPadding().encodeToString("ADMIN".getBytes());
+
+        assertThat(service.verify(parts[0] + "." + parts[1] + "." + forgedRole + "." + parts[3] + "." + parts[4])).isEmpty();
+        assertThat(service.verify(token.substring(0, token.length() - 2))).isEmpty();
+        assertThat(service.verify("garbage")).isEmpty();
+    }
+
+    @Test
+    void rejectsExpiredToken() {
+        TokenService issuer = new TokenService(NEW_KEY, "k2", Duration.ofHours(1), NOW);
+        TokenService later = new TokenService(NEW_KEY, "k2", Duration.ofHours(1),
+                Clock.offset(NOW, Duration.ofHours(2)));
+
+        assertThat(later.verify(issuer.issue("alice", "USER").token())).isEmpty();
+    }
+
+    @Test
+    void acceptsTokensSignedWithRetiredKeyDuringRotation() {
+        TokenService beforeRotation = new TokenService(OLD_KEY, "k1", Duration.ofHours(1), NOW);
+        TokenService afterRotation = new TokenService(OLD_KEY + "," + NEW_KEY, "k2", Duration.ofHours(1), NOW);
+        TokenService keyRemoved = new TokenService(NEW_KEY, "k2", Duration.ofHours(1), NOW);
+        String oldToken = beforeRotation.issue("alice", "USER").token();
+
+        assertThat(afterRotation.verify(oldToken)).isPresent();
+        assertThat(afterRotation.issue("alice", "USER").token()).startsWith("k2.");
+        assertThat(keyRemoved.verify(oldToken)).isEmpty();
+    }
+
+    @Test
+    void activeKeyMustBeConfigured() {
+        assertThatThrownBy(() -> new TokenService(NEW_KEY, "k9", Duration.ofHours(1), NOW))
+                .isInstanceOf(IllegalStateException.class);
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.AtCapacity.security;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WriteRateLimitsTest {
+
+    private final AtomicLong clock = new AtomicLong();
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final WriteRateLimits limits = new WriteRateLimits(true,
+            new RateLimiter(10, 3, 100, clock::get),
+            new RateLimiter(10, 1, 100, clock::get),
+            registry);
+
+    @Test
+    void aWriteTheFacilityTurnsAwayCostsTheClientNothing() {
+        assertThat(limits.tryAcquire("addr:a", "1")).isZero();
+        for (int i = 0; i < 5; i++) {
+            assertThat(limits.tryAcquire("addr:a", "1")).isPositive();
+        }
+
+        assertThat(limits.tryAcquire("addr:a", "2")).isZero();
+        assertThat(limits.tryAcquire("addr:a", "3")).isZero();
+        assertThat(limits.tryAcquire("addr:a", "4")).isPositive();
+        assertThat(registry.counter("atcapacity.ratelimit.rejections", "scope", "facility").count())
+                .isEqualTo(5);
+        assertThat(registry.counter("atcapacity.ratelimit.rejections", "scope", "client").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void aBatchCostsOnePermitOfEachFacilityItNames() {
+        assertThat(limits.tryAcquire("addr:a", null)).isZero();
+        assertThat(limits.tryAcquireFacilities("addr:a", List.of("1", "2"))).isZero();
+
+        // Facility 1 is out of permits, so facility 2's and the client's are given back
+        assertThat(limits.tryAcquire("addr:a", null)).isZero();
+        assertThat(limits.tryAcquireFacilities("addr:a", List.of("3", "1"))).isPositive();
+        assertThat(limits.tryAcquire("addr:a", "3")).isZero();
+        assertThat(limits.tryAcquire("addr:a", null)).isZero();
+    }
+
+    @Test
+    void readsAreNotLimited() {
+        assertThat(limits.appliesTo("GET")).isFalse();
+        assertThat(limits.appliesTo("POST")).isTrue();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.event.FacilityChangedEvent;
+import com.example.AtCapacity.model.Facility;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class BatchNearestSearchTest {
+
+    private final BatchNearestSearch search = new BatchNearestSearch(60_000);
+    private final AtomicInteger loads = new AtomicInteger();
+    private final Supplier<FacilityCoordinates> loader = () -> {
+        loads.incrementAndGet();
+        return FacilityCoordinates.of(List.of());
+    };
+
+    @AfterEach
+    void shutdown() {
+        search.shutdown();
+    }
+
+    @Test
+    void coordinatesAreLoadedOnceUntilAFacilityChanges() {
+        FacilityCoordinates first = search.coordinates(loader);
+        assertThat(search.coordinates(loader)).isSameAs(first);
+
+        search.onFacilityChanged(FacilityChangedEvent.occupancy(facility(), 1));
+        assertThat(search.coordinates(loader)).isSameAs(first);
+
+        search.onFacilityChanged(FacilityChangedEvent.of(FacilityChangedEvent.Kind.UPDATED, facility()));
+        assertThat(search.coordinates(loader)).isNotSameAs(first);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void aChangeDuringTheLoadLeavesTheSnapshotStale() {
+        search.coordinates(() -> {
+            search.onFacilityChanged(FacilityChangedEvent.of(FacilityChangedEvent.Kind.CREATED, facility()));
+            return loader.get();
+        });
+
+        search.coordinates(loader);
+        assertThat(loads).hasValue(2);
+    }
+
+    @Test
+    void snapshotsExpireAfterTheMaxAge() {
+        BatchNearestSearch uncached = new BatchNearestSearch(0);
+        try {
+            uncached.coordinates(loader);
+            uncached.coordinates(loader);
+            assertThat(loads).hasValue(2);
+        } finally {
+            uncached.shutdown();
+        }
+    }
+
+    private static Facility facility() {
+        Facility facility = new Facility();
+        facility.setId("gym");
+        return facility;
+    }
+}
@@ -0,0 +1,103 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import org.junit.jupiter.api.Test;
+
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacilityCacheTest {
+
+    @Test
+    void servesRepeatedLookupsFromMemory() {
+        FacilityCache cache = new FacilityCache(100, 60_000, 60_000);
+        CountingLoader loader = new CountingLoader(facility("1", "Gym", 5));
+
+        cache.getById("1", loader);
+        Optional<Facility> second = cache.getById("1", loader);
+
+        assertThat(second).map(Facility::getName).contains("Gym");
+        assertThat(loader.calls.get()).isEqualTo(1);
+        assertThat(cache.stats().hitCount()).isEqualTo(1);
+        assertThat(cache.stats().missCount()).isEqualTo(1);
+    }
+
+    @Test
+    void nameLookupReusesIdEntry() {
+        FacilityCache cache = new FacilityCache(100, 60_000, 60_000);
+        CountingLoader idLoader = new CountingLoader(facility("1", "Gym", 5));
+        CountingLoader nameLoader = new CountingLoader(facility("1", "Gym", 5));
+
+        cache.getById("1", idLoader);
+        cache.getByName("Gym", idLoader, nameLoader);
+
+        assertThat(idLoader.calls.get()).isEqualTo(1);
+        assertThat(nameLoader.calls.get()).isZero();
+    }
+
+    @Test
+    void reloadsWhenOccupancyIsOlderThanBound() throws InterruptedException {
+        FacilityCache cache = new FacilityCache(100, 60_000, 1);
+        CountingLoader loader = new CountingLoader(facility("1", "Gym", 5));
+
+        cache.getById("1", loader);
+        Thread.sleep(5);
+        cache.getById("1", loader);
+
+        assertThat(loader.calls.get()).isEqualTo(2);
+    }
+
+    @Test
+    void writtenOccupancyIsServedWithoutReload() {
+        FacilityCache cache = new FacilityCache(100, 60_000, 60_000);
+        CountingLoader loader = new CountingLoader(facility("1", "Gym", 5));
+
+        cache.getById("1", loader);
+        cache.updateOccupancy("1", 6, 8L);
+
+        assertThat(cache.getById("1", loader)).map(Facility::getCurrentOccupancy).contains(6);
+        assertThat(cache.getById("1", loader)).map(Facility::getVersion).contains(8L);
+        assertThat(loader.calls.get()).isEqualTo(1);
+    }
+
+    @Test
+    void invalidationForcesReloadAndCallersGetCopies() {
+        FacilityCache cache = new FacilityCache(100, 60_000, 60_000);
+        CountingLoader loader = new CountingLoader(facility("1", "Gym", 5));
+
+        cache.getById("1", loader).orElseThrow().setName("Mutated by caller");
+        assertThat(cache.getById("1", loader)).map(Facility::getName).contains("Gym");
+
+        cache.invalidate(facility("1", "Gym", 5));
+        cache.getById("1", loader);
+
+        assertThat(loader.calls.get()).isEqualTo(2);
+    }
+
+    private static Facility facility(String id, String name, int occupancy) {
+        Facility facility = new Facility(name, 10, null, "owner", null, null, FacilityType.GYM);
+        facility.setId(id);
+        facility.setCurrentOccupancy(occupancy);
+        return facility;
+    }
+
+    private static final class CountingLoader implements Function<String, Optional<Facility>> {
+
+        private final Facility facility;
+        private final AtomicInteger calls = new AtomicInteger();
+
+        CountingLoader(Facility facility) {
+            this.facility = facility;
+        }
+
+        @Override
+        public Optional<Facility> apply(String key) {
+            calls.incrementAndGet();
+            return Optional.of(new Facility(facility));
+        }
+    }
+}
@@ -0,0 +1,55 @@
+package com.example.AtCapacity.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacilityChangeLogTest {
+
+    private static final long SETTLE = 2_000;
+
+    private final AtomicLong counter = new AtomicLong(100);
+    private final AtomicLong clock = new AtomicLong();
+    private final FacilityChangeLog changeLog = new FacilityChangeLog(counter::get, clock::get, SETTLE);
+
+    @Test
+    void startingWithoutSinceAsksForResync() {
+        assertThat(changeLog.since(null).resync()).isTrue();
+    }
+
+    @Test
+    void handsOutOnlySequencesTakenASettleIntervalAgo() {
+        changeLog.since(50L);
+        counter.set(120);
+        clock.addAndGet(SETTLE / 2);
+
+        // Writes numbered up to 120 may still be landing
+        assertThat(changeLog.since(50L)).isEqualTo(new FacilityChangeLog.Delta(50, false));
+
+        clock.addAndGet(SETTLE / 2);
+        assertThat(changeLog.since(50L)).isEqualTo(new FacilityChangeLog.Delta(100, false));
+
+        clock.addAndGet(SETTLE / 2);
+        assertThat(changeLog.since(100L)).isEqualTo(new FacilityChangeLog.Delta(120, false));
+    }
+
+    @Test
+    void aSequenceFromAnotherInstanceIsAnsweredWithoutResync() {
+        changeLog.since(null);
+        clock.addAndGet(SETTLE);
+        counter.set(150);
+
+        // Another instance read the counter at 140 long enough ago to hand it out
+        assertThat(changeLog.since(140L)).isEqualTo(new FacilityChangeLog.Delta(140, false));
+    }
+
+    @Test
+    void aSequenceAheadOfTheCounterForcesResync() {
+        changeLog.since(null);
+        clock.addAndGet(SETTLE);
+
+        assertThat(changeLog.since(500L)).isEqualTo(new FacilityChangeLog.Delta(100, true));
+    }
+}
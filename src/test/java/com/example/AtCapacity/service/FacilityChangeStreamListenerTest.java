@@ -0,0 +1,113 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import com.example.AtCapacity.repository.FacilityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+import org.springframework.data.mongodb.core.query.Criteria;
+import org.springframework.data.mongodb.core.query.Query;
+import org.springframework.data.mongodb.core.query.Update;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import java.time.Duration;
+import java.util.function.BooleanSupplier;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Writes straight to MongoDB, as another instance would, and checks that this
+ * instance's cached view follows. Change streams need a replica set, so this runs
+ * only when MONGO_REPLICA_SET_URI points at one the test may write to, e.g. a
+ * single-node local replica set ({@code mongod --replSet rs0}, then {@code rs.initiate()}).
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE, properties = {
+        "atcapacity.sync.enabled=true",
+        "atcapacity.sync.instance-id=change-stream-test",
+        // The cache would otherwise reload stale occupancy on its own
+        "atcapacity.cache.occupancy-max-staleness-ms=600000"
+})
+@EnabledIfEnvironmentVariable(named = "MONGO_REPLICA_SET_URI", matches = ".+")
+class FacilityChangeStreamListenerTest {
+
+    private static final Duration TIMEOUT = Duration.ofSeconds(10);
+
+    @DynamicPropertySource
+    static void mongo(DynamicPropertyRegistry registry) {
+        registry.add("spring.data.mongodb.uri", () -> System.getenv("MONGO_REPLICA_SET_URI"));
+        registry.add("spring.data.mongodb.database", () -> "atcapacity-change-stream-test");
+    }
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    @Autowired
+    private FacilityChangeStreamListener listener;
+
+    private String facilityId;
+
+    @BeforeEach
+    void createAndCacheFacility() throws InterruptedException {
+        assertEventually(listener::isFollowing);
+        Facility facility = new Facility("change-stream-test-" + System.nanoTime(), 100,
+                new Location("1 Test St", "Testville", "00000", 43.0, -79.0),
+                "test", "00:00-23:59", null, FacilityType.GYM);
+        facilityId = facilityService.createFacility(facility).getId();
+        assertThat(facilityService.getFacilityById(facilityId)).isPresent();
+    }
+
+    @AfterEach
+    void deleteFacility() {
+        facilityRepository.deleteById(facilityId);
+    }
+
+    @Test
+    void remoteOccupancyChangeReachesTheCache() throws InterruptedException {
+        mongoTemplate.updateFirst(byId(), new Update().set("currentOccupancy", 42).inc("version", 1), Facility.class);
+
+        assertEventually(() -> facilityService.getFacilityById(facilityId)
+                .map(facility -> facility.getCurrentOccupancy() == 42)
+                .orElse(false));
+    }
+
+    @Test
+    void remoteUpdateInvalidatesTheCache() throws InterruptedException {
+        mongoTemplate.updateFirst(byId(), new Update().set("owner", "someone-else").inc("version", 1), Facility.class);
+
+        assertEventually(() -> facilityService.getFacilityById(facilityId)
+                .map(facility -> "someone-else".equals(facility.getOwner()))
+                .orElse(false));
+    }
+
+    @Test
+    void remoteDeleteInvalidatesTheCache() throws InterruptedException {
+        mongoTemplate.remove(byId(), Facility.class);
+
+        assertEventually(() -> facilityService.getFacilityById(facilityId).isEmpty());
+    }
+
+    private Query byId() {
+        return new Query(Criteria.where("_id").is(facilityId));
+    }
+
+    private static void assertEventually(BooleanSupplier condition) throws InterruptedException {
+        long deadline = System.nanoTime() + TIMEOUT.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met within %s", TIMEOUT).isLessThan(deadline);
+            Thread.sleep(50);
+        }
+    }
+}
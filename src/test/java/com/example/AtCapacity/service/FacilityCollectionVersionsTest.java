@@ -0,0 +1,100 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityCollectionVersion;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.mongodb.core.MongoTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Checks collection fingerprints against a real MongoDB.
+ * Runs only when MONGO_URI points at a database the test may write to.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@EnabledIfEnvironmentVariable(named = "MONGO_URI", matches = ".+")
+class FacilityCollectionVersionsTest {
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private FacilityCollectionVersions versions;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    @Autowired
+    private MongoTemplate mongoTemplate;
+
+    private final String alice = "versions-alice-" + System.nanoTime();
+    private final String bob = "versions-bob-" + System.nanoTime();
+    private final List<String> created = new ArrayList<>();
+
+    @AfterEach
+    void deleteFacilities() {
+        created.forEach(id -> {
+            if (facilityService.getFacilityById(id).isPresent()) {
+                facilityService.deleteFacility(id);
+            }
+        });
+    }
+
+    @Test
+    void anotherInstanceComputesTheSameFingerprint() {
+        create(alice);
+
+        FacilityCollectionVersions other = new FacilityCollectionVersions(mongoTemplate);
+
+        assertThat(other.current(null)).isEqualTo(versions.current(null));
+        assertThat(other.current(alice)).isEqualTo(versions.current(alice));
+    }
+
+    @Test
+    void writesMoveOnlyTheirOwnersFingerprint() {
+        Facility gym = create(alice);
+        create(bob);
+        FacilityCollectionVersion all = versions.current(null);
+        FacilityCollectionVersion alices = versions.current(alice);
+        FacilityCollectionVersion bobs = versions.current(bob);
+
+        facilityService.incrementOccupancy(gym.getId());
+        if (occupancyEngine.isEnabled()) {
+            occupancyEngine.flush();
+        }
+
+        assertThat(versions.current(null)).isNotEqualTo(all);
+        assertThat(versions.current(alice)).isNotEqualTo(alices);
+        assertThat(versions.current(bob)).isEqualTo(bobs);
+    }
+
+    @Test
+    void deletesMoveTheFingerprint() {
+        Facility gym = create(alice);
+        create(alice);
+        FacilityCollectionVersion all = versions.current(null);
+        FacilityCollectionVersion alices = versions.current(alice);
+
+        facilityService.deleteFacility(gym.getId());
+
+        assertThat(versions.current(null)).isNotEqualTo(all);
+        assertThat(versions.current(alice)).isNotEqualTo(alices);
+    }
+
+    private Facility create(String owner) {
+        Facility facility = facilityService.createFacility(new Facility(owner + "-" + created.size(), 50,
+                new Location("1 Test St", "Testville", "00000", 43.0, -79.0),
+                owner, "00:00-23:59", null, FacilityType.GYM));
+        created.add(facility.getId());
+        return facility;
+    }
+}
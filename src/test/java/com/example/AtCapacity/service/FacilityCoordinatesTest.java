@@ -0,0 +1,62 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class FacilityCoordinatesTest {
+
+    @Test
+    void columnarScanMatchesSortedHaversine() {
+        Random random = new Random(11);
+        FacilityType[] types = FacilityType.values();
+        List<Facility> facilities = new ArrayList<>();
+        for (int i = 0; i < 2_000; i++) {
+            Facility facility = new Facility("f" + i, 50,
+                    new Location("street", "city", "postal", -60 + 120 * random.nextDouble(), -180 + 360 * random.nextDouble()),
+                    "owner", null, null, types[random.nextInt(types.length)]);
+            facility.setId("f" + i);
+            facilities.add(facility);
+        }
+        FacilityCoordinates coordinates = FacilityCoordinates.of(facilities);
+
+        for (int q = 0; q < 200; q++) {
+            double lat = -60 + 120 * random.nextDouble();
+            double lon = -180 + 360 * random.nextDouble();
+            FacilityType type = random.nextBoolean() ? null : types[random.nextInt(types.length)];
+            NearestQuery query = new NearestQuery(lat, lon, type, 1 + random.nextInt(10));
+
+            List<Facility> expected = facilities.stream()
+                    .filter(facility -> type == null || facility.getType() == type)
+                    .sorted(Comparator.comparingDouble(facility -> facility.calculateDistance(lat, lon)))
+                    .limit(query.limit())
+                    .toList();
+            FacilityCoordinates.Result result = coordinates.nearest(query);
+
+            assertThat(result.indices()).hasSize(expected.size());
+            for (int i = 0; i < expected.size(); i++) {
+                assertThat(result.distances()[i]).isCloseTo(expected.get(i).calculateDistance(lat, lon), within(1e-6));
+            }
+        }
+    }
+
+    @Test
+    void skipsFacilitiesWithoutLocation() {
+        Facility noLocation = new Facility("nowhere", 10, null, "owner", null, null, FacilityType.GYM);
+        noLocation.setId("nowhere");
+
+        FacilityCoordinates coordinates = FacilityCoordinates.of(List.of(noLocation));
+
+        assertThat(coordinates.size()).isZero();
+        assertThat(coordinates.nearest(new NearestQuery(0, 0, null, null)).indices()).isEmpty();
+    }
+}
@@ -0,0 +1,53 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.FacilityType;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class FacilityMetricsTest {
+
+    private final MeterRegistry registry = new SimpleMeterRegistry();
+    private final FacilityMetrics metrics = new FacilityMetrics(registry, new FacilityCache(100, 60_000, 60_000), 0);
+
+    @Test
+    void occupancyChangesAreCountedPerOutcomeAndType() {
+        FacilityType type = FacilityType.values()[0];
+        metrics.occupancyChanged(FacilityMetrics.Operation.INCREMENT, FacilityMetrics.Outcome.SUCCESS, type);
+        metrics.occupancyChanged(FacilityMetrics.Operation.INCREMENT, FacilityMetrics.Outcome.SUCCESS, type);
+        metrics.occupancyChanged(FacilityMetrics.Operation.DECREMENT, FacilityMetrics.Outcome.NOT_FOUND, null);
+
+        assertThat(registry.get("atcapacity.occupancy.changes")
+                .tags("operation", "increment", "outcome", "success", "type", FacilityMetrics.tagValue(type))
+                .counter().count()).isEqualTo(2);
+        assertThat(registry.get("atcapacity.occupancy.changes")
+                .tags("operation", "decrement", "outcome", "not_found", "type", "none")
+                .counter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void everySeriesIsRegisteredUpFront() {
+        int types = FacilityType.values().length + 1;
+        assertThat(registry.get("atcapacity.occupancy.changes").counters())
+                .hasSize(FacilityMetrics.Operation.values().length * FacilityMetrics.Outcome.values().length * types);
+        assertThat(registry.get("atcapacity.nearest.candidates").summaries())
+                .hasSize(FacilityMetrics.Source.values().length * types);
+    }
+
+    @Test
+    void nearestCandidateCountsAreSummarisedPerSource() {
+        metrics.nearestCandidates(FacilityMetrics.Source.INDEX, null, 40);
+        metrics.nearestCandidates(FacilityMetrics.Source.INDEX, null, 20);
+
+        var summary = registry.get("atcapacity.nearest.candidates").tags("source", "index", "type", "none").summary();
+        assertThat(summary.count()).isEqualTo(2);
+        assertThat(summary.totalAmount()).isEqualTo(60);
+    }
+
+    @Test
+    void facilityCacheIsBound() {
+        assertThat(registry.find("cache.gets").tag("cache", "facilities").meters()).isNotEmpty();
+    }
+}
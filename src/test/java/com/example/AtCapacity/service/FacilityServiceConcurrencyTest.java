@@ -0,0 +1,168 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import com.example.AtCapacity.repository.FacilityRepository;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfEnvironmentVariable;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.dao.OptimisticLockingFailureException;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+/**
+ * Hammers the atomic occupancy path from many threads against a real MongoDB.
+ * Runs only when MONGO_URI points at a database the test may write to.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.NONE)
+@EnabledIfEnvironmentVariable(named = "MONGO_URI", matches = ".+")
+class FacilityServiceConcurrencyTest {
+
+    private static final int CAPACITY = 250;
+    private static final int THREADS = 64;
+    private static final int ATTEMPTS = 5_000;
+
+    @Autowired
+    private FacilityService facilityService;
+
+    @Autowired
+    private FacilityRepository facilityRepository;
+
+    @Autowired
+    private OccupancyEngine occupancyEngine;
+
+    private String facilityId;
+
+    @BeforeEach
+    void createFacility() {
+        Facility facility = new Facility("concurrency-test-" + System.nanoTime(), CAPACITY,
+                new Location("1 Test St", "Testville", "00000", 43.0, -79.0),
+                "test", "00:00-23:59", null, FacilityType.GYM);
+        facilityId = facilityService.createFacility(facility).getId();
+    }
+
+    @AfterEach
+    void deleteFacility() {
+        facilityRepository.deleteById(facilityId);
+    }
+
+    @Test
+    void parallelIncrementsNeverExceedCapacity() throws Exception {
+        AtomicInteger successes = new AtomicInteger();
+        AtomicInteger maxSeen = new AtomicInteger();
+
+        runInParallel(() -> facilityService.incrementOccupancy(facilityId).ifPresent(occupancy -> {
+            successes.incrementAndGet();
+            maxSeen.accumulateAndGet(occupancy, Math::max);
+        }));
+
+        assertThat(successes.get()).isEqualTo(CAPACITY);
+        assertThat(maxSeen.get()).isEqualTo(CAPACITY);
+        assertThat(facilityRepository.findById(facilityId).orElseThrow().getCurrentOccupancy()).isEqualTo(CAPACITY);
+    }
+
+    @Test
+    void parallelDecrementsNeverGoBelowZero() throws Exception {
+        runInParallel(() -> facilityService.incrementOccupancy(facilityId));
+        AtomicInteger successes = new AtomicInteger();
+
+        runInParallel(() -> facilityService.decrementOccupancy(facilityId).ifPresent(occupancy -> {
+            assertThat(occupancy).isGreaterThanOrEqualTo(0);
+            successes.incrementAndGet();
+        }));
+
+        assertThat(successes.get()).isEqualTo(CAPACITY);
+        assertThat(facilityRepository.findById(facilityId).orElseThrow().getCurrentOccupancy()).isZero();
+    }
+
+    @Test
+    void updatesRacingIncrementsLoseNoChange() throws Exception {
+        Facility staleRead = facilityRepository.findById(facilityId).orElseThrow();
+        AtomicInteger calls = new AtomicInteger();
+        AtomicInteger successes = new AtomicInteger();
+
+        runInParallel(() -> {
+            if (calls.incrementAndGet() % 10 == 0) {
+                Facility edit = new Facility(staleRead);
+                edit.setOwner("editor-" + calls.get());
+                try {
+                    facilityService.updateFacility(edit);
+                } catch (OptimisticLockingFailureException e) {
+                    // Lost every retry to the increments; nothing was written
+                }
+            } else if (facilityService.incrementOccupancy(facilityId).isPresent()) {
+                successes.incrementAndGet();
+            }
+        });
+        if (occupancyEngine.isEnabled()) {
+            occupancyEngine.flush();
+        }
+
+        assertThat(facilityRepository.findById(facilityId).orElseThrow().getCurrentOccupancy())
+                .isEqualTo(successes.get());
+    }
+
+    @Test
+    void parallelBatchesReportTheChangeAsStored() throws Exception {
+        AtomicInteger applied = new AtomicInteger();
+
+        runInParallel(() -> facilityService.applyOccupancyEvents(List.of(new OccupancyEvent(facilityId, null, 1, null)))
+                .forEach(result -> applied.addAndGet(result.applied())));
+        if (occupancyEngine.isEnabled()) {
+            occupancyEngine.flush();
+        }
+
+        assertThat(applied.get()).isEqualTo(CAPACITY);
+        assertThat(facilityRepository.findById(facilityId).orElseThrow().getCurrentOccupancy()).isEqualTo(CAPACITY);
+        assertThat(facilityService.applyOccupancyEvents(List.of(new OccupancyEvent(facilityId, null, -300, null))))
+                .singleElement()
+                .satisfies(result -> {
+                    assertThat(result.requested()).isEqualTo(-300);
+                    assertThat(result.applied()).isEqualTo(-CAPACITY);
+                    assertThat(result.currentOccupancy()).isZero();
+                });
+    }
+
+    @Test
+    void eventsCarryingHugeDeltasAreRejected() {
+        List<OccupancyEvent> events = List.of(new OccupancyEvent(facilityId, null, Integer.MAX_VALUE, null),
+                new OccupancyEvent(facilityId, null, 1, null));
+
+        assertThatThrownBy(() -> facilityService.applyOccupancyEvents(events))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void runInParallel(Runnable action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < ATTEMPTS; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    action.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
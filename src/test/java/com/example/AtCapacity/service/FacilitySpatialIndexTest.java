@@ -0,0 +1,160 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.Facility;
+import com.example.AtCapacity.model.FacilityType;
+import com.example.AtCapacity.model.Location;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+/**
+ * Checks the k-d tree against the brute-force scan-and-sort it replaces.
+ */
+class FacilitySpatialIndexTest {
+
+    private static final double TOLERANCE_KM = 1e-6;
+
+    @Test
+    void matchesBruteForceOnRandomGlobalData() {
+        Random random = new Random(42);
+        List<Facility> facilities = randomFacilities(random, 3_000, -90, 90, -180, 180);
+        assertMatchesBruteForce(random, facilities, 300, -90, 90, -180, 180);
+    }
+
+    @Test
+    void matchesBruteForceOnDenseCityData() {
+        Random random = new Random(7);
+        List<Facility> facilities = randomFacilities(random, 2_000, 43.60, 43.85, -79.60, -79.20);
+        assertMatchesBruteForce(random, facilities, 300, 43.55, 43.90, -79.65, -79.15);
+    }
+
+    @Test
+    void matchesBruteForceAcrossAntimeridianAndPoles() {
+        Random random = new Random(99);
+        List<Facility> facilities = new ArrayList<>();
+        facilities.addAll(randomFacilities(random, 500, -20, 20, 175, 180));
+        facilities.addAll(randomFacilities(random, 500, -20, 20, -180, -175));
+        facilities.addAll(randomFacilities(random, 500, 85, 90, -180, 180));
+        assertMatchesBruteForce(random, facilities, 200, -25, 90, -180, 180);
+    }
+
+    @Test
+    void reflectsUpsertsAndRemovals() {
+        Random random = new Random(3);
+        List<Facility> facilities = randomFacilities(random, 1_000, -60, 60, -180, 180);
+        FacilitySpatialIndex index = enabledIndex(facilities);
+
+        for (int i = 0; i < 200; i++) {
+            Facility moved = facilities.get(random.nextInt(facilities.size()));
+            moved.setLocation(randomLocation(random, -60, 60, -180, 180));
+            index.upsert(moved);
+
+            Facility removed = facilities.remove(random.nextInt(facilities.size()));
+            index.remove(removed.getId());
+        }
+
+        assertMatchesBruteForce(random, index, facilities, 200, -60, 60, -180, 180);
+    }
+
+    @Test
+    void emptyPartitionReturnsNothing() {
+        Facility gym = facility("gym", FacilityType.GYM, 10, 10);
+        FacilitySpatialIndex index = enabledIndex(List.of(gym));
+
+        assertThat(index.findNearest(10, 10, 4, FacilityType.COURT)).isEmpty();
+        assertThat(index.findNearest(10, 10, 4, null)).extracting(FacilitySpatialIndex.Neighbor::id)
+                .containsExactly("gym");
+    }
+
+    @Test
+    void countsTheNodesASearchVisits() {
+        Random random = new Random(11);
+        List<Facility> facilities = randomFacilities(random, 2_000, 43.60, 43.85, -79.60, -79.20);
+        FacilitySpatialIndex index = enabledIndex(facilities);
+
+        FacilitySpatialIndex.Search search = index.search(43.7, -79.4, 5, null, id -> true);
+
+        assertThat(search.neighbors()).hasSize(5);
+        // Pruning leaves most of the tree unvisited
+        assertThat(search.visited()).isBetween(5, facilities.size() / 4);
+    }
+
+    private void assertMatchesBruteForce(Random random, List<Facility> facilities, int queries,
+                                         double minLat, double maxLat, double minLon, double maxLon) {
+        assertMatchesBruteForce(random, enabledIndex(facilities), facilities, queries, minLat, maxLat, minLon, maxLon);
+    }
+
+    private void assertMatchesBruteForce(Random random, FacilitySpatialIndex index, List<Facility> facilities,
+                                         int queries, double minLat, double maxLat, double minLon, double maxLon) {
+        FacilityType[] types = FacilityType.values();
+        for (int q = 0; q < queries; q++) {
+            double lat = between(random, minLat, maxLat);
+            double lon = between(random, minLon, maxLon);
+            int limit = 1 + random.nextInt(12);
+            FacilityType type = random.nextInt(4) == 0 ? null : types[random.nextInt(types.length)];
+
+            List<Double> expected = bruteForce(facilities, lat, lon, limit, type);
+            List<FacilitySpatialIndex.Neighbor> actual = index.findNearest(lat, lon, limit, type);
+
+            assertThat(actual).hasSameSizeAs(expected);
+            for (int i = 0; i < expected.size(); i++) {
+                FacilitySpatialIndex.Neighbor neighbor = actual.get(i);
+                assertThat(neighbor.distance()).isCloseTo(expected.get(i), within(TOLERANCE_KM));
+
+                Facility found = facilities.stream().filter(f -> f.getId().equals(neighbor.id())).findFirst().orElseThrow();
+                assertThat(type == null || found.getType() == type).isTrue();
+                assertThat(found.calculateDistance(lat, lon)).isCloseTo(neighbor.distance(), within(TOLERANCE_KM));
+            }
+        }
+    }
+
+    /** The scan-and-sort used before the index existed */
+    private static List<Double> bruteForce(List<Facility> facilities, double lat, double lon, int limit, FacilityType type) {
+        return facilities.stream()
+                .filter(facility -> type == null || facility.getType() == type)
+                .sorted(Comparator.comparingDouble(facility -> facility.calculateDistance(lat, lon)))
+                .limit(limit)
+                .map(facility -> facility.calculateDistance(lat, lon))
+                .toList();
+    }
+
+    private static FacilitySpatialIndex enabledIndex(List<Facility> facilities) {
+        FacilitySpatialIndex index = new FacilitySpatialIndex(null, true);
+        index.rebuild(facilities);
+        return index;
+    }
+
+    private static List<Facility> randomFacilities(Random random, int count,
+                                                   double minLat, double maxLat, double minLon, double maxLon) {
+        FacilityType[] types = FacilityType.values();
+        List<Facility> facilities = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Facility facility = new Facility("f" + random.nextLong(), 100,
+                    randomLocation(random, minLat, maxLat, minLon, maxLon), "owner", null, null,
+                    random.nextInt(10) == 0 ? null : types[random.nextInt(types.length)]);
+            facility.setId(facility.getName());
+            facilities.add(facility);
+        }
+        return facilities;
+    }
+
+    private static Location randomLocation(Random random, double minLat, double maxLat, double minLon, double maxLon) {
+        return new Location("street", "city", "postal", between(random, minLat, maxLat), between(random, minLon, maxLon));
+    }
+
+    private static Facility facility(String id, FacilityType type, double lat, double lon) {
+        Facility facility = new Facility(id, 100, new Location("street", "city", "postal", lat, lon), "owner", null, null, type);
+        facility.setId(id);
+        return facility;
+    }
+
+    private static double between(Random random, double min, double max) {
+        return min + (max - min) * random.nextDouble();
+    }
+}
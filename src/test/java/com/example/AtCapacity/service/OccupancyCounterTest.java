@@ -0,0 +1,89 @@
+package com.example.AtCapacity.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class OccupancyCounterTest {
+
+    @Test
+    void parallelIncrementsStopAtCapacity() throws Exception {
+        OccupancyCounter counter = new OccupancyCounter("gym", 0, 100);
+        AtomicInteger successes = new AtomicInteger();
+
+        runInParallel(10_000, () -> {
+            if (counter.tryIncrement() >= 0) {
+                successes.incrementAndGet();
+            }
+        });
+
+        assertThat(successes.get()).isEqualTo(100);
+        assertThat(counter.getOccupancy()).isEqualTo(100);
+        assertThat(counter.drainPendingDelta()).isEqualTo(100);
+        assertThat(counter.drainPendingDelta()).isZero();
+    }
+
+    @Test
+    void pendingDeltaIsNetOfMixedTraffic() throws Exception {
+        OccupancyCounter counter = new OccupancyCounter("gym", 50, 100);
+
+        runInParallel(10_000, () -> {
+            if (Thread.currentThread().getId() % 2 == 0) {
+                counter.tryIncrement();
+            } else {
+                counter.tryDecrement();
+            }
+        });
+
+        assertThat(counter.getOccupancy()).isBetween(0, 100);
+        assertThat(50 + counter.drainPendingDelta()).isEqualTo(counter.getOccupancy());
+    }
+
+    @Test
+    void decrementRefusesBelowZero() {
+        OccupancyCounter counter = new OccupancyCounter("gym", 1, 10);
+
+        assertThat(counter.tryDecrement()).isZero();
+        assertThat(counter.tryDecrement()).isEqualTo(-1);
+        assertThat(counter.drainPendingDelta()).isEqualTo(-1);
+    }
+
+    @Test
+    void addClampedAppliesOnlyWhatFits() {
+        OccupancyCounter counter = new OccupancyCounter("gym", 8, 10);
+
+        assertThat(counter.addClamped(5)).isEqualTo(2);
+        assertThat(counter.addClamped(-25)).isEqualTo(-10);
+        assertThat(counter.getOccupancy()).isZero();
+        assertThat(counter.drainPendingDelta()).isEqualTo(-8);
+    }
+
+    private static void runInParallel(int attempts, Runnable action) throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(16);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+        try {
+            for (int i = 0; i < attempts; i++) {
+                futures.add(executor.submit(() -> {
+                    start.await();
+                    action.run();
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+}
@@ -0,0 +1,82 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.HistoryResolution;
+import com.example.AtCapacity.model.OccupancySample;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OccupancyHistoryTest {
+
+    private static final Instant T0 = Instant.parse("2024-05-01T10:00:00Z");
+
+    @Test
+    void samplesFoldIntoOneDeltaPerBucket() {
+        List<OccupancySample> batch = List.of(
+                new OccupancySample("gym", 3, T0.plusSeconds(5)),
+                new OccupancySample("gym", 7, T0.plusSeconds(30)),
+                new OccupancySample("gym", 5, T0.plusSeconds(65)),
+                new OccupancySample("pool", 1, T0.plusSeconds(10)));
+
+        Map<OccupancyHistoryRecorder.RollupKey, OccupancyHistoryRecorder.RollupDelta> deltas =
+                OccupancyHistoryRecorder.aggregate(batch);
+
+        OccupancyHistoryRecorder.RollupDelta firstMinute =
+                deltas.get(new OccupancyHistoryRecorder.RollupKey("gym", HistoryResolution.MINUTE, T0));
+        assertThat(firstMinute.min).isEqualTo(3);
+        assertThat(firstMinute.max).isEqualTo(7);
+        assertThat(firstMinute.count).isEqualTo(2);
+
+        OccupancyHistoryRecorder.RollupDelta hour =
+                deltas.get(new OccupancyHistoryRecorder.RollupKey("gym", HistoryResolution.HOUR, T0));
+        assertThat(hour.sum).isEqualTo(15);
+        assertThat(hour.count).isEqualTo(3);
+
+        // gym: 2 minutes + hour + day, pool: minute + hour + day
+        assertThat(deltas).hasSize(7);
+    }
+
+    @Test
+    void picksTheFinestResolutionThatFits() {
+        assertThat(OccupancyHistoryService.resolutionFor(T0, T0.plus(Duration.ofHours(6)), T0.plus(Duration.ofHours(6))))
+                .isEqualTo(HistoryResolution.MINUTE);
+        assertThat(OccupancyHistoryService.resolutionFor(T0, T0.plus(Duration.ofDays(30)), T0.plus(Duration.ofDays(30))))
+                .isEqualTo(HistoryResolution.HOUR);
+        assertThat(OccupancyHistoryService.resolutionFor(T0, T0.plus(Duration.ofDays(365)), T0.plus(Duration.ofDays(365))))
+                .isEqualTo(HistoryResolution.DAY);
+    }
+
+    @Test
+    void skipsResolutionsThatHaveExpiredAtTheStartOfTheRange() {
+        Instant to = T0.plus(Duration.ofHours(6));
+
+        assertThat(OccupancyHistoryService.resolutionFor(T0, to, T0.plus(Duration.ofDays(30))))
+                .isEqualTo(HistoryResolution.HOUR);
+        assertThat(OccupancyHistoryService.resolutionFor(T0, to, T0.plus(Duration.ofDays(500))))
+                .isEqualTo(HistoryResolution.DAY);
+    }
+
+    @Test
+    void minuteAndHourRollupsExpireButDayRollupsAreKept() {
+        assertThat(HistoryResolution.MINUTE.expiryOf(T0))
+                .contains(T0.plus(Duration.ofMinutes(1)).plus(Duration.ofDays(7)));
+        assertThat(HistoryResolution.HOUR.expiryOf(T0)).isPresent();
+        assertThat(HistoryResolution.DAY.expiryOf(T0)).isEmpty();
+    }
+
+    @Test
+    void rejectsRangesTooFineForTheRequestedResolution() {
+        OccupancyHistoryService service = new OccupancyHistoryService(null);
+
+        assertThatThrownBy(() -> service.getHistory("gym", T0, T0.plus(Duration.ofDays(30)), HistoryResolution.MINUTE))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> service.getHistory("gym", T0, T0, null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,101 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.OpeningSchedule;
+import org.junit.jupiter.api.Test;
+
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+
+import static com.example.AtCapacity.model.OpeningSchedule.MINUTES_PER_DAY;
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class OpeningScheduleTest {
+
+    private static final int MONDAY = 0;
+    private static final int TUESDAY = MINUTES_PER_DAY;
+    private static final int SATURDAY = 5 * MINUTES_PER_DAY;
+    private static final int SUNDAY = 6 * MINUTES_PER_DAY;
+
+    private static int at(int day, int hour, int minute) {
+        return day + hour * 60 + minute;
+    }
+
+    @Test
+    void dailyRangeIsHalfOpen() {
+        OpeningSchedule schedule = OpeningSchedule.parse("06:30-22:00");
+
+        assertThat(schedule.isOpenAt(at(TUESDAY, 6, 29))).isFalse();
+        assertThat(schedule.isOpenAt(at(TUESDAY, 6, 30))).isTrue();
+        assertThat(schedule.isOpenAt(at(TUESDAY, 21, 59))).isTrue();
+        assertThat(schedule.isOpenAt(at(TUESDAY, 22, 0))).isFalse();
+    }
+
+    @Test
+    void overnightRangeRunsIntoNextDayAndWrapsTheWeek() {
+        OpeningSchedule schedule = OpeningSchedule.parse("22:00-02:00");
+
+        assertThat(schedule.isOpenAt(at(TUESDAY, 1, 0))).isTrue();
+        assertThat(schedule.isOpenAt(at(TUESDAY, 23, 0))).isTrue();
+        assertThat(schedule.isOpenAt(at(TUESDAY, 12, 0))).isFalse();
+        // Sunday night's opening carries over to Monday morning
+        assertThat(schedule.isOpenAt(at(MONDAY, 1, 59))).isTrue();
+        assertThat(schedule.isOpenAt(at(MONDAY, 2, 0))).isFalse();
+    }
+
+    @Test
+    void laterPartsOverrideNamedDays() {
+        OpeningSchedule schedule = OpeningSchedule.parse("08:00-20:00; Sat,Sun 10:00-12:00,14:00-16:00; Sun closed");
+
+        assertThat(schedule.isOpenAt(at(TUESDAY, 9, 0))).isTrue();
+        assertThat(schedule.isOpenAt(at(SATURDAY, 9, 0))).isFalse();
+        assertThat(schedule.isOpenAt(at(SATURDAY, 11, 0))).isTrue();
+        assertThat(schedule.isOpenAt(at(SATURDAY, 13, 0))).isFalse();
+        assertThat(schedule.isOpenAt(at(SATURDAY, 15, 0))).isTrue();
+        assertThat(schedule.isOpenAt(at(SUNDAY, 11, 0))).isFalse();
+    }
+
+    @Test
+    void dayRangesAcceptFullNamesAndWrap() {
+        OpeningSchedule schedule = OpeningSchedule.parse("Friday-Monday 00:00-24:00");
+
+        assertThat(schedule.isOpenAt(at(SATURDAY, 3, 0))).isTrue();
+        assertThat(schedule.isOpenAt(at(MONDAY, 23, 59))).isTrue();
+        assertThat(schedule.isOpenAt(at(TUESDAY, 12, 0))).isFalse();
+    }
+
+    @Test
+    void alwaysOpenNeverChanges() {
+        OpeningSchedule schedule = OpeningSchedule.parse("24/7");
+
+        assertThat(schedule.isOpenAt(at(SUNDAY, 23, 59))).isTrue();
+        assertThat(schedule.minutesUntilNextChange(at(TUESDAY, 12, 0))).isEqualTo(-1);
+        assertThat(OpeningSchedule.parse("closed").isAlwaysClosed()).isTrue();
+    }
+
+    @Test
+    void nextChangeIsTheNearestBoundary() {
+        OpeningSchedule schedule = OpeningSchedule.parse("06:30-22:00");
+
+        assertThat(schedule.minutesUntilNextChange(at(TUESDAY, 6, 0))).isEqualTo(30);
+        assertThat(schedule.minutesUntilNextChange(at(TUESDAY, 6, 30))).isEqualTo(15 * 60 + 30);
+        // Sunday 22:00 to Monday 06:30 crosses the week boundary
+        assertThat(schedule.minutesUntilNextChange(at(SUNDAY, 22, 0))).isEqualTo(8 * 60 + 30);
+    }
+
+    @Test
+    void minuteOfWeekStartsOnMonday() {
+        ZonedDateTime tuesday = ZonedDateTime.of(2024, 1, 2, 10, 15, 0, 0, ZoneOffset.UTC);
+
+        assertThat(OpeningSchedule.minuteOfWeek(tuesday)).isEqualTo(at(TUESDAY, 10, 15));
+    }
+
+    @Test
+    void malformedHoursAreRejected() {
+        assertThatThrownBy(() -> OpeningSchedule.parse("6-22")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OpeningSchedule.parse("Xyz 08:00-10:00")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OpeningSchedule.parse("08:00")).isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> OpeningSchedule.parse(" ")).isInstanceOf(IllegalArgumentException.class);
+        assertThat(OpeningSchedule.parseOrClosed("nonsense")).isSameAs(OpeningSchedule.CLOSED);
+    }
+}
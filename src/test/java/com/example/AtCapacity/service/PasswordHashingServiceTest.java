@@ -0,0 +1,52 @@
+package com.example.AtCapacity.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PasswordHashingServiceTest {
+
+    @Test
+    void hashesFromLowerCostNeedUpgrade() {
+        PasswordHashingService weak = new PasswordHashingService(4, false, 0, 8, new SimpleMeterRegistry());
+        PasswordHashingService strong = new PasswordHashingService(6, false, 0, 8, new SimpleMeterRegistry());
+        try {
+            String hash = weak.encode("secret").join();
+
+            assertThat(strong.matches("secret", hash).join()).isTrue();
+            assertThat(strong.matches("wrong", hash).join()).isFalse();
+            assertThat(strong.needsUpgrade(hash)).isTrue();
+            assertThat(weak.needsUpgrade(hash)).isFalse();
+        } finally {
+            weak.shutdown();
+            strong.shutdown();
+        }
+    }
+
+    @Test
+    void rejectsWorkBeyondTheQueue() {
+        PasswordHashingService service = new PasswordHashingService(12, false, 0, 1, new SimpleMeterRegistry());
+        try {
+            int submissions = Runtime.getRuntime().availableProcessors() * 4 + 4;
+            List<CompletableFuture<String>> futures = new ArrayList<>();
+            for (int i = 0; i < submissions; i++) {
+                futures.add(service.encode("secret"));
+            }
+
+            assertThat(futures).anySatisfy(future -> assertThat(future)
+                    .isCompletedExceptionally()
+                    .failsWithin(Duration.ZERO)
+                    .withThrowableOfType(ExecutionException.class)
+                    .withCauseInstanceOf(HashingOverloadedException.class));
+        } finally {
+            service.shutdown();
+        }
+    }
+}
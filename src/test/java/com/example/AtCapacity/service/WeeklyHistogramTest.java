@@ -0,0 +1,53 @@
+package com.example.AtCapacity.service;
+
+import com.example.AtCapacity.model.PopularTimesHistogram;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+
+class WeeklyHistogramTest {
+
+    private static final double WEEK = Duration.ofDays(7).toMillis();
+    private static final long T0 = 1_700_000_000_000L;
+
+    @Test
+    void emptySlotsHaveNoMean() {
+        assertThat(new WeeklyHistogram().mean(10)).isNull();
+    }
+
+    @Test
+    void valuesInTheSameWeekAreAveraged() {
+        WeeklyHistogram histogram = new WeeklyHistogram();
+        histogram.record(10, 0.2, T0, WEEK);
+        histogram.record(10, 0.6, T0 + 1000, WEEK);
+
+        assertThat(histogram.mean(10)).isCloseTo(0.4, within(1e-6));
+        assertThat(histogram.mean(11)).isNull();
+    }
+
+    @Test
+    void olderWeeksCountLess() {
+        WeeklyHistogram histogram = new WeeklyHistogram();
+        histogram.record(10, 1.0, T0, WEEK);
+        // One half-life later the old value weighs 0.5 against the new value's 1
+        histogram.record(10, 0.0, T0 + (long) WEEK, WEEK);
+
+        assertThat(histogram.mean(10)).isCloseTo(1.0 / 3, within(1e-6));
+    }
+
+    @Test
+    void snapshotsOnlyWhenChanged() {
+        WeeklyHistogram histogram = new WeeklyHistogram();
+        assertThat(histogram.takeSnapshotIfDirty("gym")).isNull();
+
+        histogram.record(3, 0.5, T0, WEEK);
+        PopularTimesHistogram snapshot = histogram.takeSnapshotIfDirty("gym");
+
+        assertThat(snapshot).isNotNull();
+        assertThat(histogram.takeSnapshotIfDirty("gym")).isNull();
+        assertThat(WeeklyHistogram.of(snapshot).mean(3)).isCloseTo(0.5, within(1e-6));
+    }
+}